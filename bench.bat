@@ -0,0 +1,26 @@
+@echo off
+echo ╔════════════════════════════════════════════════════╗
+echo ║   FINANCIAL ENGINE - Benchmark-uri                ║
+echo ╚════════════════════════════════════════════════════╝
+echo.
+
+echo [1/2] Compilare (src + benchmarks)...
+if not exist bench-bin mkdir bench-bin
+javac -d bench-bin -encoding UTF-8 src/Main.java src/model/*.java src/server/*.java src/client/*.java src/util/*.java benchmarks/bench/*.java benchmarks/server/*.java
+
+if %errorlevel% neq 0 (
+    echo.
+    echo ❌ EROARE la compilare!
+    pause
+    exit /b %errorlevel%
+)
+
+echo ✓ Compilare reușită!
+echo.
+echo [2/2] Rulare benchmark-uri (rezultate în bench-bin\bench-results.json)...
+echo.
+
+rem Opțiuni: -l (listă), -f forks, -wi încălzire, -i iterații, -t ms/iterație, -o fișier, filtre
+cd bench-bin
+java -Xmx3g -cp . bench.BenchmarkRunner %*
+cd ..
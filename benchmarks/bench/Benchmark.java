@@ -0,0 +1,100 @@
+package bench;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Descrierea unui benchmark: numele, parametrii, numărul de thread-uri și
+ * pregătirea stării (Setup), din care rezultă operația măsurată.
+ *
+ * Operația este apelată în buclă de fiecare thread; valoarea întoarsă este
+ * consumată de harness, ca JIT-ul să nu poată elimina calculul.
+ */
+public final class Benchmark {
+    /**
+     * O invocare a codului măsurat.
+     */
+    public interface Operation {
+        /**
+         * @param thread Indexul thread-ului (0..threads-1)
+         * @return Orice valoare derivată din rezultat (consumată de harness)
+         */
+        long invoke(int thread);
+    }
+
+    /**
+     * Starea unei rulări (trial): creată o dată, folosită pentru toate iterațiile.
+     */
+    public interface Trial {
+        Operation operation();
+
+        /**
+         * Apelat după fiecare iterație, în afara timpului măsurat.
+         */
+        default void afterIteration() {
+        }
+
+        /**
+         * Eliberează resursele la sfârșitul rulării.
+         */
+        default void close() {
+        }
+    }
+
+    /**
+     * Construiește starea unei rulări (în afara timpului măsurat).
+     */
+    public interface Setup {
+        Trial create() throws Exception;
+    }
+
+    private final String name;
+    private final int threads;
+    private final Map<String, String> params;
+    private final Setup setup;
+
+    /**
+     * @param params Perechi cheie, valoare (ex. "pending", "1000")
+     */
+    public Benchmark(String name, int threads, Setup setup, String... params) {
+        if (threads < 1 || params.length % 2 != 0) {
+            throw new IllegalArgumentException("Benchmark invalid: " + name);
+        }
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < params.length; i += 2) {
+            map.put(params[i], params[i + 1]);
+        }
+        this.name = name;
+        this.threads = threads;
+        this.params = Collections.unmodifiableMap(map);
+        this.setup = setup;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public Map<String, String> getParams() {
+        return params;
+    }
+
+    Setup getSetup() {
+        return setup;
+    }
+
+    /**
+     * Identificator unic: nume[param=valoare,...,threads=n].
+     */
+    public String getId() {
+        StringBuilder id = new StringBuilder(name).append('[');
+        for (Map.Entry<String, String> entry : params.entrySet()) {
+            id.append(entry.getKey()).append('=').append(entry.getValue()).append(',');
+        }
+        return id.append("threads=").append(threads).append(']').toString();
+    }
+}
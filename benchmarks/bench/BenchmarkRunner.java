@@ -0,0 +1,374 @@
+package bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Harness de benchmark fără dependențe externe, pentru căile critice ale engine-ului.
+ *
+ * Fiecare benchmark rulează implicit într-un JVM separat (fork), ca profilul
+ * JIT al unui benchmark să nu-l influențeze pe următorul. O rulare are
+ * iterații de încălzire și iterații măsurate, fiecare de durată fixă; în
+ * fiecare iterație toate thread-urile pornesc simultan și apelează operația
+ * în buclă până la semnalul de oprire. Scorul este throughput-ul (ops/s),
+ * cu eroarea ca interval de încredere 99.9% peste iterații.
+ *
+ * Rezultatele se scriu în JSON (implicit bench-results.json), ca să poată
+ * fi comparate de la o versiune la alta.
+ *
+ * Utilizare: java bench.BenchmarkRunner [-l] [-f forks] [-wi n] [-i n]
+ *            [-t millis] [-o fișier] [filtru...]
+ */
+public final class BenchmarkRunner {
+    private static final String RESULT_PREFIX = "RESULT ";
+
+    // Cuantila 0.9995 a distribuției t pentru 1..30 grade de libertate (interval 99.9%)
+    private static final double[] T_999 = {
+        636.62, 31.60, 12.92, 8.61, 6.87, 5.96, 5.41, 5.04, 4.78, 4.59,
+        4.44, 4.32, 4.22, 4.14, 4.07, 4.01, 3.97, 3.92, 3.88, 3.85,
+        3.82, 3.79, 3.77, 3.75, 3.73, 3.71, 3.69, 3.67, 3.66, 3.65
+    };
+
+    // Rezultatele operațiilor ajung aici, ca JIT-ul să nu elimine calculul
+    private static volatile long sink;
+
+    private int forks = 1;
+    private int warmupIterations = 3;
+    private int iterations = 5;
+    private long iterationMillis = 1000;
+    private String output = "bench-results.json";
+    private boolean list;
+    private String childId;
+    private final List<String> filters = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        runner.parse(args);
+        runner.run();
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-l": list = true; break;
+                case "-f": forks = Integer.parseInt(args[++i]); break;
+                case "-wi": warmupIterations = Integer.parseInt(args[++i]); break;
+                case "-i": iterations = Integer.parseInt(args[++i]); break;
+                case "-t": iterationMillis = Long.parseLong(args[++i]); break;
+                case "-o": output = args[++i]; break;
+                case "--child": childId = args[++i]; break;
+                default: filters.add(args[i]); break;
+            }
+        }
+        if (iterations < 1 || warmupIterations < 0 || iterationMillis < 1 || forks < 0) {
+            throw new IllegalArgumentException("Setări invalide");
+        }
+    }
+
+    private void run() throws Exception {
+        List<Benchmark> selected = new ArrayList<>();
+        for (Benchmark benchmark : Benchmarks.all()) {
+            if (childId != null ? benchmark.getId().equals(childId) : matches(benchmark.getId())) {
+                selected.add(benchmark);
+            }
+        }
+
+        if (childId != null) {
+            // Proces copil: rulează exact un benchmark și întoarce rezultatul pe stdout
+            if (selected.size() != 1) {
+                throw new IllegalArgumentException("Benchmark necunoscut: " + childId);
+            }
+            StringBuilder line = new StringBuilder(RESULT_PREFIX);
+            for (double score : measure(selected.get(0))) {
+                line.append(score).append(' ');
+            }
+            System.out.println(line.toString().trim());
+            return;
+        }
+        if (list) {
+            for (Benchmark benchmark : selected) {
+                System.out.println(benchmark.getId());
+            }
+            return;
+        }
+
+        System.out.printf("%d benchmark-uri, %d fork, %d x %d ms încălzire, %d x %d ms măsurare%n",
+                          selected.size(), forks, warmupIterations, iterationMillis,
+                          iterations, iterationMillis);
+        List<String> results = new ArrayList<>();
+        for (Benchmark benchmark : selected) {
+            System.out.printf("%-70s ", benchmark.getId());
+            System.out.flush();
+            double[] scores;
+            try {
+                scores = forks == 0 ? measure(benchmark) : fork(benchmark);
+            } catch (Exception e) {
+                System.out.println("EROARE: " + e.getMessage());
+                continue;
+            }
+            Stats stats = new Stats(scores);
+            results.add(toJson(benchmark, stats));
+            System.out.printf("%,16.1f ± %,.1f ops/s%n", stats.mean, stats.error);
+        }
+        writeReport(results);
+        System.out.println("Rezultate scrise în " + output);
+    }
+
+    private boolean matches(String id) {
+        if (filters.isEmpty()) {
+            return true;
+        }
+        for (String filter : filters) {
+            if (id.contains(filter)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rulează benchmark-ul în JVM-uri noi (câte unul per fork), cu aceleași
+     * opțiuni și același classpath.
+     *
+     * @return Scorurile iterațiilor măsurate din toate fork-urile
+     */
+    private double[] fork(Benchmark benchmark) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(BenchmarkRunner.class.getName());
+        command.add("--child");
+        command.add(benchmark.getId());
+        command.add("-wi");
+        command.add(String.valueOf(warmupIterations));
+        command.add("-i");
+        command.add(String.valueOf(iterations));
+        command.add("-t");
+        command.add(String.valueOf(iterationMillis));
+
+        List<Double> scores = new ArrayList<>();
+        for (int f = 0; f < forks; f++) {
+            Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith(RESULT_PREFIX)) {
+                        for (String score : line.substring(RESULT_PREFIX.length()).split(" ")) {
+                            scores.add(Double.parseDouble(score));
+                        }
+                    }
+                }
+            }
+            int exit = process.waitFor();
+            if (exit != 0) {
+                throw new IOException("procesul copil a ieșit cu codul " + exit);
+            }
+        }
+        if (scores.size() != forks * iterations) {
+            throw new IOException("procesul copil nu a raportat toate iterațiile");
+        }
+        double[] result = new double[scores.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = scores.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Rulează benchmark-ul în procesul curent. Ieșirea standard a codului
+     * măsurat (mesajele engine-ului) este suprimată pe durata rulării.
+     *
+     * @return Scorurile iterațiilor măsurate (ops/s)
+     */
+    private double[] measure(Benchmark benchmark) throws Exception {
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        double[] scores = new double[iterations];
+        try {
+            Benchmark.Trial trial = benchmark.getSetup().create();
+            try {
+                Benchmark.Operation operation = trial.operation();
+                for (int i = 0; i < warmupIterations; i++) {
+                    iterate(operation, benchmark.getThreads());
+                    trial.afterIteration();
+                }
+                for (int i = 0; i < iterations; i++) {
+                    scores[i] = iterate(operation, benchmark.getThreads());
+                    trial.afterIteration();
+                }
+            } finally {
+                trial.close();
+            }
+        } finally {
+            System.setOut(console);
+        }
+        return scores;
+    }
+
+    /**
+     * O iterație: toate thread-urile pornesc simultan și rulează operația
+     * până la oprire; timpul se măsoară până la ultimul thread oprit.
+     *
+     * @return Throughput-ul iterației (ops/s, toate thread-urile)
+     */
+    private double iterate(Benchmark.Operation operation, int threads) throws InterruptedException {
+        Iteration iteration = new Iteration(threads);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            workers[t] = new Thread(() -> iteration.work(operation, thread), "bench-" + t);
+            workers[t].start();
+        }
+        long start = System.nanoTime();
+        iteration.start.countDown();
+        Thread.sleep(iterationMillis);
+        iteration.running = false;
+
+        long operations = 0;
+        long end = start;
+        for (int t = 0; t < threads; t++) {
+            workers[t].join();
+            operations += iteration.operations[t];
+            end = Math.max(end, iteration.endNanos[t]);
+        }
+        return operations * 1e9 / Math.max(1, end - start);
+    }
+
+    private static final class Iteration {
+        final CountDownLatch start = new CountDownLatch(1);
+        final long[] operations;
+        final long[] endNanos;
+        volatile boolean running = true;
+
+        Iteration(int threads) {
+            this.operations = new long[threads];
+            this.endNanos = new long[threads];
+        }
+
+        void work(Benchmark.Operation operation, int thread) {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long count = 0;
+            long result = 0;
+            while (running) {
+                result += operation.invoke(thread);
+                count++;
+            }
+            endNanos[thread] = System.nanoTime();
+            operations[thread] = count;
+            sink ^= result;
+        }
+    }
+
+    /**
+     * Statistici peste scorurile iterațiilor.
+     */
+    private static final class Stats {
+        final double[] scores;
+        final double mean;
+        final double min;
+        final double max;
+        final double stddev;
+        final double error;
+
+        Stats(double[] scores) {
+            double sum = 0;
+            double low = Double.MAX_VALUE;
+            double high = 0;
+            for (double score : scores) {
+                sum += score;
+                low = Math.min(low, score);
+                high = Math.max(high, score);
+            }
+            double average = sum / scores.length;
+            double variance = 0;
+            for (double score : scores) {
+                variance += (score - average) * (score - average);
+            }
+            int degrees = scores.length - 1;
+            this.scores = scores;
+            this.mean = average;
+            this.min = low;
+            this.max = high;
+            this.stddev = degrees > 0 ? Math.sqrt(variance / degrees) : 0;
+            double t = degrees == 0 ? 0 : degrees <= T_999.length ? T_999[degrees - 1] : 3.29;
+            this.error = t * stddev / Math.sqrt(scores.length);
+        }
+    }
+
+    private static String toJson(Benchmark benchmark, Stats stats) {
+        double[] scores = stats.scores;
+        double mean = stats.mean;
+        StringBuilder json = new StringBuilder("{");
+        json.append("\"benchmark\":\"").append(benchmark.getName()).append('"');
+        json.append(",\"id\":\"").append(benchmark.getId()).append('"');
+        json.append(",\"params\":{");
+        boolean first = true;
+        for (Map.Entry<String, String> entry : benchmark.getParams().entrySet()) {
+            json.append(first ? "" : ",").append('"').append(entry.getKey()).append("\":\"")
+                .append(entry.getValue()).append('"');
+            first = false;
+        }
+        json.append('}');
+        json.append(",\"threads\":").append(benchmark.getThreads());
+        json.append(",\"mode\":\"thrpt\",\"unit\":\"ops/s\"");
+        json.append(",\"score\":").append(format(mean));
+        json.append(",\"error\":").append(format(stats.error));
+        json.append(",\"stddev\":").append(format(stats.stddev));
+        json.append(",\"min\":").append(format(stats.min));
+        json.append(",\"max\":").append(format(stats.max));
+        // Durata medie a unei operații, văzută de un thread
+        json.append(",\"nsPerOp\":").append(format(mean > 0 ? benchmark.getThreads() * 1e9 / mean : 0));
+        json.append(",\"iterations\":[");
+        for (int i = 0; i < scores.length; i++) {
+            json.append(i > 0 ? "," : "").append(format(scores[i]));
+        }
+        return json.append("]}").toString();
+    }
+
+    private void writeReport(List<String> results) throws IOException {
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"timestamp\": \"").append(Instant.now()).append("\",\n");
+        json.append("  \"java\": \"").append(System.getProperty("java.version")).append("\",\n");
+        json.append("  \"vm\": \"").append(System.getProperty("java.vm.name")).append("\",\n");
+        json.append("  \"os\": \"").append(System.getProperty("os.name")).append(' ')
+            .append(System.getProperty("os.arch")).append("\",\n");
+        json.append("  \"cpus\": ").append(Runtime.getRuntime().availableProcessors()).append(",\n");
+        json.append("  \"settings\": {\"forks\": ").append(forks)
+            .append(", \"warmupIterations\": ").append(warmupIterations)
+            .append(", \"iterations\": ").append(iterations)
+            .append(", \"iterationMillis\": ").append(iterationMillis).append("},\n");
+        json.append("  \"results\": [");
+        for (int i = 0; i < results.size(); i++) {
+            json.append(i > 0 ? "," : "").append("\n    ").append(results.get(i));
+        }
+        json.append("\n  ]\n}\n");
+        Files.write(Paths.get(output), json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
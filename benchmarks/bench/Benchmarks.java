@@ -0,0 +1,254 @@
+package bench;
+
+import model.Instrument;
+import model.InstrumentRegistry;
+import model.Order;
+import model.OrderType;
+import server.EngineMode;
+import server.LiquidityManager;
+import server.ServerBenchmarks;
+import server.TradingEngine;
+import util.BulkPriceSimulator;
+import util.DiagnosticLevel;
+import util.Diagnostics;
+import util.FileLogger;
+import util.InstrumentLoader;
+import util.PriceSimulator;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Catalogul benchmark-urilor. Cele care au nevoie de acces la clase
+ * package-private stau în pachetul clasei testate (vezi server.ServerBenchmarks).
+ */
+public final class Benchmarks {
+    private static final int[] CONTENDING_THREADS = {1, 2, 4, 8, 16, 32};
+    private static final int[] PENDING_ORDERS = {1_000, 100_000, 1_000_000};
+    private static final int[] PRICED_INSTRUMENTS = {1_000, 100_000};
+    private static final String LOG_FILE = "bench_log.txt";
+    private static final int LOADED_INSTRUMENTS = 100_000;
+
+    private Benchmarks() {
+    }
+
+    public static List<Benchmark> all() {
+        List<Benchmark> benchmarks = new ArrayList<>();
+        for (int threads : CONTENDING_THREADS) {
+            benchmarks.add(new Benchmark("liquidity.reserveRelease", threads,
+                                         Benchmarks::liquidity));
+        }
+        benchmarks.addAll(ServerBenchmarks.all());
+        for (int threads : new int[] {1, 4}) {
+            benchmarks.add(new Benchmark("logger.logWithTimestamp", threads, Benchmarks::logger));
+        }
+        for (int threads : new int[] {1, 4}) {
+            benchmarks.add(new Benchmark("diagnostics.emit", threads, Benchmarks::diagnostics));
+        }
+        for (int pending : PENDING_ORDERS) {
+            benchmarks.add(new Benchmark("engine.processPendingOrders", 1,
+                                         () -> processPendingOrders(pending),
+                                         "pending", String.valueOf(pending)));
+        }
+        for (int count : PRICED_INSTRUMENTS) {
+            benchmarks.add(new Benchmark("prices.updateAllPrices", 1, () -> updateAllPrices(count),
+                                         "instruments", String.valueOf(count)));
+            benchmarks.add(new Benchmark("prices.bulkUpdateAllPrices", 1, () -> bulkUpdateAllPrices(count),
+                                         "instruments", String.valueOf(count)));
+        }
+        for (boolean snapshot : new boolean[] {false, true}) {
+            benchmarks.add(new Benchmark("instruments.load", 1, () -> loadInstruments(snapshot),
+                                         "instruments", String.valueOf(LOADED_INSTRUMENTS),
+                                         "source", snapshot ? "snapshot" : "csv"));
+        }
+        return benchmarks;
+    }
+
+    /**
+     * Rezervare + eliberare pe același instrument, deci toate thread-urile
+     * concurează pe aceeași celulă CAS.
+     */
+    private static Benchmark.Trial liquidity() {
+        InstrumentRegistry registry = new InstrumentRegistry(
+            List.of(new Instrument("AAPL", 150.0, 1e12, 2.0, 0.1)));
+        LiquidityManager liquidity = new LiquidityManager(registry);
+        return () -> thread -> {
+            boolean reserved = liquidity.reserveVolume("AAPL", 1.0);
+            liquidity.releaseVolume("AAPL", 1.0);
+            return reserved ? 1 : 0;
+        };
+    }
+
+    /**
+     * Throughput-ul de logare; coada blochează producătorii când e plină,
+     * deci scorul reflectă și viteza thread-ului de scriere. Fișierul este
+     * golit după fiecare iterație.
+     */
+    private static Benchmark.Trial logger() {
+        FileLogger.initializeFile(LOG_FILE, "BENCHMARK");
+        String[] messages = new String[64];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = "ORD-" + i + " | AAPL | BUY_LIMIT | vol=10.00 | limit=150.00";
+        }
+        return new Benchmark.Trial() {
+            @Override
+            public Benchmark.Operation operation() {
+                return thread -> {
+                    FileLogger.logWithTimestamp(LOG_FILE, messages[thread & 63]);
+                    return 1;
+                };
+            }
+
+            @Override
+            public void afterIteration() {
+                FileLogger.flush();
+                FileLogger.initializeFile(LOG_FILE, "BENCHMARK");
+            }
+
+            @Override
+            public void close() {
+                FileLogger.shutdown();
+                try {
+                    Files.deleteIfExists(Paths.get(LOG_FILE));
+                } catch (IOException e) {
+                    // Rămâne pe disc - nu afectează rezultatul
+                }
+            }
+        };
+    }
+
+    /**
+     * Costul unui mesaj de consolă pe calea critică: doar copierea argumentelor
+     * în ring-ul thread-ului (randarea, eșantionată, rulează pe thread-ul de fundal).
+     */
+    private static Benchmark.Trial diagnostics() {
+        Diagnostics.Type type = Diagnostics.type("bench.executed", DiagnosticLevel.INFO,
+            (out, e) -> out.append("EXECUTAT: ").append(e.object(0))
+                           .append(String.format(" la prețul %.2f", e.doubleValue(0))));
+        String[] orderIds = new String[64];
+        for (int i = 0; i < orderIds.length; i++) {
+            orderIds[i] = "ORD-" + i;
+        }
+        Diagnostics.setSampleLimit(1);
+        return new Benchmark.Trial() {
+            @Override
+            public Benchmark.Operation operation() {
+                return thread -> {
+                    Diagnostics.emit(type, orderIds[thread & 63], 150.25, 0.75);
+                    return 1;
+                };
+            }
+
+            @Override
+            public void close() {
+                Diagnostics.flush();
+            }
+        };
+    }
+
+    /**
+     * Partea de procesare a ciclului de audit (AuditService.processOrders,
+     * fără afișare): expirare și verificarea condițiilor de execuție pentru
+     * N ordine pending care nu ating prețul curent.
+     */
+    private static Benchmark.Trial processPendingOrders(int pending) {
+        List<Instrument> instruments = new ArrayList<>();
+        String[] ids = {"AAPL", "GOOGL", "MSFT", "AMZN", "TSLA"};
+        for (String id : ids) {
+            instruments.add(new Instrument(id, 100.0, 1e12, 2.0, 0.1));
+        }
+        InstrumentRegistry registry = new InstrumentRegistry(instruments);
+        TradingEngine engine = new TradingEngine(registry, 1, 3_600_000, EngineMode.SHARED);
+        for (int i = 0; i < pending; i++) {
+            Instrument instrument = registry.get(i % registry.size());
+            // Limite sub prețul curent: niciun ordin nu se execută
+            engine.submitOrder(new Order("ORD-" + (i + 1), "BENCH", instrument, OrderType.BUY_LIMIT,
+                                         1.0, 50.0 - (i % 1000) * 0.01));
+        }
+        FileLogger.flush();
+        return new Benchmark.Trial() {
+            @Override
+            public Benchmark.Operation operation() {
+                return thread -> {
+                    engine.processPendingOrders(System.currentTimeMillis());
+                    return engine.getPendingCount();
+                };
+            }
+
+            @Override
+            public void close() {
+                engine.shutdown();
+            }
+        };
+    }
+
+    private static Benchmark.Trial updateAllPrices(int count) {
+        List<Instrument> instruments = instruments(count);
+        PriceSimulator simulator = new PriceSimulator(2.0);
+        return () -> thread -> {
+            simulator.updateAllPrices(instruments);
+            return instruments.get(0).getCurrentPriceTicks();
+        };
+    }
+
+    /**
+     * Varianta pe coloane: partiții în paralel pe pool-ul comun fork-join.
+     */
+    private static Benchmark.Trial bulkUpdateAllPrices(int count) {
+        List<Instrument> instruments = instruments(count);
+        BulkPriceSimulator simulator = new BulkPriceSimulator(instruments, 2.0, 42);
+        return () -> thread -> {
+            simulator.updateAllPrices();
+            return instruments.get(0).getCurrentPriceTicks();
+        };
+    }
+
+    /**
+     * Registrul unui univers mare: parsarea paralelă a CSV-ului sau citirea
+     * snapshot-ului binar mapat (compilat în afara timpului măsurat).
+     */
+    private static Benchmark.Trial loadInstruments(boolean snapshot) throws IOException {
+        Path csv = Files.createTempFile("bench_instruments", ".csv");
+        InstrumentLoader.generate(csv, LOADED_INSTRUMENTS, 42);
+        if (snapshot) {
+            InstrumentLoader.load(csv);
+        }
+        return new Benchmark.Trial() {
+            @Override
+            public Benchmark.Operation operation() {
+                return thread -> {
+                    try {
+                        InstrumentRegistry registry = snapshot
+                            ? InstrumentLoader.load(csv)
+                            : new InstrumentRegistry(InstrumentLoader.parseCsv(csv));
+                        return registry.size();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                };
+            }
+
+            @Override
+            public void close() {
+                try {
+                    Files.deleteIfExists(InstrumentLoader.snapshotPath(csv));
+                    Files.deleteIfExists(csv);
+                } catch (IOException e) {
+                    // Rămâne în directorul temporar - nu afectează rezultatul
+                }
+            }
+        };
+    }
+
+    private static List<Instrument> instruments(int count) {
+        List<Instrument> instruments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            instruments.add(new Instrument("I" + i, 100.0, 1e6, 2.0, 0.1));
+        }
+        return instruments;
+    }
+}
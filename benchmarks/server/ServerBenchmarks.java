@@ -0,0 +1,80 @@
+package server;
+
+import bench.Benchmark;
+import model.Instrument;
+import model.InstrumentRegistry;
+import util.BinaryProtocol;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark-uri pentru interpretarea cererilor (RequestHandler este
+ * package-private, de aceea stau în pachetul server).
+ */
+public final class ServerBenchmarks {
+    private ServerBenchmarks() {
+    }
+
+    public static List<Benchmark> all() {
+        List<Benchmark> benchmarks = new ArrayList<>();
+        // PING: doar împărțirea liniei; STATUS: parsare + căutare în OrderStore;
+        // SUBMIT: parsare, creare ordin și respingere la limitele clientului
+        benchmarks.add(new Benchmark("request.text", 1, () -> text("PING"), "command", "PING"));
+        benchmarks.add(new Benchmark("request.text", 1, () -> text("STATUS|ORD-1"),
+                                     "command", "STATUS"));
+        benchmarks.add(new Benchmark("request.text", 1,
+                                     () -> text("SUBMIT|BENCH|AAPL|BUY_LIMIT|10|150.25"),
+                                     "command", "SUBMIT"));
+        benchmarks.add(new Benchmark("request.binaryValidate", 1, ServerBenchmarks::binary));
+        return benchmarks;
+    }
+
+    private static TradingEngine engine() {
+        InstrumentRegistry registry = new InstrumentRegistry(
+            List.of(new Instrument("AAPL", 150.0, 1e12, 2.0, 0.1)));
+        TradingEngine engine = new TradingEngine(registry, 1, 60_000, EngineMode.SHARED);
+        // Orice ordin depășește volumul deschis permis: SUBMIT nu lasă ordine pending în urmă
+        engine.setClientRiskLimits(0.001, 0);
+        return engine;
+    }
+
+    private static Benchmark.Trial text(String request) {
+        TradingEngine engine = engine();
+        RequestHandler handler = new RequestHandler(engine);
+        return new Benchmark.Trial() {
+            @Override
+            public Benchmark.Operation operation() {
+                return thread -> handler.handle(request).join().length();
+            }
+
+            @Override
+            public void close() {
+                engine.shutdown();
+            }
+        };
+    }
+
+    /**
+     * Decodarea unui NEW_ORDER prin flyweight și validarea lui (fără trimitere la engine).
+     */
+    private static Benchmark.Trial binary() {
+        TradingEngine engine = engine();
+        RequestHandler handler = new RequestHandler(engine);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BinaryProtocol.NEW_ORDER_LENGTH);
+        new BinaryProtocol.NewOrder().wrap(buffer, 0)
+            .encode(0, 1, BinaryProtocol.symbolKey("AAPL"), 15_025, 1_000, 0);
+        BinaryProtocol.NewOrder message = new BinaryProtocol.NewOrder();
+        return new Benchmark.Trial() {
+            @Override
+            public Benchmark.Operation operation() {
+                return thread -> handler.validate(message.wrap(buffer, 0)) + message.volumeUnits();
+            }
+
+            @Override
+            public void close() {
+                engine.shutdown();
+            }
+        };
+    }
+}
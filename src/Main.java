@@ -1,9 +1,20 @@
 import model.Instrument;
+import model.InstrumentRegistry;
 import server.TradingEngine;
+import server.EngineMode;
+import server.Journal;
 import server.OrderServer;
+import server.Recorder;
+import server.ServerMode;
+import client.LoadGenerator;
 import client.TradingBot;
+import util.DiagnosticLevel;
+import util.Diagnostics;
+import util.InstrumentLoader;
+import util.Metrics;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Map;
-import java.util.HashMap;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -12,19 +23,49 @@ import java.util.concurrent.TimeUnit;
  * Clasa principală pentru pornirea sistemului Financial Engine.
  * 
  * Orchestrează:
- * - Crearea instrumentelor financiare
+ * - Crearea instrumentelor financiare (sau încărcarea lor din INSTRUMENTS_FILE)
  * - Pornirea Trading Engine
  * - Pornirea Order Server (TCP pe port 8080)
- * - Crearea și pornirea clienților (TradingBot)
- * - Oprirea sistemului după 1 minut
+ * - Crearea și pornirea clienților (TradingBot) sau, cu LOAD_TEST,
+ *   baleierea de rată cu LoadGenerator
+ * - Oprirea sistemului după 1 minut (sau la sfârșitul baleierii)
  */
 public class Main {
     // Configurație sistem
     private static final int NUM_INSTRUMENTS = 5;
+    private static final String INSTRUMENTS_FILE = null;   // ex. "instruments.csv" (null = cele 5 instrumente de mai jos)
+    private static final int MAX_PRINTED_INSTRUMENTS = 20;
     private static final int NUM_THREADS = 4;
+    private static final EngineMode ENGINE_MODE = EngineMode.SHARDED;
+    private static final String JOURNAL_DIR = "journal";
+    private static final Journal.Durability JOURNAL_DURABILITY = Journal.Durability.GROUP_COMMIT;
+    private static final int MAX_ARCHIVED_ORDERS = 100_000;     // ordine finalizate păstrate în memorie
+    private static final long ORDER_RETENTION_MILLIS = 10 * 60_000; // vechimea lor maximă
+    private static final double CLIENT_MAX_OPEN_VOLUME = 2_000;      // per client și instrument (0 = fără limită)
+    private static final double CLIENT_MAX_OPEN_NOTIONAL = 5_000_000; // per client, la prețul limită (0 = fără limită)
+    private static final long METRICS_REPORT_SECONDS = 10; // raport periodic de latențe/contoare
+    private static final DiagnosticLevel CONSOLE_LEVEL = DiagnosticLevel.INFO; // nivelul minim afișat
+    private static final int CONSOLE_SAMPLE_LIMIT = 100;    // mesaje pe secundă per tip (0 = toate)
+    private static final boolean CONSOLE_QUIET = false;     // producție: doar WARN/ERROR (implicit la LOAD_TEST)
+    private static final long PRICE_TICK_MICROS = 1_000;    // tick de preț independent de audit (0 = doar la audit)
+    private static final long RECONCILE_MILLIS = 10;        // reconcilierea continuă a lichidității (0 = doar la audit)
+    private static final long RANDOM_SEED = 0;              // sămânța prețurilor și a boților (0 = aleator)
+    private static final String CAPTURE_FILE = null;        // ex. "capture.bin": captură pentru server.Replay
     private static final int NUM_CLIENTS = 5;
+    private static final boolean BINARY_PROTOCOL = true; // boții folosesc protocolul binar
+    private static final int BOT_IN_FLIGHT_WINDOW = 8;   // cereri în zbor per bot (1 = sincron)
+    private static final int BOT_ORDERS_PER_TICK = 3;    // ordine trimise de fiecare bot pe secundă
     private static final int RUNTIME_MINUTES = 1;
+    private static final boolean LOAD_TEST = false;          // baleiere de rată în locul boților
+    private static final int LOAD_CONNECTIONS = 1_000;       // clienți simulați de generator
+    private static final int LOAD_THREADS = 2;               // thread-uri de I/O ale generatorului
+    private static final double LOAD_START_RATE = 10_000;    // ordine/s la primul pas
+    private static final double LOAD_MAX_RATE = 200_000;     // ordine/s la ultimul pas
+    private static final long LOAD_STEP_MILLIS = 5_000;      // durata unui pas
+    private static final long LOAD_MAX_P99_MICROS = 50_000;  // p99 peste care serverul e saturat
     private static final int SERVER_PORT = 8080;
+    private static final ServerMode SERVER_MODE = ServerMode.NIO;
+    private static final int SERVER_IO_THREADS = 2;
     private static final String SERVER_HOST = "localhost";
     
     public static void main(String[] args) {
@@ -33,21 +74,68 @@ public class Main {
         System.out.println("╚════════════════════════════════════════════════════╝");
         System.out.println();
         
-        // 1. Creează instrumentele financiare
-        Map<String, Instrument> instruments = createInstruments();
-        System.out.println("✓ Instrumente create: " + instruments.size());
-        for (Instrument instrument : instruments.values()) {
-            System.out.println("  " + instrument);
+        Diagnostics.setLevel(CONSOLE_LEVEL);
+        Diagnostics.setSampleLimit(CONSOLE_SAMPLE_LIMIT);
+        Diagnostics.setQuiet(CONSOLE_QUIET || LOAD_TEST);
+        
+        // 1. Creează instrumentele financiare (sau le încarcă din fișier)
+        InstrumentRegistry registry;
+        if (INSTRUMENTS_FILE != null) {
+            long start = System.nanoTime();
+            try {
+                registry = InstrumentLoader.load(Paths.get(INSTRUMENTS_FILE));
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Instrumente indisponibile: " + e.getMessage());
+                return;
+            }
+            System.out.printf("✓ Instrumente încărcate din %s: %d în %d ms\n", INSTRUMENTS_FILE,
+                              registry.size(), (System.nanoTime() - start) / 1_000_000);
+        } else {
+            registry = createInstruments();
+            System.out.println("✓ Instrumente create: " + registry.size());
+        }
+        Map<String, Instrument> instruments = registry.asMap();
+        for (int i = 0; i < Math.min(registry.size(), MAX_PRINTED_INSTRUMENTS); i++) {
+            System.out.println("  " + registry.get(i));
+        }
+        if (registry.size() > MAX_PRINTED_INSTRUMENTS) {
+            System.out.println("  ... încă " + (registry.size() - MAX_PRINTED_INSTRUMENTS) + " instrumente");
         }
         System.out.println();
         
         // 2. Creează și pornește Trading Engine
-        TradingEngine engine = new TradingEngine(instruments, NUM_THREADS);
+        TradingEngine engine = new TradingEngine(registry, NUM_THREADS,
+                                                 TradingEngine.DEFAULT_ORDER_TTL_MILLIS, ENGINE_MODE);
+        engine.setOrderRetention(MAX_ARCHIVED_ORDERS, ORDER_RETENTION_MILLIS);
+        engine.setClientRiskLimits(CLIENT_MAX_OPEN_VOLUME, CLIENT_MAX_OPEN_NOTIONAL);
+        try {
+            // Reface starea din jurnal (dacă există) și pornește jurnalizarea
+            engine.attachJournal(Journal.open(Paths.get(JOURNAL_DIR), JOURNAL_DURABILITY));
+        } catch (IOException e) {
+            System.err.println("Jurnal indisponibil, rulare fără persistență: " + e.getMessage());
+        }
+        if (RANDOM_SEED != 0) {
+            engine.setPriceSeed(RANDOM_SEED);
+        }
+        if (PRICE_TICK_MICROS > 0) {
+            engine.setPriceTickInterval(PRICE_TICK_MICROS * 1_000);
+        }
+        if (RECONCILE_MILLIS > 0) {
+            engine.setReconcileInterval(RECONCILE_MILLIS * 1_000_000);
+        }
+        if (CAPTURE_FILE != null) {
+            try {
+                engine.attachRecorder(Recorder.open(Paths.get(CAPTURE_FILE)));
+            } catch (IOException | IllegalStateException e) {
+                System.err.println("Captură indisponibilă: " + e.getMessage());
+            }
+        }
         engine.start();
+        Metrics.startReporter(METRICS_REPORT_SECONDS);
         System.out.println();
         
         // 3. Pornește Order Server (TCP)
-        OrderServer orderServer = new OrderServer(SERVER_PORT, engine);
+        OrderServer orderServer = new OrderServer(SERVER_PORT, engine, SERVER_MODE, SERVER_IO_THREADS);
         orderServer.start();
         
         // Așteaptă 2 secunde ca serverul să fie gata
@@ -58,12 +146,46 @@ public class Main {
         }
         System.out.println();
         
-        // 4. Creează și pornește clienții (boți) - conectare la server TCP
+        if (LOAD_TEST) {
+            // 4. Caută punctul de saturație al serverului (în locul boților)
+            runLoadTest(instruments);
+        } else {
+            runBots(instruments);
+        }
+        
+        // 5. Oprește sistemul
+        System.out.println("\n═══════════════════════════════════════════════════");
+        System.out.println("Timp expirat - oprire sistem...");
+        System.out.println("═══════════════════════════════════════════════════");
+        
+        // Oprește Order Server
+        orderServer.stop();
+        
+        // Oprește raportul de metrici și engine-ul
+        Metrics.stopReporter();
+        engine.shutdown();
+        
+        System.out.println("\n╔════════════════════════════════════════════════════╗");
+        System.out.println("║   Sistem oprit cu succes!                         ║");
+        System.out.println("║   Verifică fișierele pentru logs:                 ║");
+        System.out.println("║   - orders.txt                                    ║");
+        System.out.println("║   - executions.txt                                ║");
+        System.out.println("║   - cancellations.txt                             ║");
+        System.out.println("║   - audit_log.txt                                 ║");
+        System.out.println("║   - metrics.txt                                   ║");
+        System.out.println("╚════════════════════════════════════════════════════╝");
+    }
+    
+    /**
+     * Rulează boții timp de RUNTIME_MINUTES, apoi îi oprește.
+     */
+    private static void runBots(Map<String, Instrument> instruments) {
+        // Creează și pornește clienții (boți) - conectare la server TCP
         List<TradingBot> bots = createAndStartBots(SERVER_HOST, SERVER_PORT, instruments);
         System.out.println("✓ Boți porniți: " + bots.size());
         System.out.println();
         
-        // 4. Rulează timp de 1 minut
+        // Rulează timp de 1 minut
         System.out.println("═══════════════════════════════════════════════════");
         System.out.println("Sistem pornit - va rula " + RUNTIME_MINUTES + " minut(e)...");
         System.out.println("Server TCP pe portul " + SERVER_PORT);
@@ -77,41 +199,37 @@ public class Main {
             Thread.currentThread().interrupt();
         }
         
-        // 5. Oprește sistemul
-        System.out.println("\n═══════════════════════════════════════════════════");
-        System.out.println("Timp expirat - oprire sistem...");
-        System.out.println("═══════════════════════════════════════════════════");
-        
-        // Oprește boții
         for (TradingBot bot : bots) {
             bot.stop();
         }
         System.out.println("✓ Boți opriți");
-        
-        // Oprește Order Server
-        orderServer.stop();
-        
-        // Oprește engine-ul
-        engine.shutdown();
-        
-        System.out.println("\n╔════════════════════════════════════════════════════╗");
-        System.out.println("║   Sistem oprit cu succes!                         ║");
-        System.out.println("║   Verifică fișierele pentru logs:                 ║");
-        System.out.println("║   - orders.txt                                    ║");
-        System.out.println("║   - executions.txt                                ║");
-        System.out.println("║   - cancellations.txt                             ║");
-        System.out.println("║   - audit_log.txt                                 ║");
-        System.out.println("╚════════════════════════════════════════════════════╝");
+    }
+    
+    /**
+     * Baleiere de rată în buclă deschisă împotriva serverului local.
+     */
+    private static void runLoadTest(Map<String, Instrument> instruments) {
+        LoadGenerator generator = new LoadGenerator(SERVER_HOST, SERVER_PORT, LOAD_CONNECTIONS,
+                                                    LOAD_THREADS, List.copyOf(instruments.keySet()), 500);
+        try {
+            generator.start();
+            generator.sweep(LOAD_START_RATE, LOAD_MAX_RATE, 1.5, LOAD_STEP_MILLIS, LOAD_MAX_P99_MICROS);
+        } catch (IOException e) {
+            System.err.println("Generatorul de încărcare nu s-a putut conecta: " + e.getMessage());
+        } finally {
+            generator.stop();
+        }
     }
     
     /**
      * Creează instrumentele financiare pentru sistem.
+     * Registrul le atribuie indexurile dense folosite de engine.
      */
-    private static Map<String, Instrument> createInstruments() {
-        Map<String, Instrument> instruments = new HashMap<>();
+    private static InstrumentRegistry createInstruments() {
+        List<Instrument> instruments = new ArrayList<>();
         
         // Instrumente cu parametri diferiți
-        instruments.put("AAPL", new Instrument(
+        instruments.add(new Instrument(
             "AAPL",          // id
             150.0,           // preț inițial
             1000.0,          // lichiditate maximă
@@ -119,7 +237,7 @@ public class Main {
             0.1              // trend (mu)
         ));
         
-        instruments.put("GOOGL", new Instrument(
+        instruments.add(new Instrument(
             "GOOGL",
             2800.0,
             800.0,
@@ -127,7 +245,7 @@ public class Main {
             0.15
         ));
         
-        instruments.put("MSFT", new Instrument(
+        instruments.add(new Instrument(
             "MSFT",
             330.0,
             1200.0,
@@ -135,7 +253,7 @@ public class Main {
             0.05
         ));
         
-        instruments.put("TSLA", new Instrument(
+        instruments.add(new Instrument(
             "TSLA",
             900.0,
             600.0,
@@ -143,7 +261,7 @@ public class Main {
             0.2
         ));
         
-        instruments.put("AMZN", new Instrument(
+        instruments.add(new Instrument(
             "AMZN",
             3300.0,
             900.0,
@@ -151,7 +269,7 @@ public class Main {
             0.1
         ));
         
-        return instruments;
+        return new InstrumentRegistry(instruments);
     }
     
     /**
@@ -164,7 +282,11 @@ public class Main {
         
         for (int i = 1; i <= NUM_CLIENTS; i++) {
             String clientId = "CLIENT-" + i;
-            TradingBot bot = new TradingBot(clientId, serverHost, serverPort, instruments);
+            TradingBot bot = RANDOM_SEED != 0
+                ? new TradingBot(clientId, serverHost, serverPort, instruments, BINARY_PROTOCOL,
+                                 BOT_IN_FLIGHT_WINDOW, BOT_ORDERS_PER_TICK, RANDOM_SEED + i)
+                : new TradingBot(clientId, serverHost, serverPort, instruments, BINARY_PROTOCOL,
+                                 BOT_IN_FLIGHT_WINDOW, BOT_ORDERS_PER_TICK);
             bot.start();
             bots.add(bot);
         }
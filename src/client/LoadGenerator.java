@@ -0,0 +1,541 @@
+package client;
+
+import model.OrderType;
+import util.BinaryProtocol;
+import util.LatencyHistogram;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generator de încărcare în buclă deschisă pentru un OrderServer (protocolul binar).
+ *
+ * Spre deosebire de TradingBot, care așteaptă fiecare răspuns, generatorul
+ * trimite ordinele după un program fix: ordinul k al unui pas are momentul
+ * planificat t0 + k / rată, indiferent de cât de repede răspunde serverul.
+ * Latența este măsurată de la momentul planificat (nu de la trimiterea
+ * efectivă), deci întârzierile cauzate de un server saturat apar în percentile
+ * în loc să fie ascunse (coordinated omission).
+ *
+ * Mii de conexiuni (câte un client LOAD-n fiecare) sunt împărțite între
+ * câteva thread-uri, fiecare cu propriul Selector. Ordinele sunt BUY_LIMIT
+ * la 1 tick, cu volum minim și TTL scurt: nu se execută niciodată și expiră
+ * repede, deci serverul nu acumulează ordine pending. Pasul și numărul de
+ * secvență sunt codificate în clientOrderId, așa că nu se păstrează nimic
+ * per ordin.
+ */
+public class LoadGenerator {
+    /** Biții din clientOrderId rezervați numărului de secvență; restul identifică pasul. */
+    private static final int SEQUENCE_BITS = 40;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int OUT_BUFFER_SIZE = 64 * 1024;
+    private static final int IN_BUFFER_SIZE = 64 * 1024;
+    /** Întârzierea primului ordin față de publicarea pasului. */
+    private static final long STEP_START_DELAY_NANOS = 20_000_000;
+    /** Timpul de așteptare a răspunsurilor întârziate după sfârșitul unui pas. */
+    private static final long DRAIN_MILLIS = 1_000;
+    /** Pasul de încălzire (JIT) rulat la rata inițială înaintea baleierii, fără raportare. */
+    private static final long WARMUP_MILLIS = 2_000;
+    /** Pragul de rată atinsă sub care pasul este considerat saturat. */
+    private static final double SATURATION_RATIO = 0.95;
+
+    private final String host;
+    private final int port;
+    private final int connections;
+    private final long[] symbolKeys;
+    private final long orderTtlMillis;
+    private final Worker[] workers;
+    private volatile Step step;
+    private int nextStepId = 1;
+
+    /**
+     * @param connections Numărul de conexiuni (clienți simulați)
+     * @param threads Thread-uri de I/O între care se împart conexiunile
+     * @param symbols Instrumentele pe care se trimit ordine (prin rotație)
+     * @param orderTtlMillis TTL-ul ordinelor trimise
+     */
+    public LoadGenerator(String host, int port, int connections, int threads,
+                         List<String> symbols, long orderTtlMillis) {
+        if (connections < 1 || threads < 1 || symbols.isEmpty()) {
+            throw new IllegalArgumentException("Conexiunile, thread-urile și instrumentele trebuie să fie pozitive");
+        }
+        this.host = host;
+        this.port = port;
+        this.connections = connections;
+        this.orderTtlMillis = orderTtlMillis;
+        this.symbolKeys = new long[symbols.size()];
+        for (int i = 0; i < symbolKeys.length; i++) {
+            symbolKeys[i] = BinaryProtocol.symbolKey(symbols.get(i));
+        }
+        this.workers = new Worker[Math.min(threads, connections)];
+    }
+
+    /**
+     * Deschide conexiunile (MAGIC + LOGON pe fiecare) și pornește thread-urile de I/O.
+     */
+    public void start() throws IOException {
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(i);
+        }
+        ByteBuffer handshake = ByteBuffer.allocate(1 + BinaryProtocol.LOGON_LENGTH);
+        BinaryProtocol.Logon logon = new BinaryProtocol.Logon();
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        for (int i = 0; i < connections; i++) {
+            SocketChannel channel = SocketChannel.open(address);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            handshake.clear();
+            handshake.put(0, BinaryProtocol.MAGIC);
+            logon.wrap(handshake, 1).encode("LOAD-" + (i + 1));
+            while (handshake.hasRemaining()) {
+                channel.write(handshake);
+            }
+            channel.configureBlocking(false);
+            workers[i % workers.length].add(channel);
+        }
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+        System.out.printf("✓ Generator de încărcare: %d conexiuni pe %d thread-uri către %s:%d%n",
+                          connections, workers.length, host, port);
+    }
+
+    /**
+     * Oprește thread-urile și închide conexiunile.
+     */
+    public void stop() {
+        step = null;
+        for (Worker worker : workers) {
+            if (worker != null) {
+                worker.running = false;
+                worker.selector.wakeup();
+            }
+        }
+        for (Worker worker : workers) {
+            if (worker == null) {
+                continue;
+            }
+            try {
+                worker.thread.join(2_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            worker.close();
+        }
+    }
+
+    /**
+     * Rulează un pas la rata țintă, apoi așteaptă răspunsurile întârziate.
+     *
+     * @param rate Ordine pe secundă (agregat, pe toate conexiunile)
+     * @param durationMillis Durata în care se trimit ordine
+     */
+    public StepResult run(double rate, long durationMillis) {
+        long totalOrders = Math.max(1, Math.round(rate * durationMillis / 1000.0));
+        Step current = new Step(nextStepId++, rate, durationMillis, totalOrders);
+        step = current;
+        for (Worker worker : workers) {
+            worker.selector.wakeup();
+        }
+        sleep(durationMillis + STEP_START_DELAY_NANOS / 1_000_000 + DRAIN_MILLIS);
+        step = null;
+        return current.result();
+    }
+
+    /**
+     * Crește rata geometric până la saturație: rata atinsă sub 95% din țintă
+     * sau p99 peste maxP99Micros. Primul pas (încălzirea) nu este raportat.
+     *
+     * @return Rezultatele tuturor pașilor rulați (ultimul este cel saturat, dacă există)
+     */
+    public List<StepResult> sweep(double startRate, double maxRate, double factor,
+                                  long stepMillis, long maxP99Micros) {
+        if (startRate <= 0 || factor <= 1) {
+            throw new IllegalArgumentException("Rata inițială trebuie să fie pozitivă și factorul > 1");
+        }
+        run(startRate, WARMUP_MILLIS);
+        List<StepResult> results = new ArrayList<>();
+        System.out.println(StepResult.HEADER);
+        StepResult sustained = null;
+        for (double rate = startRate; rate <= maxRate; rate *= factor) {
+            StepResult result = run(rate, stepMillis);
+            results.add(result);
+            System.out.println(result);
+            if (result.isSaturated(maxP99Micros * 1_000)) {
+                break;
+            }
+            sustained = result;
+        }
+        if (sustained == null) {
+            System.out.println("Serverul nu susține nici rata inițială");
+        } else if (sustained == results.get(results.size() - 1)) {
+            System.out.printf(Locale.ROOT, "Fără saturație până la %.0f ordine/s%n", sustained.targetRate);
+        } else {
+            System.out.printf(Locale.ROOT, "Saturație: ultima rată susținută %.0f ordine/s (p99 %.1fus)%n",
+                              sustained.achievedRate, sustained.p99Nanos / 1000.0);
+        }
+        return results;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Un pas al baleierii: programul de trimitere și contoarele lui.
+     */
+    private static final class Step {
+        final int id;
+        final double rate;
+        final long startNanos;
+        final long endNanos;
+        final double periodNanos;
+        final long totalOrders;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder sent = new LongAdder();
+        final LongAdder responses = new LongAdder();
+        final LongAdder responsesInWindow = new LongAdder();
+        final LongAdder rejects = new LongAdder();
+
+        Step(int id, double rate, long durationMillis, long totalOrders) {
+            this.id = id;
+            this.rate = rate;
+            this.startNanos = System.nanoTime() + STEP_START_DELAY_NANOS;
+            this.endNanos = startNanos + durationMillis * 1_000_000;
+            this.periodNanos = 1e9 / rate;
+            this.totalOrders = totalOrders;
+        }
+
+        long intendedNanos(long sequence) {
+            return startNanos + (long) (sequence * periodNanos);
+        }
+
+        void onResponse(long sequence, boolean rejected, long nowNanos) {
+            latency.record(nowNanos - intendedNanos(sequence));
+            responses.increment();
+            if (nowNanos <= endNanos) {
+                responsesInWindow.increment();
+            }
+            if (rejected) {
+                rejects.increment();
+            }
+        }
+
+        StepResult result() {
+            LatencyHistogram.Snapshot snapshot = latency.snapshot();
+            double seconds = (endNanos - startNanos) / 1e9;
+            return new StepResult(rate, sent.sum(), responses.sum(), responsesInWindow.sum() / seconds,
+                                  rejects.sum(), totalOrders - sent.sum(),
+                                  snapshot.getValueAtPercentile(50), snapshot.getValueAtPercentile(99),
+                                  snapshot.getValueAtPercentile(99.9), snapshot.getMax());
+        }
+    }
+
+    /**
+     * Rezultatul unui pas. Latențele sunt în ns, de la momentul planificat la
+     * primirea ACK/REJECT.
+     */
+    public static final class StepResult {
+        static final String HEADER = String.format("%10s %10s %10s %10s %8s %8s %10s %10s %10s %10s",
+            "tinta/s", "trimise", "raspunsuri", "atins/s", "respinse", "netrimise",
+            "p50(us)", "p99(us)", "p99.9(us)", "max(us)");
+
+        public final double targetRate;
+        public final long sent;
+        public final long responses;
+        public final double achievedRate;
+        public final long rejects;
+        public final long unsent;
+        public final long p50Nanos;
+        public final long p99Nanos;
+        public final long p999Nanos;
+        public final long maxNanos;
+
+        StepResult(double targetRate, long sent, long responses, double achievedRate, long rejects,
+                   long unsent, long p50Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+            this.targetRate = targetRate;
+            this.sent = sent;
+            this.responses = responses;
+            this.achievedRate = achievedRate;
+            this.rejects = rejects;
+            this.unsent = unsent;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.p999Nanos = p999Nanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /**
+         * Saturat: serverul nu a ținut pasul cu rata țintă sau coada de latență a depășit pragul.
+         */
+        public boolean isSaturated(long maxP99Nanos) {
+            return achievedRate < targetRate * SATURATION_RATIO || p99Nanos > maxP99Nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%10.0f %10d %10d %10.0f %8d %8d %10.1f %10.1f %10.1f %10.1f",
+                targetRate, sent, responses, achievedRate, rejects, unsent,
+                p50Nanos / 1000.0, p99Nanos / 1000.0, p999Nanos / 1000.0, maxNanos / 1000.0);
+        }
+    }
+
+    /**
+     * Starea unei conexiuni: buffere proprii, deci fără sincronizare.
+     */
+    private static final class Connection {
+        final SocketChannel channel;
+        final SelectionKey key;
+        final ByteBuffer out = ByteBuffer.allocateDirect(OUT_BUFFER_SIZE);
+        final ByteBuffer in = ByteBuffer.allocateDirect(IN_BUFFER_SIZE);
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+    }
+
+    /**
+     * Thread de I/O: trimite ordinele planificate k = index, index + W, ...
+     * (W = numărul de thread-uri) prin rotație pe conexiunile proprii și
+     * citește răspunsurile lor.
+     */
+    private final class Worker implements Runnable {
+        final int index;
+        final Selector selector;
+        final Thread thread;
+        final List<Connection> connections = new ArrayList<>();
+        final BinaryProtocol.NewOrder newOrder = new BinaryProtocol.NewOrder();
+        final BinaryProtocol.Ack ack = new BinaryProtocol.Ack();
+        final BinaryProtocol.Reject reject = new BinaryProtocol.Reject();
+        volatile boolean running = true;
+        private int nextConnection;
+
+        Worker(int index) throws IOException {
+            this.index = index;
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "LoadGenerator-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * Apelat înainte de pornirea thread-ului.
+         */
+        void add(SocketChannel channel) throws IOException {
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            Connection connection = new Connection(channel, key);
+            key.attach(connection);
+            connections.add(connection);
+        }
+
+        @Override
+        public void run() {
+            Step current = null;
+            long sequence = 0;
+            try {
+                while (running) {
+                    Step published = step;
+                    if (published != current) {
+                        current = published;
+                        sequence = index;
+                    }
+                    if (current != null && (sequence = sendDue(current, sequence)) < current.totalOrders) {
+                        // Doarme cel mult până la următorul moment planificat
+                        long waitMillis = (current.intendedNanos(sequence) - System.nanoTime()) / 1_000_000;
+                        if (waitMillis > 0) {
+                            selector.select(waitMillis);
+                        } else {
+                            selector.selectNow();
+                        }
+                    } else {
+                        selector.select(10);
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isValid() && key.isWritable()) {
+                            flush(connection);
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            read(connection, current);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Eroare generator de încărcare: " + e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * Trimite toate ordinele al căror moment planificat a trecut. Dacă
+         * bufferele sunt pline, restul rămân pentru iterația următoare, dar
+         * latența lor se măsoară tot de la momentul planificat.
+         *
+         * @return Următorul număr de secvență netrimis
+         */
+        private long sendDue(Step current, long sequence) throws IOException {
+            long now = System.nanoTime();
+            int stride = workers.length;
+            while (sequence < current.totalOrders && current.intendedNanos(sequence) <= now) {
+                Connection connection = nextWritable();
+                if (connection == null) {
+                    break;
+                }
+                newOrder.wrap(connection.out, connection.out.position()).encode(
+                    OrderType.BUY_LIMIT.ordinal(), ((long) current.id << SEQUENCE_BITS) | sequence,
+                    symbolKeys[(int) (sequence % symbolKeys.length)], 1, 1, orderTtlMillis);
+                connection.out.position(connection.out.position() + BinaryProtocol.NEW_ORDER_LENGTH);
+                current.sent.increment();
+                sequence += stride;
+            }
+            for (Connection connection : connections) {
+                if (connection.out.position() > 0 && (connection.key.interestOps() & SelectionKey.OP_WRITE) == 0) {
+                    flush(connection);
+                }
+            }
+            return sequence;
+        }
+
+        /**
+         * Următoarea conexiune (prin rotație) cu loc în bufferul de ieșire, sau null.
+         */
+        private Connection nextWritable() {
+            for (int i = 0; i < connections.size(); i++) {
+                Connection connection = connections.get(nextConnection);
+                nextConnection = (nextConnection + 1) % connections.size();
+                if (connection.key.isValid()
+                        && connection.out.remaining() >= BinaryProtocol.NEW_ORDER_LENGTH) {
+                    return connection;
+                }
+            }
+            return null;
+        }
+
+        private void flush(Connection connection) throws IOException {
+            ByteBuffer out = connection.out;
+            out.flip();
+            try {
+                connection.channel.write(out);
+            } catch (IOException e) {
+                disconnect(connection, e);
+                return;
+            }
+            out.compact();
+            int ops = out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+            connection.key.interestOps(ops);
+        }
+
+        private void read(Connection connection, Step current) {
+            ByteBuffer in = connection.in;
+            int read;
+            try {
+                read = connection.channel.read(in);
+            } catch (IOException e) {
+                disconnect(connection, e);
+                return;
+            }
+            if (read < 0) {
+                disconnect(connection, null);
+                return;
+            }
+            long now = System.nanoTime();
+            in.flip();
+            while (in.remaining() > 0) {
+                int offset = in.position();
+                int length = BinaryProtocol.lengthOf(in.get(offset));
+                if (length < 0) {
+                    disconnect(connection, new IOException("Mesaj necunoscut de la server"));
+                    return;
+                }
+                if (in.remaining() < length) {
+                    break;
+                }
+                byte type = in.get(offset);
+                if (type == BinaryProtocol.ACK) {
+                    onResponse(current, ack.wrap(in, offset).clientOrderId(), false, now);
+                } else if (type == BinaryProtocol.REJECT) {
+                    onResponse(current, reject.wrap(in, offset).clientOrderId(), true, now);
+                }
+                // Rapoartele de execuție nu sunt așteptate (limita de 1 tick nu se atinge)
+                in.position(offset + length);
+            }
+            in.compact();
+        }
+
+        /**
+         * Răspunsurile pașilor anteriori (sosite după drenare) sunt ignorate.
+         */
+        private void onResponse(Step current, long clientOrderId, boolean rejected, long now) {
+            if (current != null && (clientOrderId >>> SEQUENCE_BITS) == current.id) {
+                current.onResponse(clientOrderId & SEQUENCE_MASK, rejected, now);
+            }
+        }
+
+        private void disconnect(Connection connection, IOException cause) {
+            if (running) {
+                System.err.println("Conexiune pierdută de generator"
+                                   + (cause != null ? ": " + cause.getMessage() : ""));
+            }
+            connection.key.cancel();
+            try {
+                connection.channel.close();
+            } catch (IOException e) {
+                // Ignoră erori la închidere
+            }
+        }
+
+        void close() {
+            for (Connection connection : connections) {
+                try {
+                    connection.channel.close();
+                } catch (IOException e) {
+                    // Ignoră erori la închidere
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // Ignoră erori la închidere
+            }
+        }
+    }
+
+    /**
+     * Rulare de sine stătătoare împotriva unui server deja pornit:
+     * java client.LoadGenerator [host] [port] [conexiuni] [thread-uri]
+     *                           [rataInițială] [rataMaximă] [secundePePas]
+     */
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+        double startRate = args.length > 4 ? Double.parseDouble(args[4]) : 10_000;
+        double maxRate = args.length > 5 ? Double.parseDouble(args[5]) : 200_000;
+        long stepSeconds = args.length > 6 ? Long.parseLong(args[6]) : 5;
+        LoadGenerator generator = new LoadGenerator(host, port, connections, threads,
+            List.of("AAPL", "GOOGL", "MSFT", "TSLA", "AMZN"), 500);
+        generator.start();
+        try {
+            generator.sweep(startRate, maxRate, 1.5, stepSeconds * 1_000, 50_000);
+        } finally {
+            generator.stop();
+        }
+    }
+}
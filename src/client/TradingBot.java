@@ -1,6 +1,12 @@
 package client;
 
 import model.*;
+import util.BinaryProtocol;
+import util.DiagnosticLevel;
+import util.Diagnostics;
+import util.IdGenerator;
+import java.nio.ByteBuffer;
+import java.util.Locale;
 import java.util.Random;
 import java.util.Map;
 import java.util.concurrent.*;
@@ -9,20 +15,80 @@ import java.net.*;
 
 /**
  * Simulator de client (bot de tranzacționare).
- * Comunică cu serverul prin socket TCP (port 8080).
+ * Comunică cu serverul prin socket TCP (port 8080), folosind protocolul text
+ * sau protocolul binar (BinaryProtocol).
+ *
+ * În modul sincron botul trimite un ordin și așteaptă răspunsul. În modul
+ * pipelined (fereastră > 1) trimite mai multe ordine fără să aștepte, cu cel
+ * mult inFlightWindow cereri în zbor; un thread separat citește răspunsurile
+ * și le asociază după ID-ul de corelare (REQ|corrId|... sau clientOrderId).
  */
 public class TradingBot implements Runnable {
+    // Mesajele de consolă (randate asincron, vezi Diagnostics)
+    private static final Diagnostics.Type SENDING = Diagnostics.type("bot.send", DiagnosticLevel.INFO,
+        (out, e) -> out.append(String.format("%n[%s] Trimite ordin: %s %s %.2f @ %.2f (curent: %.2f)",
+                                             e.object(0), e.object(1), e.object(2),
+                                             e.doubleValue(0), e.doubleValue(1), e.doubleValue(2))));
+    private static final Diagnostics.Type WINDOW_FULL = Diagnostics.type("bot.window_full", DiagnosticLevel.WARN,
+        (out, e) -> out.append('[').append(e.object(0)).append("] Fereastră plină (")
+                       .append(e.longValue(0)).append(" cereri în zbor)"));
+    private static final Diagnostics.Type ACCEPTED = Diagnostics.type("bot.accepted", DiagnosticLevel.INFO,
+        (out, e) -> out.append('[').append(e.object(0)).append("] ✓ Ordin ").append(e.object(1)).append(" ACCEPTAT"));
+    private static final Diagnostics.Type REJECTED = Diagnostics.type("bot.rejected", DiagnosticLevel.INFO,
+        (out, e) -> out.append('[').append(e.object(0)).append("] ✗ Ordin RESPINS: ").append(e.object(1)));
+    private static final Diagnostics.Type SERVER_ERROR = Diagnostics.type("bot.server_error", DiagnosticLevel.ERROR,
+        (out, e) -> out.append('[').append(e.object(0)).append("] Eroare server: ").append(e.object(1)));
+    private static final Diagnostics.Type EXECUTED = Diagnostics.type("bot.executed", DiagnosticLevel.INFO,
+        (out, e) -> {
+            // EXEC|orderId|price|volume, descompus abia la randare
+            String[] fields = ((String) e.object(1)).split("\\|");
+            out.append('[').append(e.object(0)).append("] Ordin ").append(fields[0])
+               .append(" EXECUTAT la ").append(fields.length > 1 ? fields[1] : "?")
+               .append(" (volum ").append(fields.length > 2 ? fields[2] : "?").append(')');
+        });
+    private static final Diagnostics.Type CANCELLED = Diagnostics.type("bot.cancelled", DiagnosticLevel.INFO,
+        (out, e) -> out.append('[').append(e.object(0)).append("] Ordin ").append(e.object(1)).append(" ANULAT"));
+    private static final Diagnostics.Type BINARY_ACCEPTED = Diagnostics.type("bot.accepted", DiagnosticLevel.INFO,
+        (out, e) -> out.append('[').append(e.object(0)).append("] ✓ Ordin ")
+                       .append(IdGenerator.orderIdOf(e.longValue(0))).append(" ACCEPTAT"));
+    private static final Diagnostics.Type BINARY_REJECTED = Diagnostics.type("bot.rejected", DiagnosticLevel.INFO,
+        (out, e) -> out.append('[').append(e.object(0)).append("] ✗ Ordin RESPINS: cod ").append(e.longValue(0)));
+    private static final Diagnostics.Type BINARY_EXECUTED = Diagnostics.type("bot.executed", DiagnosticLevel.INFO,
+        (out, e) -> out.append('[').append(e.object(0)).append("] Ordin ").append(IdGenerator.orderIdOf(e.longValue(0)))
+                       .append(" EXECUTAT (").append(e.longValue(1)).append(" tick-uri)"));
+    private static final Diagnostics.Type BINARY_CANCELLED = Diagnostics.type("bot.cancelled", DiagnosticLevel.INFO,
+        (out, e) -> out.append('[').append(e.object(0)).append("] Ordin ")
+                       .append(IdGenerator.orderIdOf(e.longValue(0))).append(" ANULAT"));
+
     private final String clientId;
     private final String serverHost;
     private final int serverPort;
     private final Map<String, Instrument> instruments;
     private final Random random;
     private final ScheduledExecutorService scheduler;
+    private final boolean binaryProtocol;
+    private final int inFlightWindow;
+    private final int ordersPerTick;
     private Socket socket;
     private PrintWriter out;
     private BufferedReader in;
     private volatile boolean running = false;
     
+    // Protocol binar: fluxuri și buffere refolosite pentru fiecare ordin
+    private DataInputStream binaryIn;
+    private OutputStream binaryOut;
+    private final ByteBuffer sendBuffer = ByteBuffer.allocate(BinaryProtocol.NEW_ORDER_LENGTH);
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocate(BinaryProtocol.EXECUTION_REPORT_LENGTH);
+    private final BinaryProtocol.NewOrder newOrder = new BinaryProtocol.NewOrder();
+    private final BinaryProtocol.Ack ack = new BinaryProtocol.Ack();
+    private final BinaryProtocol.Reject reject = new BinaryProtocol.Reject();
+    private final BinaryProtocol.ExecutionReport executionReport = new BinaryProtocol.ExecutionReport();
+    private long nextClientOrderId = 1;
+    
+    // Mod pipelined: permise pentru cereri în zbor și thread-ul care citește răspunsurile
+    private volatile Semaphore inFlight;
+    private Thread readerThread;
+    
     /**
      * Constructor pentru bot.
      * 
@@ -33,11 +99,59 @@ public class TradingBot implements Runnable {
      */
     public TradingBot(String clientId, String serverHost, int serverPort,
                      Map<String, Instrument> instruments) {
+        this(clientId, serverHost, serverPort, instruments, false);
+    }
+    
+    /**
+     * Constructor cu alegerea protocolului.
+     * 
+     * @param binaryProtocol true pentru protocolul binar, false pentru cel text
+     */
+    public TradingBot(String clientId, String serverHost, int serverPort,
+                     Map<String, Instrument> instruments, boolean binaryProtocol) {
+        this(clientId, serverHost, serverPort, instruments, binaryProtocol, 1, 1);
+    }
+    
+    /**
+     * Constructor pentru modul pipelined.
+     * 
+     * @param inFlightWindow Numărul maxim de cereri fără răspuns (1 = sincron)
+     * @param ordersPerTick Ordine trimise la fiecare secundă
+     */
+    public TradingBot(String clientId, String serverHost, int serverPort,
+                     Map<String, Instrument> instruments, boolean binaryProtocol,
+                     int inFlightWindow, int ordersPerTick) {
+        this(clientId, serverHost, serverPort, instruments, binaryProtocol, inFlightWindow,
+             ordersPerTick, new Random());
+    }
+    
+    /**
+     * Constructor cu sămânță fixă: botul face aceleași alegeri (instrument,
+     * tip, volum, limită relativă la preț) la fiecare rulare.
+     * 
+     * @param seed Sămânța generatorului aleator
+     */
+    public TradingBot(String clientId, String serverHost, int serverPort,
+                     Map<String, Instrument> instruments, boolean binaryProtocol,
+                     int inFlightWindow, int ordersPerTick, long seed) {
+        this(clientId, serverHost, serverPort, instruments, binaryProtocol, inFlightWindow,
+             ordersPerTick, new Random(seed));
+    }
+    
+    private TradingBot(String clientId, String serverHost, int serverPort,
+                      Map<String, Instrument> instruments, boolean binaryProtocol,
+                      int inFlightWindow, int ordersPerTick, Random random) {
+        if (inFlightWindow < 1 || ordersPerTick < 1) {
+            throw new IllegalArgumentException("Fereastra și numărul de ordine trebuie să fie pozitive");
+        }
         this.clientId = clientId;
         this.serverHost = serverHost;
         this.serverPort = serverPort;
         this.instruments = instruments;
-        this.random = new Random();
+        this.binaryProtocol = binaryProtocol;
+        this.inFlightWindow = inFlightWindow;
+        this.ordersPerTick = ordersPerTick;
+        this.random = random;
         this.scheduler = Executors.newSingleThreadScheduledExecutor();
     }
     
@@ -47,8 +161,22 @@ public class TradingBot implements Runnable {
     private boolean connect() {
         try {
             socket = new Socket(serverHost, serverPort);
-            out = new PrintWriter(socket.getOutputStream(), true);
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            if (binaryProtocol) {
+                socket.setTcpNoDelay(true);
+                binaryIn = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                binaryOut = socket.getOutputStream();
+                // Negociere: octetul MAGIC urmat de LOGON, într-o singură scriere
+                sendBuffer.put(0, BinaryProtocol.MAGIC);
+                new BinaryProtocol.Logon().wrap(sendBuffer, 1).encode(clientId);
+                binaryOut.write(sendBuffer.array(), 0, 1 + BinaryProtocol.LOGON_LENGTH);
+                binaryOut.flush();
+            } else {
+                out = new PrintWriter(socket.getOutputStream(), true);
+                in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            }
+            if (isPipelined()) {
+                startReader();
+            }
             return true;
         } catch (IOException e) {
             System.err.println("Eroare conectare bot " + clientId + ": " + e.getMessage());
@@ -61,9 +189,11 @@ public class TradingBot implements Runnable {
      */
     private void disconnect() {
         try {
+            // Socket-ul întâi: deblochează thread-ul de citire din modul pipelined
+            if (socket != null) socket.close();
             if (in != null) in.close();
             if (out != null) out.close();
-            if (socket != null) socket.close();
+            if (binaryIn != null) binaryIn.close();
         } catch (IOException e) {
             // Ignoră erori la închidere
         }
@@ -81,7 +211,7 @@ public class TradingBot implements Runnable {
         
         running = true;
         scheduler.scheduleAtFixedRate(
-            this::sendRandomOrder,
+            this::sendRandomOrders,
             1,      // întârziere inițială
             1,      // perioadă
             TimeUnit.SECONDS
@@ -106,13 +236,31 @@ public class TradingBot implements Runnable {
         disconnect();
     }
     
+    private boolean isPipelined() {
+        return inFlightWindow > 1;
+    }
+    
+    /**
+     * Trimite ordinele unei secunde (unul singur în modul sincron).
+     */
+    private void sendRandomOrders() {
+        int count = isPipelined() ? ordersPerTick : 1;
+        for (int i = 0; i < count && running; i++) {
+            if (!sendRandomOrder()) {
+                break;
+            }
+        }
+    }
+    
     /**
      * Trimite un ordin aleator către server prin socket.
      * Protocol: SUBMIT|clientId|instrumentId|orderType|volume|limitPrice
+     * 
+     * @return false dacă trimiterea trebuie oprită pentru secunda curentă
      */
-    private void sendRandomOrder() {
+    private boolean sendRandomOrder() {
         if (!running) {
-            return;
+            return false;
         }
         
         try {
@@ -153,39 +301,48 @@ public class TradingBot implements Runnable {
                 }
             }
             
-            System.out.printf("\n[%s] Trimite ordin: %s %s %.2f @ %.2f (curent: %.2f)\n",
-                            clientId, orderType, instrument.getId(), 
-                            volume, limitPrice, currentPrice);
+            // În modul pipelined așteaptă un loc liber în fereastră
+            Semaphore window = inFlight;
+            if (window != null && !window.tryAcquire(1, TimeUnit.SECONDS)) {
+                Diagnostics.emit(WINDOW_FULL, clientId, inFlightWindow);
+                return false;
+            }
+            
+            Diagnostics.emit(SENDING, clientId, orderType, instrument.getId(), volume, limitPrice, currentPrice);
+            
+            if (binaryProtocol) {
+                sendBinaryOrder(instrument, orderType, volume, limitPrice);
+                return true;
+            }
             
             // Construiește mesajul pentru server
             // Format: SUBMIT|clientId|instrumentId|orderType|volume|limitPrice
-            String message = String.format("SUBMIT|%s|%s|%s|%.2f|%.2f",
+            String message = String.format(Locale.ROOT, "SUBMIT|%s|%s|%s|%.2f|%.2f",
                                          clientId, 
                                          instrument.getId(),
                                          orderType.name(),
                                          volume,
                                          limitPrice);
             
+            if (isPipelined()) {
+                // Răspunsul va fi citit de thread-ul de citire, după ID-ul de corelare
+                out.println("REQ|" + (nextClientOrderId++) + "|" + message);
+                return true;
+            }
+            
             // Trimite mesajul către server
             out.println(message);
             
-            // Primește răspunsul (sincron pentru simplitate)
-            String response = in.readLine();
-            
+            // Primește răspunsul (sincron pentru simplitate); rapoartele de
+            // execuție pentru ordinele anterioare pot sosi înaintea lui
+            String response;
+            while ((response = in.readLine()) != null && isCompletion(response)) {
+                printResponse(response);
+            }
             if (response != null) {
-                // Parse răspuns: ACCEPTED|orderId sau REJECTED|reason
-                String[] parts = response.split("\\|", 2);
-                String status = parts[0];
-                String details = parts.length > 1 ? parts[1] : "";
-                
-                if ("ACCEPTED".equals(status)) {
-                    System.out.printf("[%s] ✓ Ordin %s ACCEPTAT\n", clientId, details);
-                } else if ("REJECTED".equals(status)) {
-                    System.out.printf("[%s] ✗ Ordin RESPINS: %s\n", clientId, details);
-                } else if ("ERROR".equals(status)) {
-                    System.err.printf("[%s] Eroare server: %s\n", clientId, details);
-                }
+                printResponse(response);
             }
+            return true;
             
         } catch (IOException e) {
             System.err.println("Eroare comunicare bot " + clientId + ": " + e.getMessage());
@@ -194,8 +351,151 @@ public class TradingBot implements Runnable {
             if (running) {
                 connect();
             }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         } catch (Exception e) {
             System.err.println("Eroare în bot " + clientId + ": " + e.getMessage());
+            return true;
+        }
+    }
+    
+    /**
+     * Mesaj nesolicitat despre un ordin încheiat (EXEC|... sau CANCEL|...).
+     */
+    private static boolean isCompletion(String line) {
+        return line.startsWith("EXEC|") || line.startsWith("CANCEL|");
+    }
+    
+    /**
+     * Afișează un mesaj text: ACCEPTED|orderId, REJECTED|reason, ERROR|mesaj,
+     * EXEC|orderId|price|volume sau CANCEL|orderId.
+     */
+    private void printResponse(String response) {
+        String[] parts = response.split("\\|", 2);
+        String status = parts[0];
+        String details = parts.length > 1 ? parts[1] : "";
+        
+        if ("ACCEPTED".equals(status)) {
+            Diagnostics.emit(ACCEPTED, clientId, details);
+        } else if ("REJECTED".equals(status)) {
+            Diagnostics.emit(REJECTED, clientId, details);
+        } else if ("ERROR".equals(status)) {
+            Diagnostics.emit(SERVER_ERROR, clientId, details);
+        } else if ("EXEC".equals(status)) {
+            Diagnostics.emit(EXECUTED, clientId, details);
+        } else if ("CANCEL".equals(status)) {
+            Diagnostics.emit(CANCELLED, clientId, details);
+        }
+    }
+    
+    /**
+     * Pornește thread-ul care citește răspunsurile în modul pipelined.
+     * Fiecare conexiune are propria fereastră de permise.
+     */
+    private void startReader() {
+        Semaphore window = new Semaphore(inFlightWindow);
+        inFlight = window;
+        readerThread = new Thread(() -> readResponses(window), "TradingBot-" + clientId + "-reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+    
+    private void readResponses(Semaphore window) {
+        try {
+            if (binaryProtocol) {
+                while (true) {
+                    if (handleBinaryMessage(readBinaryMessage()) != 0) {
+                        window.release();
+                    }
+                }
+            }
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("RSP|")) {
+                    // RSP|corrId|răspuns
+                    int end = line.indexOf('|', 4);
+                    printResponse(end > 0 ? line.substring(end + 1) : line);
+                    window.release();
+                } else {
+                    printResponse(line);
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                System.err.println("Eroare citire răspunsuri bot " + clientId + ": " + e.getMessage());
+            }
+        } finally {
+            // Conexiunea s-a închis - deblochează trimiterea până la reconectare
+            window.release(inFlightWindow);
+        }
+    }
+    
+    /**
+     * Trimite ordinul ca mesaj NEW_ORDER și așteaptă ACK/REJECT-ul lui.
+     * Rapoartele de execuție pentru ordine anterioare pot sosi între timp.
+     */
+    private void sendBinaryOrder(Instrument instrument, OrderType orderType,
+                                 double volume, double limitPrice) throws IOException {
+        long clientOrderId = nextClientOrderId++;
+        newOrder.wrap(sendBuffer, 0).encode(
+            orderType.ordinal(),
+            clientOrderId,
+            BinaryProtocol.symbolKey(instrument.getId()),
+            instrument.toPriceTicks(limitPrice),
+            instrument.toVolumeUnits(volume),
+            0);
+        binaryOut.write(sendBuffer.array(), 0, BinaryProtocol.NEW_ORDER_LENGTH);
+        binaryOut.flush();
+        
+        if (isPipelined()) {
+            return;
+        }
+        while (handleBinaryMessage(readBinaryMessage()) != clientOrderId) {
+            // Rapoarte de execuție pentru ordine anterioare
+        }
+    }
+    
+    /**
+     * Afișează un mesaj binar primit.
+     * 
+     * @return clientOrderId-ul la care răspunde un ACK/REJECT, 0 pentru rapoarte de execuție
+     */
+    private long handleBinaryMessage(byte type) {
+        if (type == BinaryProtocol.ACK) {
+            ack.wrap(receiveBuffer, 0);
+            Diagnostics.emit(BINARY_ACCEPTED, clientId, ack.orderNumber());
+            return ack.clientOrderId();
+        } else if (type == BinaryProtocol.REJECT) {
+            reject.wrap(receiveBuffer, 0);
+            Diagnostics.emit(BINARY_REJECTED, clientId, reject.reason());
+            return reject.clientOrderId();
+        } else if (type == BinaryProtocol.EXECUTION_REPORT) {
+            printExecutionReport();
+        }
+        return 0;
+    }
+    
+    private byte readBinaryMessage() throws IOException {
+        byte[] frame = receiveBuffer.array();
+        byte type = binaryIn.readByte();
+        int length = BinaryProtocol.lengthOf(type);
+        if (length < 0 || length > frame.length) {
+            throw new IOException("Mesaj binar necunoscut: " + type);
+        }
+        frame[0] = type;
+        binaryIn.readFully(frame, 1, length - 1);
+        return type;
+    }
+    
+    private void printExecutionReport() {
+        executionReport.wrap(receiveBuffer, 0);
+        if (executionReport.execType() == BinaryProtocol.EXEC_FILLED) {
+            Diagnostics.emit(BINARY_EXECUTED, clientId, executionReport.orderNumber(),
+                             executionReport.priceTicks());
+        } else {
+            Diagnostics.emit(BINARY_CANCELLED, clientId, executionReport.orderNumber());
         }
     }
     
@@ -4,36 +4,51 @@ import java.time.LocalDateTime;
 
 /**
  * Reprezintă execuția unui ordin (pentru logging).
+ * Prețul, volumul și sumele sunt calculate exact, în virgulă fixă.
  */
 public class Execution {
+    // Comision = 0.5% din valoarea tranzacției (50 puncte de bază)
+    public static final long COMMISSION_BPS = 50;
+    private static final long BPS_DIVISOR = 10_000;
+    
     private final String orderId;
-    private final String instrumentId;
+    private final Instrument instrument;
     private final OrderType orderType;
-    private final double volume;
-    private final double executionPrice;
-    private final double commission;
+    private final long volumeUnits;
+    private final long executionPriceTicks;
+    private final long notionalUnits;
+    private final long commissionUnits;
     private final LocalDateTime executionTime;
     
     /**
      * Constructor pentru o nouă execuție.
+     * 
+     * @param executionPriceTicks Prețul de execuție în tick-uri
      */
-    public Execution(Order order, double executionPrice) {
+    public Execution(Order order, long executionPriceTicks) {
         this.orderId = order.getOrderId();
-        this.instrumentId = order.getInstrument().getId();
+        this.instrument = order.getInstrument();
         this.orderType = order.getOrderType();
-        this.volume = order.getVolume();
-        this.executionPrice = executionPrice;
-        // Comision = 0.5% din valoarea tranzacției
-        this.commission = executionPrice * volume * 0.005;
+        this.volumeUnits = order.getVolumeUnits();
+        this.executionPriceTicks = executionPriceTicks;
+        this.notionalUnits = executionPriceTicks * volumeUnits;
+        this.commissionUnits = commissionUnits(notionalUnits);
         this.executionTime = LocalDateTime.now();
     }
     
+    /**
+     * Comisionul pentru un notional dat, rotunjit la cea mai apropiată unitate (half-up).
+     */
+    public static long commissionUnits(long notionalUnits) {
+        return (notionalUnits * COMMISSION_BPS + BPS_DIVISOR / 2) / BPS_DIVISOR;
+    }
+    
     public String getOrderId() {
         return orderId;
     }
     
     public String getInstrumentId() {
-        return instrumentId;
+        return instrument.getId();
     }
     
     public OrderType getOrderType() {
@@ -41,11 +56,11 @@ public class Execution {
     }
     
     public double getVolume() {
-        return volume;
+        return instrument.volumeFromUnits(volumeUnits);
     }
     
     public double getExecutionPrice() {
-        return executionPrice;
+        return instrument.priceFromTicks(executionPriceTicks);
     }
     
     public LocalDateTime getExecutionTime() {
@@ -53,13 +68,35 @@ public class Execution {
     }
     
     public double getCommission() {
-        return commission;
+        return instrument.notionalFromUnits(commissionUnits);
+    }
+    
+    public long getVolumeUnits() {
+        return volumeUnits;
+    }
+    
+    public long getExecutionPriceTicks() {
+        return executionPriceTicks;
+    }
+    
+    /**
+     * Valoarea tranzacției în unități de notional (tick-uri * unități de volum).
+     */
+    public long getNotionalUnits() {
+        return notionalUnits;
+    }
+    
+    /**
+     * Comisionul în unități de notional.
+     */
+    public long getCommissionUnits() {
+        return commissionUnits;
     }
     
     @Override
     public String toString() {
         return String.format("%s | Order: %s | %s | %s | Vol: %.2f | Price: %.2f | Comision: %.2f",
-                           executionTime, orderId, instrumentId, orderType, 
-                           volume, executionPrice, commission);
+                           executionTime, orderId, instrument.getId(), orderType, 
+                           getVolume(), getExecutionPrice(), getCommission());
     }
 }
@@ -2,59 +2,157 @@ package model;
 
 /**
  * Reprezintă un instrument financiar tranzacționabil.
+ *
+ * Prețurile și volumele sunt ținute în virgulă fixă: prețul în tick-uri
+ * (1 / priceScale) și volumul în unități (1 / volumeScale). Valoarea unei
+ * tranzacții (notional) este produsul lor, în unități de
+ * 1 / (priceScale * volumeScale).
  */
 public class Instrument {
+    // Scale implicite: 2 zecimale pentru preț și volum
+    public static final long DEFAULT_PRICE_SCALE = 100;
+    public static final long DEFAULT_VOLUME_SCALE = 100;
+
     private final String id;
-    private volatile double currentPrice;
+    private volatile long currentPriceTicks;
     private final double maxLiquidity;
     private final double volatility;  // sigma
     private final double trend;       // mu
-    
+    private final long priceScale;
+    private final long volumeScale;
+    // Indexul dens atribuit de InstrumentRegistry (-1 = neînregistrat)
+    private int index = -1;
+
     /**
      * Constructor pentru un instrument financiar.
-     * 
+     *
      * @param id Identificatorul unic al instrumentului
      * @param initialPrice Prețul inițial
      * @param maxLiquidity Lichiditatea maximă disponibilă (V_max)
      * @param volatility Volatilitatea (sigma)
      * @param trend Trendul (mu)
      */
-    public Instrument(String id, double initialPrice, double maxLiquidity, 
+    public Instrument(String id, double initialPrice, double maxLiquidity,
                      double volatility, double trend) {
+        this(id, initialPrice, maxLiquidity, volatility, trend,
+             DEFAULT_PRICE_SCALE, DEFAULT_VOLUME_SCALE);
+    }
+
+    /**
+     * Constructor pentru un instrument financiar cu scale proprii.
+     *
+     * @param priceScale Tick-uri de preț per unitate monetară (ex: 100 = cenți)
+     * @param volumeScale Unități de volum per unitate (ex: 100 = 2 zecimale)
+     */
+    public Instrument(String id, double initialPrice, double maxLiquidity,
+                     double volatility, double trend, long priceScale, long volumeScale) {
+        if (priceScale <= 0 || volumeScale <= 0) {
+            throw new IllegalArgumentException("Scale invalide pentru " + id + ": " +
+                                               priceScale + " / " + volumeScale);
+        }
         this.id = id;
-        this.currentPrice = initialPrice;
+        this.priceScale = priceScale;
+        this.volumeScale = volumeScale;
+        this.currentPriceTicks = toPriceTicks(initialPrice);
         this.maxLiquidity = maxLiquidity;
         this.volatility = volatility;
         this.trend = trend;
     }
-    
+
     public String getId() {
         return id;
     }
-    
-    public synchronized double getCurrentPrice() {
-        return currentPrice;
+
+    /**
+     * Indexul dens din InstrumentRegistry (-1 dacă nu e înregistrat).
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Atribuie indexul o singură dată; un instrument nu poate avea indexuri
+     * diferite în registre diferite.
+     */
+    void assignIndex(int index) {
+        if (this.index >= 0 && this.index != index) {
+            throw new IllegalStateException("Instrumentul " + id + " are deja indexul " + this.index);
+        }
+        this.index = index;
+    }
+
+    public double getCurrentPrice() {
+        return priceFromTicks(currentPriceTicks);
+    }
+
+    public void setCurrentPrice(double currentPrice) {
+        this.currentPriceTicks = toPriceTicks(currentPrice);
+    }
+
+    public long getCurrentPriceTicks() {
+        return currentPriceTicks;
     }
-    
-    public synchronized void setCurrentPrice(double currentPrice) {
-        this.currentPrice = currentPrice;
+
+    public void setCurrentPriceTicks(long currentPriceTicks) {
+        this.currentPriceTicks = currentPriceTicks;
     }
-    
+
     public double getMaxLiquidity() {
         return maxLiquidity;
     }
-    
+
+    public long getMaxLiquidityUnits() {
+        return toVolumeUnits(maxLiquidity);
+    }
+
     public double getVolatility() {
         return volatility;
     }
-    
+
     public double getTrend() {
         return trend;
     }
-    
+
+    public long getPriceScale() {
+        return priceScale;
+    }
+
+    public long getVolumeScale() {
+        return volumeScale;
+    }
+
+    /**
+     * Convertește un preț în tick-uri (rotunjire la cel mai apropiat tick).
+     */
+    public long toPriceTicks(double price) {
+        return Math.round(price * priceScale);
+    }
+
+    public double priceFromTicks(long ticks) {
+        return (double) ticks / priceScale;
+    }
+
+    /**
+     * Convertește un volum în unități (rotunjire la cea mai apropiată unitate).
+     */
+    public long toVolumeUnits(double volume) {
+        return Math.round(volume * volumeScale);
+    }
+
+    public double volumeFromUnits(long units) {
+        return (double) units / volumeScale;
+    }
+
+    /**
+     * Convertește un notional (tick-uri * unități) în unități monetare.
+     */
+    public double notionalFromUnits(long notionalUnits) {
+        return (double) notionalUnits / ((double) priceScale * volumeScale);
+    }
+
     @Override
     public String toString() {
-        return String.format("Instrument[%s, price=%.2f, maxLiq=%.2f]", 
-                           id, currentPrice, maxLiquidity);
+        return String.format("Instrument[%s, price=%.2f, maxLiq=%.2f]",
+                           id, getCurrentPrice(), maxLiquidity);
     }
 }
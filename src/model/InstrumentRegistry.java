@@ -0,0 +1,225 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registrul imuabil al instrumentelor, construit o singură dată la pornire.
+ *
+ * Fiecare instrument primește un index dens (0..size-1, în ordinea ID-ului),
+ * disponibil și direct prin Instrument.getIndex(). Structurile per instrument
+ * (lichiditate, P&L, index de declanșare, shard) devin astfel simple tablouri
+ * indexate după acest int, fără map-uri pe calea critică.
+ *
+ * Căutarea după simbol folosește tabele cu adresare deschisă și nu alocă:
+ * după String (hash-ul lui, deja calculat), după octeții ASCII dintr-un
+ * ByteBuffer sau după simbolul codificat ca long din protocolul binar.
+ */
+public final class InstrumentRegistry {
+    private final Instrument[] instruments;
+    private final byte[][] symbolBytes;
+    // Tabele cu adresare deschisă: index + 1 (0 = slot liber)
+    private final int[] symbolTable;
+    private final long[] keyTable;
+    private final int[] keyIndexTable;
+    private final int mask;
+    private final Map<String, Instrument> byId;
+
+    /**
+     * Construiește registrul și atribuie indexurile (sortare după ID).
+     *
+     * @throws IllegalArgumentException pentru ID-uri duplicate sau non-ASCII
+     * @throws IllegalStateException dacă un instrument are deja alt index
+     */
+    public InstrumentRegistry(Collection<Instrument> instruments) {
+        List<Instrument> sorted = new ArrayList<>(instruments);
+        sorted.sort(Comparator.comparing(Instrument::getId));
+
+        int count = sorted.size();
+        this.instruments = sorted.toArray(new Instrument[0]);
+        this.symbolBytes = new byte[count][];
+        int capacity = Integer.highestOneBit(Math.max(2, count) * 2 - 1) << 1;
+        this.mask = capacity - 1;
+        this.symbolTable = new int[capacity];
+        this.keyTable = new long[capacity];
+        this.keyIndexTable = new int[capacity];
+
+        Map<String, Instrument> map = new LinkedHashMap<>(count * 4 / 3 + 1);
+        for (int index = 0; index < count; index++) {
+            Instrument instrument = this.instruments[index];
+            String id = instrument.getId();
+            if (map.put(id, instrument) != null) {
+                throw new IllegalArgumentException("Instrument duplicat: " + id);
+            }
+            symbolBytes[index] = asciiBytes(id);
+            instrument.assignIndex(index);
+            insertSymbol(id.hashCode(), index);
+            if (symbolBytes[index].length > 0 && symbolBytes[index].length <= 8) {
+                insertKey(symbolKey(symbolBytes[index]), index);
+            }
+        }
+        this.byId = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Numărul de instrumente (= dimensiunea tablourilor per instrument).
+     */
+    public int size() {
+        return instruments.length;
+    }
+
+    /**
+     * Instrumentul cu indexul dat.
+     */
+    public Instrument get(int index) {
+        return instruments[index];
+    }
+
+    /**
+     * Instrumentul cu ID-ul dat sau null dacă nu există.
+     */
+    public Instrument get(String symbol) {
+        int index = indexOf(symbol);
+        return index >= 0 ? instruments[index] : null;
+    }
+
+    /**
+     * Indexul instrumentului cu ID-ul dat sau -1.
+     */
+    public int indexOf(String symbol) {
+        for (int slot = spread(symbol.hashCode()); ; slot = (slot + 1) & mask) {
+            int entry = symbolTable[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            if (instruments[entry - 1].getId().equals(symbol)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * Indexul instrumentului al cărui simbol este scris în buffer (octeți
+     * ASCII, poziții absolute) sau -1. Nu construiește String-ul.
+     */
+    public int indexOf(ByteBuffer buffer, int offset, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + (buffer.get(offset + i) & 0xFF);
+        }
+        for (int slot = spread(hash); ; slot = (slot + 1) & mask) {
+            int entry = symbolTable[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            if (matches(symbolBytes[entry - 1], buffer, offset, length)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * Indexul instrumentului după simbolul codificat ca long (vezi
+     * BinaryProtocol.symbolKey) sau -1. Simbolurile mai lungi de 8 caractere
+     * nu sunt adresabile astfel.
+     */
+    public int indexOfSymbolKey(long symbolKey) {
+        if (symbolKey == 0) {
+            return -1;
+        }
+        for (int slot = spread(symbolKey); ; slot = (slot + 1) & mask) {
+            long key = keyTable[slot];
+            if (key == 0) {
+                return -1;
+            }
+            if (key == symbolKey) {
+                return keyIndexTable[slot] - 1;
+            }
+        }
+    }
+
+    /**
+     * Instrumentele în ordinea indexului.
+     */
+    public List<Instrument> instruments() {
+        return Collections.unmodifiableList(Arrays.asList(instruments));
+    }
+
+    /**
+     * Vedere nemodificabilă ID -> instrument, în ordinea indexului.
+     */
+    public Map<String, Instrument> asMap() {
+        return byId;
+    }
+
+    private void insertSymbol(int hash, int index) {
+        int slot = spread(hash);
+        while (symbolTable[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        symbolTable[slot] = index + 1;
+    }
+
+    private void insertKey(long key, int index) {
+        int slot = spread(key);
+        while (keyTable[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        keyTable[slot] = key;
+        keyIndexTable[slot] = index + 1;
+    }
+
+    // Înmulțirea Fibonacci împrăștie și simbolurile care diferă doar prin
+    // câteva cifre (altfel sondarea liniară degenerează în universuri mari)
+    private int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    // Pe toți cei 64 de biți: Long.hashCode ar suprapune octeții simbolului
+    private int spread(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return spread((int) (h ^ (h >>> 32)));
+    }
+
+    private static boolean matches(byte[] symbol, ByteBuffer buffer, int offset, int length) {
+        if (symbol.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (symbol[i] != buffer.get(offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Același hash ca String.hashCode() doar pentru ASCII
+    private static byte[] asciiBytes(String id) {
+        byte[] bytes = new byte[id.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            char c = id.charAt(i);
+            if (c == 0 || c > 127) {
+                throw new IllegalArgumentException("Simbol non-ASCII: " + id);
+            }
+            bytes[i] = (byte) c;
+        }
+        return bytes;
+    }
+
+    // Aceeași codificare ca BinaryProtocol.symbolKey (big-endian, completat cu zero)
+    private static long symbolKey(byte[] bytes) {
+        long key = 0;
+        for (int i = 0; i < 8; i++) {
+            key = (key << 8) | (i < bytes.length ? bytes[i] & 0xFF : 0);
+        }
+        return key;
+    }
+}
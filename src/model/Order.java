@@ -2,20 +2,38 @@ package model;
 
 import java.time.LocalDateTime;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * Reprezintă un ordin de tranzacționare plasat de un client.
+ * Volumul și prețul limită sunt ținute în virgulă fixă, în scalele instrumentului.
+ *
+ * Trecerea din PENDING într-o stare finală se face printr-un CAS pe status:
+ * dintre execuție, expirare și anularea de către client câștigă un singur
+ * apelant, fără lock-uri.
  */
 public class Order {
+    private static final AtomicReferenceFieldUpdater<Order, OrderStatus> STATUS =
+        AtomicReferenceFieldUpdater.newUpdater(Order.class, OrderStatus.class, "status");
+    
     private final String orderId;
+    private final long orderNumber;
+    private final long clientOrderId; // ID-ul dat de client (protocolul binar), 0 dacă lipsește
     private final String clientId;
     private final Instrument instrument;
     private final OrderType orderType;
-    private final double volume;
-    private final double limitPrice;
+    private final long volumeUnits;
+    private final long limitPriceTicks;
     private volatile OrderStatus status;
     private final LocalDateTime timestamp;
+    private final long createdMillis;
+    private final long ttlMillis; // 0 = durata implicită a engine-ului
+    private volatile long expiresAtMillis;
+    private volatile long executionPriceTicks;
+    private volatile RejectReason rejectReason;
+    private volatile long admittedNanos;
     private final CompletableFuture<OrderStatus> resultFuture;
+    private final CompletableFuture<OrderStatus> admissionFuture;
     
     /**
      * Constructor pentru un nou ordin.
@@ -29,21 +47,111 @@ public class Order {
      */
     public Order(String orderId, String clientId, Instrument instrument, 
                 OrderType orderType, double volume, double limitPrice) {
+        this(orderId, clientId, instrument, orderType, volume, limitPrice, 0);
+    }
+    
+    /**
+     * Constructor pentru un nou ordin cu durată de viață proprie.
+     * 
+     * @param ttlMillis Durata de viață în milisecunde (0 = durata implicită a engine-ului)
+     */
+    public Order(String orderId, String clientId, Instrument instrument, 
+                OrderType orderType, double volume, double limitPrice, long ttlMillis) {
+        this(orderId, 0, clientId, instrument, orderType, instrument.toVolumeUnits(volume),
+             instrument.toPriceTicks(limitPrice), ttlMillis, System.currentTimeMillis());
+    }
+    
+    /**
+     * Constructor cu valori deja în virgulă fixă (protocol binar, recuperare din jurnal).
+     */
+    private Order(String orderId, long clientOrderId, String clientId, Instrument instrument,
+                  OrderType orderType, long volumeUnits, long limitPriceTicks, long ttlMillis,
+                  long createdMillis) {
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("ttlMillis negativ: " + ttlMillis);
+        }
         this.orderId = orderId;
+        this.orderNumber = parseOrderNumber(orderId);
+        this.clientOrderId = clientOrderId;
         this.clientId = clientId;
         this.instrument = instrument;
         this.orderType = orderType;
-        this.volume = volume;
-        this.limitPrice = limitPrice;
+        this.volumeUnits = volumeUnits;
+        this.limitPriceTicks = limitPriceTicks;
         this.status = OrderStatus.PENDING;
         this.timestamp = LocalDateTime.now();
+        this.createdMillis = createdMillis;
+        this.ttlMillis = ttlMillis;
         this.resultFuture = new CompletableFuture<>();
+        this.admissionFuture = new CompletableFuture<>();
+    }
+    
+    /**
+     * Reface un ordin pending din jurnal, cu momentele originale de creare și expirare.
+     */
+    public static Order restore(String orderId, String clientId, Instrument instrument,
+                                OrderType orderType, long volumeUnits, long limitPriceTicks,
+                                long createdMillis, long expiresAtMillis) {
+        Order order = new Order(orderId, 0, clientId, instrument, orderType, volumeUnits,
+                                limitPriceTicks, Math.max(0, expiresAtMillis - createdMillis),
+                                createdMillis);
+        order.setExpiresAtMillis(expiresAtMillis);
+        return order;
+    }
+    
+    /**
+     * Creează un ordin nou cu volum și preț deja în virgulă fixă (protocolul binar).
+     *
+     * @param clientOrderId ID-ul atribuit de client, întors în ACK și în rapoartele de execuție
+     */
+    public static Order ofUnits(String orderId, long clientOrderId, String clientId,
+                                Instrument instrument, OrderType orderType, long volumeUnits,
+                                long limitPriceTicks, long ttlMillis) {
+        return ofUnits(orderId, clientOrderId, clientId, instrument, orderType, volumeUnits,
+                       limitPriceTicks, ttlMillis, System.currentTimeMillis());
+    }
+    
+    /**
+     * Creează un ordin cu momentul de creare dat (timp logic, la reluarea unei capturi).
+     */
+    public static Order ofUnits(String orderId, long clientOrderId, String clientId,
+                                Instrument instrument, OrderType orderType, long volumeUnits,
+                                long limitPriceTicks, long ttlMillis, long createdMillis) {
+        return new Order(orderId, clientOrderId, clientId, instrument, orderType, volumeUnits,
+                         limitPriceTicks, ttlMillis, createdMillis);
+    }
+    
+    /**
+     * Extrage partea numerică dintr-un ID de forma "ORD-123" (0 dacă nu există).
+     */
+    private static long parseOrderNumber(String orderId) {
+        int dash = orderId.lastIndexOf('-');
+        long number = 0;
+        for (int i = dash + 1; i < orderId.length(); i++) {
+            char c = orderId.charAt(i);
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
     }
     
     public String getOrderId() {
         return orderId;
     }
     
+    /**
+     * Partea numerică a ID-ului (0 pentru ID-uri fără număr).
+     */
+    public long getOrderNumber() {
+        return orderNumber;
+    }
+    
+    public long getClientOrderId() {
+        return clientOrderId;
+    }
+    
     public String getClientId() {
         return clientId;
     }
@@ -57,11 +165,19 @@ public class Order {
     }
     
     public double getVolume() {
-        return volume;
+        return instrument.volumeFromUnits(volumeUnits);
     }
     
     public double getLimitPrice() {
-        return limitPrice;
+        return instrument.priceFromTicks(limitPriceTicks);
+    }
+    
+    public long getVolumeUnits() {
+        return volumeUnits;
+    }
+    
+    public long getLimitPriceTicks() {
+        return limitPriceTicks;
     }
     
     public OrderStatus getStatus() {
@@ -70,12 +186,65 @@ public class Order {
     
     public void setStatus(OrderStatus status) {
         this.status = status;
+        if (status == OrderStatus.REJECTED) {
+            admissionFuture.complete(status);
+        }
         // Notifică clientul cu statusul final
         if (status != OrderStatus.PENDING) {
             resultFuture.complete(status);
         }
     }
     
+    /**
+     * Respinge ordinul la admitere, cu motivul dat.
+     */
+    public void reject(RejectReason reason) {
+        this.rejectReason = reason;
+        setStatus(OrderStatus.REJECTED);
+    }
+    
+    /**
+     * Motivul respingerii (null dacă ordinul nu a fost respins).
+     */
+    public RejectReason getRejectReason() {
+        return rejectReason;
+    }
+    
+    /**
+     * Trece ordinul din PENDING în starea finală dată (CANCELLED sau EXECUTED).
+     *
+     * @return false dacă ordinul era deja finalizat (alt apelant a câștigat)
+     */
+    public boolean complete(OrderStatus finalStatus) {
+        if (!STATUS.compareAndSet(this, OrderStatus.PENDING, finalStatus)) {
+            return false;
+        }
+        resultFuture.complete(finalStatus);
+        return true;
+    }
+    
+    /**
+     * Prețul de execuție în tick-uri (0 cât timp ordinul nu este executat).
+     */
+    public long getExecutionPriceTicks() {
+        return executionPriceTicks;
+    }
+    
+    /**
+     * Marchează ordinul ca executat la prețul dat, dacă este încă PENDING;
+     * prețul e vizibil înainte ca future-ul de rezultat să fie completat.
+     *
+     * @return false dacă ordinul era deja finalizat
+     */
+    public boolean markExecuted(long priceTicks) {
+        if (!STATUS.compareAndSet(this, OrderStatus.PENDING, OrderStatus.EXECUTED)) {
+            return false;
+        }
+        this.executionPriceTicks = priceTicks;
+        resultFuture.complete(OrderStatus.EXECUTED);
+        return true;
+    }
+    
     public LocalDateTime getTimestamp() {
         return timestamp;
     }
@@ -85,22 +254,64 @@ public class Order {
     }
     
     /**
-     * Verifică dacă ordinul a expirat (peste 10 secunde de la plasare).
+     * Future completat când engine-ul decide admiterea (PENDING sau REJECTED).
+     */
+    public CompletableFuture<OrderStatus> getAdmissionFuture() {
+        return admissionFuture;
+    }
+    
+    /**
+     * Confirmă admiterea ordinului (ACK-ul poate pleca spre client).
+     * Nu modifică statusul - ordinul poate fi deja executat între timp.
+     */
+    public void markAdmitted() {
+        admittedNanos = System.nanoTime();
+        admissionFuture.complete(OrderStatus.PENDING);
+    }
+    
+    /**
+     * Momentul confirmării admiterii (System.nanoTime()), 0 dacă nu a fost admis.
+     */
+    public long getAdmittedNanos() {
+        return admittedNanos;
+    }
+    
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+    
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+    
+    /**
+     * Momentul expirării (epoch millis), stabilit de engine la acceptare.
+     */
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+    
+    public void setExpiresAtMillis(long expiresAtMillis) {
+        this.expiresAtMillis = expiresAtMillis;
+    }
+    
+    /**
+     * Verifică dacă ordinul a expirat la momentul dat.
      */
-    public boolean isExpired() {
-        return LocalDateTime.now().isAfter(timestamp.plusSeconds(10));
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
     }
     
     /**
-     * Verifică dacă prețul curent satisface condiția de execuție.
+     * Verifică dacă prețul curent (în tick-uri) satisface condiția de execuție.
      */
-    public boolean canExecute(double currentPrice) {
+    public boolean canExecute(long currentPriceTicks) {
         if (orderType == OrderType.BUY_LIMIT) {
             // Pentru BUY_LIMIT: execută dacă prețul curent <= preț limită
-            return currentPrice <= limitPrice;
+            return currentPriceTicks <= limitPriceTicks;
         } else {
             // Pentru SELL_LIMIT: execută dacă prețul curent >= preț limită
-            return currentPrice >= limitPrice;
+            return currentPriceTicks >= limitPriceTicks;
         }
     }
     
@@ -108,6 +319,6 @@ public class Order {
     public String toString() {
         return String.format("Order[%s, client=%s, %s, %s, vol=%.2f, limit=%.2f, status=%s]",
                            orderId, clientId, instrument.getId(), orderType, 
-                           volume, limitPrice, status);
+                           getVolume(), getLimitPrice(), status);
     }
 }
@@ -20,7 +20,7 @@ public enum OrderStatus {
     CANCELLED,
     
     /**
-     * Ordinul a fost respins (lichiditate insuficientă)
+     * Ordinul a fost respins la admitere (vezi RejectReason)
      */
     REJECTED
 }
@@ -0,0 +1,26 @@
+package model;
+
+/**
+ * Motivele pentru care engine-ul poate respinge un ordin la admitere.
+ */
+public enum RejectReason {
+    /**
+     * Lichiditatea rămasă a instrumentului nu acoperă volumul ordinului
+     */
+    INSUFFICIENT_LIQUIDITY,
+
+    /**
+     * Volumul deschis al clientului pe instrument ar depăși limita
+     */
+    OPEN_VOLUME_LIMIT,
+
+    /**
+     * Valoarea totală a ordinelor deschise ale clientului ar depăși limita
+     */
+    NOTIONAL_LIMIT,
+
+    /**
+     * Volumul sau prețul limită al ordinului nu sunt pozitive
+     */
+    INVALID_VALUES
+}
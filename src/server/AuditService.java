@@ -1,7 +1,12 @@
 package server;
 
 import model.*;
+import util.BulkPriceSimulator;
+import util.DiagnosticLevel;
+import util.Diagnostics;
 import util.FileLogger;
+import util.LatencyHistogram;
+import util.Metrics;
 import util.PriceSimulator;
 import java.util.concurrent.*;
 import java.util.Map;
@@ -20,13 +25,39 @@ import java.time.format.DateTimeFormatter;
 public class AuditService {
     private static final DateTimeFormatter TIME_FORMAT = 
         DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final LatencyHistogram CYCLE_LATENCY = Metrics.histogram("audit.cycle");
+    private static final double PRICE_DT_SECONDS = 2.0; // = perioada auditului
+    // De la acest număr de instrumente prețurile se simulează pe coloane, în paralel
+    static final int BULK_SIMULATION_THRESHOLD = 1_000;
+    private static final int MAX_PRINTED_PRICES = 20;
+    // Raportul ciclului, randat dintr-o bucată de thread-ul de diagnostic
+    private static final Diagnostics.Type CYCLE_REPORT = Diagnostics.type("audit.cycle", DiagnosticLevel.INFO,
+        (out, e) -> out.append(e.object(0)));
+    private static final Diagnostics.Type INTEGRITY_ERROR = Diagnostics.type("audit.integrity",
+        DiagnosticLevel.ERROR, (out, e) -> out.append("✗ EROARE DE INTEGRITATE!"));
+    private static final Diagnostics.Type DRIFT_SUMMARY = Diagnostics.type("audit.drift",
+        DiagnosticLevel.ERROR, (out, e) -> out.append("✗ Abateri de lichiditate: ").append(e.longValue(0))
+                                              .append(" instrumente (").append(e.longValue(1))
+                                              .append(" raportate de la pornire)"));
     
     private final TradingEngine engine;
     private final LiquidityManager liquidityManager;
     private final Map<String, Instrument> instruments;
-    private final PriceSimulator priceSimulator;
+    private PriceSimulator priceSimulator;
+    private BulkPriceSimulator bulkSimulator;
+    private boolean seeded;
+    private long priceSeed;
+    private boolean simulatePrices = true;
     private final ScheduledExecutorService scheduler;
     
+    // Raportul ciclului curent (doar thread-ul de audit)
+    private final StringBuilder report = new StringBuilder();
+    
+    // Contoarele engine-ului la ciclul anterior
+    private long lastExecutedCount;
+    private long lastCancelledCount;
+    private long lastReconcileChecks;
+    
     /**
      * Constructor pentru serviciul de audit.
      */
@@ -35,10 +66,28 @@ public class AuditService {
         this.engine = engine;
         this.liquidityManager = liquidityManager;
         this.instruments = instruments;
-        this.priceSimulator = new PriceSimulator(2.0); // dt = 2 secunde
+        this.priceSimulator = new PriceSimulator(PRICE_DT_SECONDS);
         this.scheduler = Executors.newSingleThreadScheduledExecutor();
     }
     
+    /**
+     * Folosește o sămânță fixă pentru simularea prețurilor. Trebuie apelat înainte de start().
+     */
+    public void setPriceSeed(long seed) {
+        this.priceSimulator = new PriceSimulator(PRICE_DT_SECONDS, seed);
+        this.seeded = true;
+        this.priceSeed = seed;
+    }
+    
+    /**
+     * Dezactivează simularea prețurilor în ciclul de audit, când prețurile sunt
+     * avansate de PriceTickEngine. Auditul doar jurnalizează și afișează
+     * prețurile curente. Trebuie apelat înainte de start().
+     */
+    public void setSimulatePrices(boolean simulatePrices) {
+        this.simulatePrices = simulatePrices;
+    }
+    
     /**
      * Pornește serviciul de audit (rulează la fiecare 2 secunde).
      */
@@ -72,9 +121,10 @@ public class AuditService {
      * Execută ciclul de audit.
      */
     private void runAudit() {
+        long start = System.nanoTime();
+        report.setLength(0);
         try {
-            System.out.println("\n--- AUDIT CYCLE: " + 
-                             LocalDateTime.now().format(TIME_FORMAT) + " ---");
+            line("\n--- AUDIT CYCLE: " + LocalDateTime.now().format(TIME_FORMAT) + " ---");
             
             // 1. Actualizează prețurile
             updatePrices();
@@ -85,29 +135,50 @@ public class AuditService {
             // 3. Verifică integritatea
             checkIntegrity();
             
-            // 4. Calculează profitul
-            calculateProfit();
+            // 4. Publică snapshot-ul de profit (incremental) și îl afișează
+            ProfitAnalytics.Snapshot profit = engine.publishAnalytics();
+            printProfit(profit);
             
-            // 5. Scrie log de audit
-            writeAuditLog();
+            // 5. Scrie log de audit (același snapshot)
+            writeAuditLog(profit);
             
+            // Mesajele ordinelor din ciclu nu se intercalează în raport
+            Diagnostics.emit(CYCLE_REPORT, report.toString());
         } catch (Exception e) {
             System.err.println("Eroare în audit cycle: " + e.getMessage());
             e.printStackTrace();
         }
+        CYCLE_LATENCY.recordSince(start);
     }
     
     /**
      * Actualizează prețurile tuturor instrumentelor.
      */
     private void updatePrices() {
-        priceSimulator.updateAllPrices(instruments.values());
+        if (!simulatePrices) {
+            // Prețurile sunt avansate de PriceTickEngine
+        } else if (instruments.size() >= BULK_SIMULATION_THRESHOLD) {
+            if (bulkSimulator == null) {
+                // Creat la primul ciclu, după ce prețurile au fost refăcute din jurnal
+                List<Instrument> all = engine.getRegistry().instruments();
+                bulkSimulator = seeded
+                    ? new BulkPriceSimulator(all, PRICE_DT_SECONDS, priceSeed)
+                    : new BulkPriceSimulator(all, PRICE_DT_SECONDS);
+            }
+            bulkSimulator.updateAllPrices();
+        } else {
+            priceSimulator.updateAllPrices(instruments.values());
+        }
+        engine.journalPrices();
         
-        System.out.println("Prețuri actualizate:");
+        line(simulatePrices ? "Prețuri actualizate:" : "Prețuri curente:");
+        int printed = 0;
         for (Instrument instrument : instruments.values()) {
-            System.out.printf("  %s: %.2f\n", 
-                            instrument.getId(), 
-                            instrument.getCurrentPrice());
+            if (printed++ == MAX_PRINTED_PRICES) {
+                line("  ... încă " + (instruments.size() - MAX_PRINTED_PRICES) + " instrumente");
+                break;
+            }
+            line("  %s: %.2f", instrument.getId(), instrument.getCurrentPrice());
         }
     }
     
@@ -115,84 +186,97 @@ public class AuditService {
      * Procesează ordinele pending (verifică expirare și condiții de execuție).
      */
     private void processOrders() {
-        List<Order> pending = engine.getPendingOrders();
-        int executed = 0;
-        int cancelled = 0;
+        // Expirare (sloturile scadente din roata de timp) și execuție (doar
+        // ordinele atinse de prețul nou). În modul SHARDED rulează pe shard-uri.
+        engine.processPendingOrders(System.currentTimeMillis());
         
-        for (Order order : pending) {
-            if (order.getStatus() != OrderStatus.PENDING) {
-                continue;
-            }
-            
-            // Verifică expirare
-            if (order.isExpired()) {
-                engine.cancelOrder(order);
-                engine.removeFromPending(order);
-                cancelled++;
-                continue;
-            }
-            
-            // Verifică condiție de execuție
-            double currentPrice = order.getInstrument().getCurrentPrice();
-            if (order.canExecute(currentPrice)) {
-                engine.executeOrder(order);
-                engine.removeFromPending(order);
-                executed++;
-            }
-        }
+        long executedTotal = engine.getExecutedCount();
+        long cancelledTotal = engine.getCancelledCount();
+        long executed = executedTotal - lastExecutedCount;
+        long cancelled = cancelledTotal - lastCancelledCount;
+        lastExecutedCount = executedTotal;
+        lastCancelledCount = cancelledTotal;
+        
+        line("Procesare: %d executate, %d anulate, %d rămase",
+             executed, cancelled, engine.getPendingCount());
         
-        System.out.printf("Procesare: %d executate, %d anulate, %d rămase\n",
-                        executed, cancelled, engine.getPendingOrders().size());
+        OrderStore store = engine.getOrderStore();
+        line("Ordine în memorie: %d active, %d arhivate (%d eliminate)",
+             store.getActiveCount(), store.getArchivedCount(), store.getEvictedCount());
+        
+        RiskManager risk = engine.getRiskManager();
+        risk.evictIdleAccounts();
+        line("Respinse de limitele clienților: %d volum, %d notional (%d conturi, %d inactive eliminate)",
+             risk.getVolumeRejections(), risk.getNotionalRejections(),
+             risk.getAccountCount(), risk.getEvictedAccounts());
     }
     
     /**
-     * Verifică integritatea volumelor (nicio depășire V_max).
+     * Verifică integritatea volumelor: raportează starea reconcilierii
+     * continue sau, dacă aceasta nu rulează, face o verificare completă.
      */
     private void checkIntegrity() {
-        boolean integrity = liquidityManager.checkIntegrity(instruments);
+        LiquidityReconciler reconciler = engine.getLiquidityReconciler();
+        if (reconciler != null) {
+            long checks = reconciler.getCheckCount();
+            int drifting = reconciler.getDriftingInstruments();
+            if (drifting == 0) {
+                line("✓ Integritate verificată - OK (%d reconcilieri continue)", checks - lastReconcileChecks);
+            } else {
+                Diagnostics.emit(DRIFT_SUMMARY, null, drifting, reconciler.getDriftCount());
+            }
+            lastReconcileChecks = checks;
+            return;
+        }
+        boolean integrity = liquidityManager.checkIntegrity();
         if (integrity) {
-            System.out.println("✓ Integritate verificată - OK");
+            line("✓ Integritate verificată - OK");
         } else {
-            System.err.println("✗ EROARE DE INTEGRITATE!");
+            Diagnostics.emit(INTEGRITY_ERROR, null);
         }
     }
     
     /**
-     * Calculează și afișează profitul per instrument.
+     * Afișează profitul per instrument din snapshot (fără recalculare).
      */
-    private void calculateProfit() {
-        System.out.println("Comisioane per Instrument:");
-        Map<String, Double> commissions = engine.getProfitPerInstrument();
-        double totalCommission = 0.0;
-        
-        for (Map.Entry<String, Double> entry : commissions.entrySet()) {
-            double commission = entry.getValue();
-            totalCommission += commission;
-            System.out.printf("  %s: %.2f\n", entry.getKey(), commission);
+    private void printProfit(ProfitAnalytics.Snapshot profit) {
+        int shown = Math.min(profit.getInstrumentCount(), MAX_PRINTED_PRICES);
+        line("Comisioane per Instrument:");
+        for (int i = 0; i < shown; i++) {
+            line("  %s: %.2f", profit.getInstrument(i).getId(), profit.getCommission(i));
         }
-        System.out.printf("Total Comisioane: %.2f\n", totalCommission);
+        line("Total Comisioane: %.2f", profit.getTotalCommission());
         
-        System.out.println("\nP&L per Instrument (Încasări - Plăți):");
-        Map<String, Double> pnl = engine.getPnLPerInstrument();
-        double totalPnL = 0.0;
-        
-        for (Map.Entry<String, Double> entry : pnl.entrySet()) {
-            double value = entry.getValue();
-            totalPnL += value;
+        line("\nP&L per Instrument (Încasări - Plăți):");
+        for (int i = 0; i < shown; i++) {
+            double value = profit.getPnL(i);
             String status = value >= 0 ? "Profit" : "Pierdere";
-            System.out.printf("  %s: %.2f (%s)\n", entry.getKey(), value, status);
+            line("  %s: %.2f (%s)", profit.getInstrument(i).getId(), value, status);
         }
-        System.out.printf("Total P&L: %.2f\n", totalPnL);
+        line("Total P&L: %.2f", profit.getTotalPnL());
         
-        double netProfit = totalCommission + totalPnL;
-        System.out.printf("\n✅ PROFIT NET: %.2f (Comisioane: %.2f + P&L: %.2f)\n", 
-                         netProfit, totalCommission, totalPnL);
+        line("\n✅ PROFIT NET: %.2f (Comisioane: %.2f + P&L: %.2f)", 
+             profit.getNetProfit(), profit.getTotalCommission(), profit.getTotalPnL());
+    }
+    
+    /**
+     * Adaugă o linie la raportul ciclului.
+     */
+    private void line(String text) {
+        if (report.length() > 0) {
+            report.append(System.lineSeparator());
+        }
+        report.append(text);
+    }
+    
+    private void line(String format, Object... args) {
+        line(String.format(format, args));
     }
     
     /**
      * Scrie log-ul de audit în fișier.
      */
-    private void writeAuditLog() {
+    private void writeAuditLog(ProfitAnalytics.Snapshot profit) {
         StringBuilder log = new StringBuilder();
         log.append("\n=== AUDIT ").append(LocalDateTime.now().format(TIME_FORMAT)).append(" ===\n");
         
@@ -215,30 +299,21 @@ public class AuditService {
         }
         
         // Comisioane per instrument
-        log.append("\nCOMISIOANE PER INSTRUMENT:\n");
-        Map<String, Double> commissions = engine.getProfitPerInstrument();
-        double totalCommission = 0.0;
-        for (Map.Entry<String, Double> entry : commissions.entrySet()) {
-            double commission = entry.getValue();
-            totalCommission += commission;
-            log.append(String.format("  %s: %.2f\n", entry.getKey(), commission));
+        log.append("\nCOMISIOANE PER INSTRUMENT (snapshot v").append(profit.getVersion()).append("):\n");
+        for (int i = 0; i < profit.getInstrumentCount(); i++) {
+            log.append(String.format("  %s: %.2f\n", profit.getInstrument(i).getId(), profit.getCommission(i)));
         }
-        log.append(String.format("TOTAL COMISIOANE: %.2f\n", totalCommission));
+        log.append(String.format("TOTAL COMISIOANE: %.2f\n", profit.getTotalCommission()));
         
         // P&L per instrument
         log.append("\nP&L PER INSTRUMENT (Incăsări - Plăți):\n");
-        Map<String, Double> pnl = engine.getPnLPerInstrument();
-        double totalPnL = 0.0;
-        for (Map.Entry<String, Double> entry : pnl.entrySet()) {
-            double value = entry.getValue();
-            totalPnL += value;
+        for (int i = 0; i < profit.getInstrumentCount(); i++) {
+            double value = profit.getPnL(i);
             String status = value >= 0 ? "Profit" : "Pierdere";
-            log.append(String.format("  %s: %.2f (%s)\n", entry.getKey(), value, status));
+            log.append(String.format("  %s: %.2f (%s)\n", profit.getInstrument(i).getId(), value, status));
         }
-        log.append(String.format("TOTAL P&L: %.2f\n", totalPnL));
-        
-        double netProfit = totalCommission + totalPnL;
-        log.append(String.format("PROFIT NET: %.2f\n", netProfit));
+        log.append(String.format("TOTAL P&L: %.2f\n", profit.getTotalPnL()));
+        log.append(String.format("PROFIT NET: %.2f\n", profit.getNetProfit()));
         
         // Ordine pending
         List<Order> pending = engine.getPendingOrders();
@@ -0,0 +1,17 @@
+package server;
+
+/**
+ * Modurile de funcționare ale motorului de tranzacționare.
+ */
+public enum EngineMode {
+    /**
+     * Ordinele sunt admise pe thread-ul clientului și procesate de thread-ul de audit
+     */
+    SHARED,
+
+    /**
+     * Instrumentele sunt împărțite pe N shard-uri; fiecare shard are un singur
+     * thread care scrie ordinele, lichiditatea și P&L-ul instrumentelor sale
+     */
+    SHARDED
+}
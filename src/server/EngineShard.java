@@ -0,0 +1,191 @@
+package server;
+
+import model.Instrument;
+import model.Order;
+import util.Backoff;
+import util.RingBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Partiție a motorului de tranzacționare (mod SHARDED).
+ *
+ * Fiecare shard deține un subset de instrumente și are un singur thread care
+ * scrie starea acestora: admiterea ordinelor, execuția, expirarea și P&L-ul.
+ * Ordinele sosesc printr-un RingBuffer fără lock-uri; cererile de execuție și
+ * expirare vin ca steaguri atomice, deci calea critică nu folosește lock-uri.
+ */
+class EngineShard implements Runnable {
+    private static final int INBOX_CAPACITY = 1 << 16;
+    private static final long IDLE_PARK_NANOS = 1_000_000; // 1 ms
+
+    private final int shardId;
+    private final TradingEngine engine;
+    private final Instrument[] instruments;
+    // Indexul din registru -> slot local (-1 = instrumentul aparține altui shard)
+    private final int[] slotByIndex;
+    private final RingBuffer<Order> inbox;
+    private final AtomicIntegerArray matchRequests;
+    private final AtomicLong expiryRequest;
+    private final ExpiryWheel expiryWheel;
+    private final TradingEngine.ExpiryBatch expiryBatch;
+    private final List<Order> matchScratch;
+
+    private volatile boolean matchPending;
+    private volatile boolean running;
+    private volatile boolean parked;
+    private volatile Thread thread;
+    private long lastExpiry;
+
+    EngineShard(int shardId, TradingEngine engine, List<Instrument> instruments,
+                int registrySize, ExpiryWheel expiryWheel) {
+        this.shardId = shardId;
+        this.engine = engine;
+        this.instruments = instruments.toArray(new Instrument[0]);
+        this.slotByIndex = new int[registrySize];
+        Arrays.fill(slotByIndex, -1);
+        for (int i = 0; i < this.instruments.length; i++) {
+            slotByIndex[this.instruments[i].getIndex()] = i;
+        }
+        this.inbox = new RingBuffer<>(INBOX_CAPACITY);
+        this.matchRequests = new AtomicIntegerArray(this.instruments.length);
+        this.expiryRequest = new AtomicLong(Long.MIN_VALUE);
+        this.expiryWheel = expiryWheel;
+        this.expiryBatch = new TradingEngine.ExpiryBatch(registrySize);
+        this.matchScratch = new ArrayList<>();
+        this.lastExpiry = Long.MIN_VALUE;
+        this.running = true;
+    }
+
+    /**
+     * Trimite un ordin spre admitere. Dacă inbox-ul e plin, producătorul
+     * așteaptă cu Backoff (backpressure) până se eliberează un slot.
+     */
+    void submit(Order order) {
+        int attempt = 0;
+        while (!inbox.offer(order)) {
+            wake();
+            Backoff.pause(attempt++);
+        }
+        wake();
+    }
+
+    /**
+     * Programează expirarea unui ordin refăcut din jurnal (înainte de pornire).
+     */
+    void scheduleExpiry(Order order) {
+        expiryWheel.schedule(order);
+    }
+
+    /**
+     * Cere evaluarea ordinelor unui instrument la prețul curent.
+     */
+    void requestMatch(Instrument instrument) {
+        int slot = slotByIndex[instrument.getIndex()];
+        if (slot >= 0) {
+            matchRequests.set(slot, 1);
+            matchPending = true;
+            wake();
+        }
+    }
+
+    /**
+     * Cere evaluarea tuturor instrumentelor shard-ului.
+     */
+    void requestMatchAll() {
+        for (int i = 0; i < instruments.length; i++) {
+            matchRequests.set(i, 1);
+        }
+        matchPending = true;
+        wake();
+    }
+
+    /**
+     * Cere expirarea ordinelor scadente până la momentul dat.
+     */
+    void requestExpiry(long nowMillis) {
+        expiryRequest.accumulateAndGet(nowMillis, Math::max);
+        wake();
+    }
+
+    /**
+     * Oprește bucla după ce inbox-ul a fost golit.
+     */
+    void stop() {
+        running = false;
+        wake();
+    }
+
+    int getShardId() {
+        return shardId;
+    }
+
+    int getQueueDepth() {
+        return inbox.size();
+    }
+
+    @Override
+    public void run() {
+        thread = Thread.currentThread();
+        Thread.currentThread().setName("EngineShard-" + shardId);
+
+        while (running || !inbox.isEmpty()) {
+            if (!doWork()) {
+                idle();
+            }
+        }
+    }
+
+    private boolean doWork() {
+        boolean worked = false;
+
+        Order order;
+        while ((order = inbox.poll()) != null) {
+            engine.admitOrder(order, expiryWheel);
+            worked = true;
+        }
+
+        long expiry = expiryRequest.get();
+        if (expiry > lastExpiry) {
+            lastExpiry = expiry;
+            engine.expireDueOrders(expiryWheel, expiryBatch, expiry);
+            worked = true;
+        }
+
+        if (matchPending) {
+            matchPending = false;
+            for (int i = 0; i < instruments.length; i++) {
+                if (matchRequests.getAndSet(i, 0) == 1) {
+                    engine.matchInstrument(instruments[i], matchScratch);
+                }
+            }
+            worked = true;
+        }
+
+        return worked;
+    }
+
+    private boolean hasWork() {
+        return !inbox.isEmpty() || matchPending || expiryRequest.get() > lastExpiry;
+    }
+
+    private void idle() {
+        parked = true;
+        // Verificare după setarea steagului: un producător care publică acum ne va trezi
+        if (running && !hasWork()) {
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+        parked = false;
+    }
+
+    private void wake() {
+        Thread t = thread;
+        if (parked && t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package server;
+
+import model.Order;
+import model.OrderStatus;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Roată de timp ierarhică (2 niveluri) pentru expirarea ordinelor.
+ *
+ * Ordinele sunt grupate în sloturi după termenul de expirare, așa că un pas de
+ * avans vizitează doar sloturile ajunse la scadență - costul este O(expirate),
+ * nu O(pending).
+ *
+ * Nivelul 0 are 512 sloturi de câte un tick, nivelul 1 are 512 sloturi de câte
+ * 512 tick-uri. Termenele mai îndepărtate stau într-o listă de depășire care
+ * se redistribuie la fiecare rotație a nivelului 0.
+ *
+ * Programarea este thread-safe (ordinele intră într-o coadă de intrare);
+ * avansarea trebuie apelată de un singur thread.
+ */
+public class ExpiryWheel {
+    private static final int WHEEL_BITS = 9;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    // Ultimul slot de pe nivelul 1 nu e folosit ca să nu se suprapună cu blocul curent
+    private static final long LEVEL1_SPAN = (long) (WHEEL_SIZE - 1) * WHEEL_SIZE;
+
+    private final long tickMillis;
+    private final Queue<Order> inbox;
+    private final List<ArrayDeque<Order>> level0;
+    private final List<ArrayDeque<Order>> level1;
+    private final List<Order> overflow;
+    private long currentTick;
+
+    /**
+     * @param tickMillis Rezoluția roții în milisecunde
+     * @param startMillis Momentul de pornire al roții
+     */
+    public ExpiryWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis trebuie să fie pozitiv: " + tickMillis);
+        }
+        this.tickMillis = tickMillis;
+        this.inbox = new ConcurrentLinkedQueue<>();
+        this.level0 = newLevel();
+        this.level1 = newLevel();
+        this.overflow = new ArrayList<>();
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    private static List<ArrayDeque<Order>> newLevel() {
+        List<ArrayDeque<Order>> level = new ArrayList<>(WHEEL_SIZE);
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            level.add(new ArrayDeque<>());
+        }
+        return level;
+    }
+
+    /**
+     * Programează expirarea unui ordin (termenul este order.getExpiresAtMillis()).
+     * Poate fi apelat din orice thread.
+     */
+    public void schedule(Order order) {
+        inbox.offer(order);
+    }
+
+    /**
+     * Avansează roata până la momentul dat și colectează ordinele scadente.
+     * Ordinele care nu mai sunt PENDING (executate între timp) sunt ignorate.
+     *
+     * @param nowMillis Momentul curent
+     * @param expired Lista în care se adaugă ordinele expirate
+     */
+    public void advance(long nowMillis, List<Order> expired) {
+        Order order;
+        while ((order = inbox.poll()) != null) {
+            place(order, expired);
+        }
+
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            if ((currentTick & WHEEL_MASK) == 0) {
+                cascade(expired);
+            }
+            fire(level0.get((int) (currentTick & WHEEL_MASK)), expired);
+        }
+    }
+
+    /**
+     * Mută blocul următor de pe nivelul 1 (și lista de depășire) pe nivelul 0.
+     */
+    private void cascade(List<Order> expired) {
+        ArrayDeque<Order> slot = level1.get((int) ((currentTick >>> WHEEL_BITS) & WHEEL_MASK));
+        Order order;
+        while ((order = slot.poll()) != null) {
+            place(order, expired);
+        }
+
+        if (!overflow.isEmpty()) {
+            List<Order> pending = new ArrayList<>(overflow);
+            overflow.clear();
+            for (Order o : pending) {
+                place(o, expired);
+            }
+        }
+    }
+
+    private void fire(ArrayDeque<Order> slot, List<Order> expired) {
+        Order order;
+        while ((order = slot.poll()) != null) {
+            if (order.getStatus() == OrderStatus.PENDING) {
+                expired.add(order);
+            }
+        }
+    }
+
+    private void place(Order order, List<Order> expired) {
+        if (order.getStatus() != OrderStatus.PENDING) {
+            return;
+        }
+
+        // Rotunjire în sus: un ordin nu expiră niciodată înainte de termen
+        long deadlineTick = (order.getExpiresAtMillis() + tickMillis - 1) / tickMillis;
+        long delta = deadlineTick - currentTick;
+
+        if (delta <= 0) {
+            expired.add(order);
+        } else if (delta < WHEEL_SIZE) {
+            level0.get((int) (deadlineTick & WHEEL_MASK)).add(order);
+        } else if (delta < LEVEL1_SPAN) {
+            level1.get((int) ((deadlineTick >>> WHEEL_BITS) & WHEEL_MASK)).add(order);
+        } else {
+            overflow.add(order);
+        }
+    }
+}
@@ -0,0 +1,656 @@
+package server;
+
+import model.Order;
+import model.OrderType;
+import util.Backoff;
+import util.Metrics;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32C;
+
+/**
+ * Jurnal binar write-ahead cu înregistrări de lungime fixă (128 bytes),
+ * scris în segmente de fișiere mapate în memorie.
+ *
+ * Producătorii (thread-urile clienților, shard-urile, auditul) își rezervă
+ * un slot dintr-un inel de înregistrări prealocate, îl completează pe loc și
+ * îl publică; un singur thread de scriere le numerotează, le copiază în
+ * segmentul curent, eliberează slotul și aplică politica de durabilitate:
+ * - PER_RECORD: force() după fiecare înregistrare
+ * - GROUP_COMMIT: un singur force() pentru tot lotul extras din coadă
+ * - ASYNC: force() periodic
+ * Admiterea unui ordin (ACK-ul) este confirmată de thread-ul de scriere după
+ * ce înregistrarea ACCEPT a devenit durabilă conform politicii.
+ *
+ * Când inelul este plin, producătorul așteaptă un slot liber: câteva
+ * încercări active, apoi yield, apoi park cu pauză crescătoare (Backoff). Înregistrările nu se pierd niciodată; fiecare așteptare
+ * este numărată (journal.full).
+ *
+ * Thread-ul de scriere ține și o stare derivată din jurnal (JournalState) din
+ * care scrie periodic un snapshot; segmentele acoperite de snapshot se șterg
+ * (cele care nu se pot șterge încă, fiind mapate, la un snapshot ulterior).
+ * La pornire, open() încarcă snapshot-ul și reaplică înregistrările de după el.
+ */
+public class Journal implements AutoCloseable {
+    /**
+     * Politica de durabilitate a jurnalului.
+     */
+    public enum Durability {
+        PER_RECORD,
+        GROUP_COMMIT,
+        ASYNC
+    }
+
+    // Tipuri de înregistrări
+    public static final byte ACCEPT = 1;
+    public static final byte EXECUTE = 2;
+    public static final byte CANCEL = 3;
+    public static final byte PRICE = 4;
+
+    static final int RECORD_SIZE = 128;
+    private static final int SYMBOL_LENGTH = 16;
+    private static final int CLIENT_LENGTH = 24;
+    private static final int ORDER_ID_LENGTH = 24;
+    private static final int CHECKSUM_OFFSET = RECORD_SIZE - 4;
+    // Lungimea maximă a identificatorilor (primul octet din câmp ține lungimea)
+    static final int MAX_SYMBOL_LENGTH = SYMBOL_LENGTH - 1;
+    static final int MAX_CLIENT_ID_LENGTH = CLIENT_LENGTH - 1;
+    static final int MAX_ORDER_ID_LENGTH = ORDER_ID_LENGTH - 1;
+
+    private static final int DEFAULT_RECORDS_PER_SEGMENT = 1 << 19; // 64 MB
+    private static final long DEFAULT_SNAPSHOT_EVERY_RECORDS = 1_000_000;
+    private static final long ASYNC_FORCE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final int QUEUE_CAPACITY = 1 << 16;
+    private static final LongAdder QUEUE_FULL = Metrics.counter("journal.full");
+    private static final LongAdder RETIRED_SEGMENTS_KEPT = Metrics.counter("journal.segment_delete_deferred");
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+
+    /**
+     * O înregistrare din jurnal (folosită atât la scriere cât și la citire).
+     * Înregistrările scrise sunt sloturi refolosite ale inelului.
+     */
+    public static final class Record {
+        public long sequence;
+        public long timeMillis;
+        public byte type;
+        public OrderType orderType;
+        public long priceTicks;
+        public long volumeUnits;
+        public long createdMillis;
+        public long expiresAtMillis;
+        public String symbol;
+        public String clientId;
+        public String orderId;
+
+        // Ordinul a cărui admitere se confirmă după scriere (doar ACCEPT)
+        private Order admittedOrder;
+
+        private void clear() {
+            priceTicks = 0;
+            createdMillis = 0;
+            expiresAtMillis = 0;
+            orderType = null;
+            clientId = null;
+            orderId = null;
+            admittedOrder = null;
+        }
+    }
+
+    private final Path directory;
+    private final Durability durability;
+    private final int recordsPerSegment;
+    private final long snapshotEveryRecords;
+    private final JournalState state;
+    // Inelul de sloturi: claimed = următoarea poziție rezervată de producători,
+    // consumed = prima poziție încă neeliberată de thread-ul de scriere
+    private final Record[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong claimed;
+    private volatile long consumed;
+
+    // Starea thread-ului de scriere
+    private final byte[] scratch;
+    private final ByteBuffer scratchBuffer;
+    private final CRC32C crc;
+    private final List<Order> admitted;
+    private MappedByteBuffer segment;
+    private long segmentIndex;
+    private int dirtyFrom;
+    private int dirtyTo;
+    private long lastSequence;
+    private long lastForceNanos;
+
+    private Thread writerThread;
+    private volatile boolean running;
+    private volatile boolean parked;
+    private volatile boolean failed;
+
+    private Journal(Path directory, Durability durability, int recordsPerSegment,
+                    long snapshotEveryRecords) {
+        this.directory = directory;
+        this.durability = durability;
+        this.recordsPerSegment = recordsPerSegment;
+        this.snapshotEveryRecords = snapshotEveryRecords;
+        this.state = new JournalState();
+        this.slots = new Record[QUEUE_CAPACITY];
+        for (int i = 0; i < QUEUE_CAPACITY; i++) {
+            slots[i] = new Record();
+        }
+        this.published = new AtomicLongArray(QUEUE_CAPACITY);
+        this.mask = QUEUE_CAPACITY - 1;
+        this.claimed = new AtomicLong();
+        this.scratch = new byte[RECORD_SIZE];
+        this.scratchBuffer = ByteBuffer.wrap(scratch);
+        this.crc = new CRC32C();
+        this.admitted = new ArrayList<>();
+        this.segmentIndex = -1;
+    }
+
+    /**
+     * Deschide (sau creează) jurnalul din director și reface starea din
+     * snapshot + înregistrările de după el. Scrierea pornește cu start().
+     */
+    public static Journal open(Path directory, Durability durability) throws IOException {
+        return open(directory, durability, DEFAULT_RECORDS_PER_SEGMENT, DEFAULT_SNAPSHOT_EVERY_RECORDS);
+    }
+
+    public static Journal open(Path directory, Durability durability, int recordsPerSegment,
+                               long snapshotEveryRecords) throws IOException {
+        Files.createDirectories(directory);
+        Journal journal = new Journal(directory, durability, recordsPerSegment, snapshotEveryRecords);
+        journal.recover();
+        return journal;
+    }
+
+    /**
+     * Starea refăcută la deschidere. Poate fi citită doar înainte de start().
+     */
+    public JournalState getState() {
+        return state;
+    }
+
+    /**
+     * Înregistrări care așteaptă thread-ul jurnalului.
+     */
+    public int getQueueDepth() {
+        return (int) Math.max(0, claimed.get() - consumed);
+    }
+    
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Pornește thread-ul de scriere.
+     */
+    public synchronized void start() {
+        if (writerThread != null) {
+            return;
+        }
+        running = true;
+        lastForceNanos = System.nanoTime();
+        writerThread = new Thread(this::runWriter, "JournalWriter");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Scrie acceptarea unui ordin. Admiterea (Order.markAdmitted) este
+     * confirmată după ce înregistrarea este durabilă, deci ACK-ul către client
+     * pleacă doar după ce ordinul e în jurnal.
+     */
+    public void appendAccept(Order order) {
+        long position = claim(order);
+        if (position < 0) {
+            // Jurnalul nu mai poate scrie - nu blocăm ACK-urile
+            order.markAdmitted();
+            return;
+        }
+        Record record = fillOrder(position, ACCEPT, order);
+        record.priceTicks = order.getLimitPriceTicks();
+        record.createdMillis = order.getCreatedMillis();
+        record.expiresAtMillis = order.getExpiresAtMillis();
+        record.admittedOrder = order;
+        publish(position);
+    }
+
+    /**
+     * Scrie execuția unui ordin (fără așteptare; ordinea față de ACCEPT e păstrată).
+     */
+    public void appendExecute(Order order, long executionPriceTicks) {
+        long position = claim(order);
+        if (position >= 0) {
+            fillOrder(position, EXECUTE, order).priceTicks = executionPriceTicks;
+            publish(position);
+        }
+    }
+
+    /**
+     * Scrie anularea unui ordin.
+     */
+    public void appendCancel(Order order) {
+        long position = claim(order);
+        if (position >= 0) {
+            fillOrder(position, CANCEL, order);
+            publish(position);
+        }
+    }
+
+    /**
+     * Scrie un tick de preț.
+     */
+    public void appendPrice(String symbol, long priceTicks) {
+        checkFits(symbol, MAX_SYMBOL_LENGTH);
+        long position = claim();
+        if (position >= 0) {
+            Record record = slot(position);
+            record.clear();
+            record.type = PRICE;
+            record.symbol = symbol;
+            record.priceTicks = priceTicks;
+            publish(position);
+        }
+    }
+
+    private Record fillOrder(long position, byte type, Order order) {
+        Record record = slot(position);
+        record.clear();
+        record.type = type;
+        record.orderType = order.getOrderType();
+        record.volumeUnits = order.getVolumeUnits();
+        record.symbol = order.getInstrument().getId();
+        record.clientId = order.getClientId();
+        record.orderId = order.getOrderId();
+        return record;
+    }
+
+    /**
+     * Verifică identificatorii ordinului pe thread-ul producătorului (o
+     * înregistrare care nu se poate codifica ar opri thread-ul de scriere),
+     * apoi rezervă un slot.
+     */
+    private long claim(Order order) {
+        checkFits(order.getInstrument().getId(), MAX_SYMBOL_LENGTH);
+        checkFits(order.getClientId(), MAX_CLIENT_ID_LENGTH);
+        checkFits(order.getOrderId(), MAX_ORDER_ID_LENGTH);
+        return claim();
+    }
+
+    /**
+     * Rezervă următorul slot al inelului, așteptând cu backoff cât timp e plin.
+     *
+     * @return Poziția rezervată sau -1 dacă jurnalul a eșuat
+     */
+    private long claim() {
+        int attempt = 0;
+        while (!failed) {
+            long position = claimed.get();
+            if (position - consumed >= QUEUE_CAPACITY) {
+                if (attempt == 0) {
+                    QUEUE_FULL.increment();
+                }
+                LockSupport.unpark(writerThread);
+                Backoff.pause(attempt++);
+            } else if (claimed.compareAndSet(position, position + 1)) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private void publish(long position) {
+        slot(position).timeMillis = System.currentTimeMillis();
+        published.set((int) (position & mask), position + 1);
+        if (parked) {
+            LockSupport.unpark(writerThread);
+        }
+        if (failed) {
+            // Thread-ul de scriere s-a oprit între timp și poate să nu fi văzut slotul
+            Order order = slot(position).admittedOrder;
+            if (order != null) {
+                order.markAdmitted();
+            }
+        }
+    }
+
+    private Record slot(long position) {
+        return slots[(int) (position & mask)];
+    }
+
+    private static void checkFits(String value, int maxLength) {
+        if (value != null && !fits(value, maxLength)) {
+            // Nu trunchiem: recuperarea ar reface ordinul cu altă identitate
+            throw new IllegalArgumentException("Identificator care nu încape în jurnal: " + value);
+        }
+    }
+
+    /**
+     * Următoarea înregistrare publicată, neeliberată încă. Doar thread-ul de scriere.
+     */
+    private Record nextPublished() {
+        long position = consumed;
+        return published.get((int) (position & mask)) == position + 1 ? slot(position) : null;
+    }
+
+    /**
+     * Eliberează slotul citit cu nextPublished(), după ce înregistrarea a fost
+     * scrisă; ordinul admis se confirmă la sfârșitul lotului.
+     */
+    private void release(Record record) {
+        if (record.admittedOrder != null) {
+            admitted.add(record.admittedOrder);
+            record.admittedOrder = null;
+        }
+        consumed = consumed + 1;
+    }
+
+    /**
+     * Golește coada, forțează datele pe disc, scrie un snapshot și oprește scrierea.
+     */
+    @Override
+    public void close() {
+        running = false;
+        Thread t = writerThread;
+        if (t != null) {
+            LockSupport.unpark(t);
+            try {
+                t.join(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void runWriter() {
+        try {
+            while (running || claimed.get() != consumed) {
+                Record record;
+                int written = 0;
+                while (written < 4096 && (record = nextPublished()) != null) {
+                    write(record);
+                    release(record);
+                    written++;
+                    if (durability == Durability.PER_RECORD) {
+                        force();
+                    }
+                }
+
+                if (written > 0) {
+                    if (durability == Durability.GROUP_COMMIT) {
+                        force();
+                    }
+                    for (Order order : admitted) {
+                        order.markAdmitted();
+                    }
+                    admitted.clear();
+                    if (lastSequence - state.getSnapshotSequence() >= snapshotEveryRecords) {
+                        writeSnapshot();
+                    }
+                    continue;
+                }
+
+                if (durability == Durability.ASYNC && System.nanoTime() - lastForceNanos >= ASYNC_FORCE_INTERVAL_NANOS) {
+                    force();
+                }
+
+                parked = true;
+                if (running && nextPublished() == null) {
+                    LockSupport.parkNanos(this, ASYNC_FORCE_INTERVAL_NANOS);
+                }
+                parked = false;
+            }
+            force();
+            writeSnapshot();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Eroare jurnal, persistența este oprită: " + e.getMessage());
+            failed = true;
+            running = false;
+            // Confirmă admiterile rămase ca să nu rămână clienți blocați
+            Record record;
+            while ((record = nextPublished()) != null) {
+                release(record);
+            }
+            for (Order order : admitted) {
+                order.markAdmitted();
+            }
+            admitted.clear();
+        }
+    }
+
+    private void write(Record record) throws IOException {
+        record.sequence = ++lastSequence;
+        encode(record);
+
+        long slot = record.sequence - 1;
+        long index = slot / recordsPerSegment;
+        if (index != segmentIndex) {
+            force();
+            mapSegment(index);
+        }
+        int offset = (int) (slot % recordsPerSegment) * RECORD_SIZE;
+        segment.put(offset, scratch, 0, RECORD_SIZE);
+        dirtyFrom = Math.min(dirtyFrom, offset);
+        dirtyTo = Math.max(dirtyTo, offset + RECORD_SIZE);
+
+        state.apply(record);
+    }
+
+    private void force() {
+        if (segment != null && dirtyTo > dirtyFrom) {
+            segment.force(dirtyFrom, dirtyTo - dirtyFrom);
+        }
+        dirtyFrom = Integer.MAX_VALUE;
+        dirtyTo = 0;
+        lastForceNanos = System.nanoTime();
+    }
+
+    private void mapSegment(long index) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(index), StandardOpenOption.CREATE,
+                                                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) recordsPerSegment * RECORD_SIZE);
+        }
+        segmentIndex = index;
+        dirtyFrom = Integer.MAX_VALUE;
+        dirtyTo = 0;
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("journal-%010d.seg", index));
+    }
+
+    private void writeSnapshot() throws IOException {
+        state.writeSnapshot(directory.resolve(SNAPSHOT_FILE));
+
+        // Segmentele complet acoperite de snapshot nu mai sunt necesare
+        deleteRetiredSegments();
+    }
+
+    /**
+     * Șterge segmentele acoperite de snapshot. Un segment deja parcurs poate
+     * fi încă mapat (MappedByteBuffer se eliberează doar la GC), iar pe
+     * Windows un fișier mapat nu se poate șterge: ștergerea ratată se reia la
+     * următorul snapshot sau la pornire, fără să oprească scrierea.
+     */
+    private void deleteRetiredSegments() {
+        long firstNeeded = state.getSnapshotSequence() / recordsPerSegment;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "journal-*.seg")) {
+            for (Path file : files) {
+                if (segmentIndexOf(file) < firstNeeded) {
+                    try {
+                        Files.delete(file);
+                    } catch (IOException e) {
+                        RETIRED_SEGMENTS_KEPT.increment();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            RETIRED_SEGMENTS_KEPT.increment();
+        }
+    }
+
+    private static long segmentIndexOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(8, name.length() - 4));
+    }
+
+    /**
+     * Încarcă snapshot-ul și reaplică înregistrările valide de după el.
+     * Coada segmentului curent (înregistrări rupte sau de la o rulare anterioară)
+     * este ștearsă ca să nu fie confundată cu înregistrări noi.
+     */
+    private void recover() throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            state.readSnapshot(snapshot);
+            // Segmentele pe care rularea anterioară nu le-a putut șterge
+            deleteRetiredSegments();
+        }
+        lastSequence = state.getLastSequence();
+
+        Record record = new Record();
+        while (true) {
+            long slot = lastSequence;
+            long index = slot / recordsPerSegment;
+            if (index != segmentIndex) {
+                if (!Files.exists(segmentPath(index))) {
+                    break;
+                }
+                mapSegment(index);
+            }
+            int offset = (int) (slot % recordsPerSegment) * RECORD_SIZE;
+            segment.get(offset, scratch, 0, RECORD_SIZE);
+            if (!decode(record) || record.sequence != lastSequence + 1) {
+                break;
+            }
+            lastSequence = record.sequence;
+            state.apply(record);
+        }
+
+        // Șterge restul segmentului curent și segmentele ulterioare
+        if (segment != null && segmentIndex == lastSequence / recordsPerSegment) {
+            int from = (int) (lastSequence % recordsPerSegment) * RECORD_SIZE;
+            byte[] zeros = new byte[RECORD_SIZE];
+            for (int offset = from; offset < recordsPerSegment * RECORD_SIZE; offset += RECORD_SIZE) {
+                segment.put(offset, zeros, 0, RECORD_SIZE);
+            }
+            segment.force();
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "journal-*.seg")) {
+            for (Path file : files) {
+                if (segmentIndexOf(file) > lastSequence / recordsPerSegment) {
+                    Files.delete(file);
+                }
+            }
+        }
+        dirtyFrom = Integer.MAX_VALUE;
+        dirtyTo = 0;
+    }
+
+    private void encode(Record record) {
+        ByteBuffer b = scratchBuffer;
+        b.clear();
+        b.putLong(record.sequence);
+        b.putLong(record.timeMillis);
+        b.put(record.type);
+        b.put((byte) (record.orderType == null ? -1 : record.orderType.ordinal()));
+        b.putShort((short) 0);
+        b.putInt(0);
+        b.putLong(record.priceTicks);
+        b.putLong(record.volumeUnits);
+        b.putLong(record.createdMillis);
+        b.putLong(record.expiresAtMillis);
+        putString(b, record.symbol, SYMBOL_LENGTH);
+        putString(b, record.clientId, CLIENT_LENGTH);
+        putString(b, record.orderId, ORDER_ID_LENGTH);
+
+        crc.reset();
+        crc.update(scratch, 0, CHECKSUM_OFFSET);
+        b.putInt(CHECKSUM_OFFSET, (int) crc.getValue());
+    }
+
+    private boolean decode(Record record) {
+        crc.reset();
+        crc.update(scratch, 0, CHECKSUM_OFFSET);
+        ByteBuffer b = scratchBuffer;
+        if (b.getInt(CHECKSUM_OFFSET) != (int) crc.getValue()) {
+            return false;
+        }
+        b.clear();
+        record.sequence = b.getLong();
+        record.timeMillis = b.getLong();
+        record.type = b.get();
+        byte orderType = b.get();
+        record.orderType = orderType < 0 ? null : OrderType.values()[orderType];
+        b.getShort();
+        b.getInt();
+        record.priceTicks = b.getLong();
+        record.volumeUnits = b.getLong();
+        record.createdMillis = b.getLong();
+        record.expiresAtMillis = b.getLong();
+        record.symbol = getString(b, SYMBOL_LENGTH);
+        record.clientId = getString(b, CLIENT_LENGTH);
+        record.orderId = getString(b, ORDER_ID_LENGTH);
+        return record.sequence > 0;
+    }
+
+    /**
+     * true dacă identificatorul încape nemodificat într-un câmp al
+     * înregistrării: cel mult maxLength caractere ASCII tipăribile.
+     * Identificatorii sunt verificați la intrare (RequestHandler,
+     * attachJournal), pentru ca recuperarea să refacă exact aceleași ordine.
+     */
+    static boolean fits(String value, int maxLength) {
+        if (value.length() > maxLength) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x20 || c > 0x7E) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void putString(ByteBuffer b, String value, int length) {
+        int start = b.position();
+        if (value != null) {
+            if (!fits(value, length - 1)) {
+                // Nu trunchiem: recuperarea ar reface ordinul cu altă identitate
+                throw new IllegalArgumentException("Identificator care nu încape în jurnal: " + value);
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+            b.put((byte) bytes.length);
+            b.put(bytes);
+        } else {
+            b.put((byte) 0);
+        }
+        while (b.position() < start + length) {
+            b.put((byte) 0);
+        }
+    }
+
+    private static String getString(ByteBuffer b, int length) {
+        int start = b.position();
+        int len = b.get();
+        String value = len == 0 ? null
+            : new String(b.array(), start + 1, len, StandardCharsets.US_ASCII);
+        b.position(start + length);
+        return value;
+    }
+}
@@ -0,0 +1,210 @@
+package server;
+
+import model.Execution;
+import model.OrderType;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Starea engine-ului derivată din jurnal: volum consumat, comisioane, P&L și
+ * ultimul preț per instrument, plus ordinele încă pending.
+ *
+ * Este actualizată doar de thread-ul de scriere al jurnalului (sau la
+ * recuperare), deci corespunde exact unei secvențe din jurnal și poate fi
+ * salvată ca snapshot consistent fără să oprească engine-ul.
+ */
+public class JournalState {
+    private static final int SNAPSHOT_MAGIC = 0x4A534E31; // "JSN1"
+
+    /**
+     * Totaluri per instrument, în unitățile instrumentului.
+     */
+    public static final class InstrumentTotals {
+        public long consumedVolumeUnits;
+        public long commissionUnits;
+        public long pnlUnits;
+        public long lastPriceTicks;
+    }
+
+    private final Map<String, InstrumentTotals> totals;
+    private final Map<String, Journal.Record> pendingOrders;
+    private long lastSequence;
+    private long snapshotSequence;
+    private long maxOrderNumber;
+
+    JournalState() {
+        this.totals = new HashMap<>();
+        this.pendingOrders = new LinkedHashMap<>();
+    }
+
+    /**
+     * Aplică o înregistrare din jurnal.
+     */
+    void apply(Journal.Record record) {
+        lastSequence = record.sequence;
+        InstrumentTotals t = totals.computeIfAbsent(record.symbol, s -> new InstrumentTotals());
+
+        switch (record.type) {
+            case Journal.ACCEPT:
+                t.consumedVolumeUnits += record.volumeUnits;
+                pendingOrders.put(record.orderId, copyOf(record));
+                maxOrderNumber = Math.max(maxOrderNumber, orderNumber(record.orderId));
+                break;
+            case Journal.EXECUTE:
+                pendingOrders.remove(record.orderId);
+                long notional = record.priceTicks * record.volumeUnits;
+                t.commissionUnits += Execution.commissionUnits(notional);
+                t.pnlUnits += record.orderType == OrderType.BUY_LIMIT ? notional : -notional;
+                break;
+            case Journal.CANCEL:
+                pendingOrders.remove(record.orderId);
+                t.consumedVolumeUnits -= record.volumeUnits;
+                break;
+            case Journal.PRICE:
+                t.lastPriceTicks = record.priceTicks;
+                break;
+            default:
+                break;
+        }
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public long getSnapshotSequence() {
+        return snapshotSequence;
+    }
+
+    /**
+     * Cel mai mare număr de ordin văzut (pentru continuarea numerotării).
+     */
+    public long getMaxOrderNumber() {
+        return maxOrderNumber;
+    }
+
+    public Map<String, InstrumentTotals> getTotals() {
+        return totals;
+    }
+
+    public Collection<Journal.Record> getPendingOrders() {
+        return pendingOrders.values();
+    }
+
+    /**
+     * Scrie snapshot-ul într-un fișier temporar și îl mută atomic peste cel vechi.
+     */
+    void writeSnapshot(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(lastSequence);
+            out.writeLong(maxOrderNumber);
+
+            out.writeInt(totals.size());
+            for (Map.Entry<String, InstrumentTotals> entry : totals.entrySet()) {
+                InstrumentTotals t = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeLong(t.consumedVolumeUnits);
+                out.writeLong(t.commissionUnits);
+                out.writeLong(t.pnlUnits);
+                out.writeLong(t.lastPriceTicks);
+            }
+
+            out.writeInt(pendingOrders.size());
+            for (Journal.Record r : pendingOrders.values()) {
+                out.writeUTF(r.orderId);
+                out.writeUTF(r.clientId != null ? r.clientId : "");
+                out.writeUTF(r.symbol);
+                out.writeByte(r.orderType.ordinal());
+                out.writeLong(r.volumeUnits);
+                out.writeLong(r.priceTicks);
+                out.writeLong(r.createdMillis);
+                out.writeLong(r.expiresAtMillis);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        snapshotSequence = lastSequence;
+    }
+
+    /**
+     * Încarcă starea dintr-un snapshot.
+     */
+    void readSnapshot(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Snapshot invalid: " + file);
+            }
+            lastSequence = in.readLong();
+            snapshotSequence = lastSequence;
+            maxOrderNumber = in.readLong();
+
+            int instrumentCount = in.readInt();
+            for (int i = 0; i < instrumentCount; i++) {
+                InstrumentTotals t = new InstrumentTotals();
+                String symbol = in.readUTF();
+                t.consumedVolumeUnits = in.readLong();
+                t.commissionUnits = in.readLong();
+                t.pnlUnits = in.readLong();
+                t.lastPriceTicks = in.readLong();
+                totals.put(symbol, t);
+            }
+
+            int pendingCount = in.readInt();
+            OrderType[] types = OrderType.values();
+            for (int i = 0; i < pendingCount; i++) {
+                Journal.Record r = new Journal.Record();
+                r.type = Journal.ACCEPT;
+                r.orderId = in.readUTF();
+                r.clientId = in.readUTF();
+                r.symbol = in.readUTF();
+                r.orderType = types[in.readByte()];
+                r.volumeUnits = in.readLong();
+                r.priceTicks = in.readLong();
+                r.createdMillis = in.readLong();
+                r.expiresAtMillis = in.readLong();
+                pendingOrders.put(r.orderId, r);
+            }
+        }
+    }
+
+    private static Journal.Record copyOf(Journal.Record source) {
+        Journal.Record r = new Journal.Record();
+        r.sequence = source.sequence;
+        r.timeMillis = source.timeMillis;
+        r.type = source.type;
+        r.orderType = source.orderType;
+        r.priceTicks = source.priceTicks;
+        r.volumeUnits = source.volumeUnits;
+        r.createdMillis = source.createdMillis;
+        r.expiresAtMillis = source.expiresAtMillis;
+        r.symbol = source.symbol;
+        r.clientId = source.clientId;
+        r.orderId = source.orderId;
+        return r;
+    }
+
+    /**
+     * Extrage partea numerică dintr-un ID de forma "ORD-123" (0 dacă nu există).
+     */
+    private static long orderNumber(String orderId) {
+        int dash = orderId.lastIndexOf('-');
+        try {
+            return Long.parseLong(orderId.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
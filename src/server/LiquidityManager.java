@@ -1,98 +1,354 @@
 package server;
 
 import model.Instrument;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.Map;
+import model.InstrumentRegistry;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Gestionează lichiditatea disponibilă pentru fiecare instrument financiar.
- * Thread-safe prin utilizarea ConcurrentHashMap și metode sincronizate.
+ *
+ * Fără lock-uri: celulele sunt indexate după indexul dens din
+ * InstrumentRegistry, iar volumul disponibil este ținut în unitățile de volum
+ * ale instrumentului (Instrument.getVolumeScale()) într-un AtomicLongArray,
+ * câte o celulă pe linie de cache (padding) ca instrumentele să nu se încurce
+ * între ele. Rezervarea este o buclă CAS, deci ordinele pe instrumente
+ * diferite nu intră niciodată în competiție.
+ *
+ * Restul liniei de cache a celulei ține registrul-umbră al instrumentului:
+ * volumul ordinelor încă deschise (OPEN) și volumul consumat de execuții
+ * (CONSUMED; execuția nu eliberează lichiditatea). Registrul nu se mișcă
+ * odată cu disponibilul: TradingEngine îl actualizează separat, din ciclul de
+ * viață al ordinelor (ledgerOpened la admitere, ledgerExecuted la execuție,
+ * ledgerCancelled la anulare/expirare), după volumul fiecărui ordin. O
+ * rezervare sau o eliberare greșită (de exemplu una dublă) strică deci
+ * invariantul verificat continuu de LiquidityReconciler:
+ *   max - disponibil == deschis + consumat
+ *
+ * Fiecare mutație se face între două contoare de secvență (BEGIN, END), ca
+ * un seqlock cu mai mulți scriitori: un cititor care vede END == BEGIN
+ * înainte și după citire are o imagine consistentă, fără să blocheze pe
+ * nimeni. Secțiunile se pot imbrica (beginEvent/endEvent), așa că engine-ul
+ * publică mutația lichidității și pe cea a registrului pentru același
+ * eveniment ca pe una singură. END numără mutațiile, deci o abatere se
+ * raportează cu intervalul de secvențe în care a apărut.
  */
 public class LiquidityManager {
-    // Map: instrumentId -> lichiditate disponibilă curentă
-    private final Map<String, Double> availableLiquidity;
-    
+    // 8 long-uri = 64 bytes: fiecare celulă pe linia ei de cache
+    private static final int CELL_STRIDE = 8;
+    // Pozițiile din celulă
+    private static final int AVAILABLE = 0;
+    private static final int OPEN = 1;
+    private static final int CONSUMED = 2;
+    private static final int BEGIN = 3;
+    private static final int END = 4;
+    // Încercări de citire consistentă înainte de a amâna instrumentul
+    private static final int SNAPSHOT_ATTEMPTS = 4;
+
+    private final InstrumentRegistry registry;
+    private final long[] maxUnits;
+    private final long[] volumeScale;
+    private final AtomicLongArray cells;
+
+    /**
+     * Constructor: câte o celulă pentru fiecare instrument din registru,
+     * inițializată cu lichiditatea maximă.
+     */
+    public LiquidityManager(InstrumentRegistry registry) {
+        int size = registry.size();
+        this.registry = registry;
+        this.maxUnits = new long[size];
+        this.volumeScale = new long[size];
+        this.cells = new AtomicLongArray(Math.max(1, size) * CELL_STRIDE);
+        for (int i = 0; i < size; i++) {
+            initializeLiquidity(registry.get(i));
+        }
+    }
+
     /**
-     * Constructor care inițializează lichiditatea pentru instrumentele date.
+     * (Re)inițializează lichiditatea unui instrument la maxim (la pornire, înainte de ordine).
+     *
+     * @return Indexul dens al instrumentului
      */
-    public LiquidityManager() {
-        this.availableLiquidity = new ConcurrentHashMap<>();
+    public int initializeLiquidity(Instrument instrument) {
+        int index = instrument.getIndex();
+        if (index < 0 || index >= maxUnits.length || registry.get(index) != instrument) {
+            throw new IllegalArgumentException("Instrument neînregistrat: " + instrument.getId());
+        }
+        long max = instrument.getMaxLiquidityUnits();
+        maxUnits[index] = max;
+        volumeScale[index] = instrument.getVolumeScale();
+        int cell = cell(index);
+        cells.getAndIncrement(cell + BEGIN);
+        cells.set(cell + AVAILABLE, max);
+        cells.set(cell + OPEN, 0);
+        cells.set(cell + CONSUMED, 0);
+        cells.getAndIncrement(cell + END);
+        return index;
     }
-    
+
     /**
-     * Inițializează lichiditatea pentru un instrument.
+     * Indexul dens al unui instrument sau -1 dacă nu e cunoscut.
      */
-    public void initializeLiquidity(Instrument instrument) {
-        availableLiquidity.put(instrument.getId(), instrument.getMaxLiquidity());
+    public int indexOf(String instrumentId) {
+        return registry.indexOf(instrumentId);
     }
-    
+
     /**
      * Verifică și rezervă volumul pentru un ordin.
-     * 
+     *
      * @param instrumentId ID-ul instrumentului
      * @param volume Volumul cerut
      * @return true dacă există lichiditate și s-a rezervat cu succes
      */
-    public synchronized boolean reserveVolume(String instrumentId, double volume) {
-        Double available = availableLiquidity.get(instrumentId);
-        if (available == null) {
+    public boolean reserveVolume(String instrumentId, double volume) {
+        int index = indexOf(instrumentId);
+        return index >= 0 && reserveUnits(index, toUnits(index, volume));
+    }
+
+    /**
+     * Rezervă volum în unitățile instrumentului (buclă CAS, fără lock).
+     * Registrul-umbră nu se modifică.
+     */
+    public boolean reserveUnits(int index, long units) {
+        int cell = cell(index);
+        // Un volum negativ ar ridica disponibilul peste maxim
+        // Respingerea nu modifică nimic, deci nu deschide o secvență
+        if (units <= 0 || cells.get(cell + AVAILABLE) < units) {
+            return false;
+        }
+        cells.getAndIncrement(cell + BEGIN);
+        try {
+            while (true) {
+                long available = cells.get(cell + AVAILABLE);
+                if (available < units) {
+                    return false;
+                }
+                if (cells.compareAndSet(cell + AVAILABLE, available, available - units)) {
+                    return true;
+                }
+            }
+        } finally {
+            cells.getAndIncrement(cell + END);
+        }
+    }
+
+    /**
+     * Refacere la pornire (jurnal, reluare): rezervă volumul ordinelor încă
+     * deschise și pe cel deja consumat de execuții și pornește registrul-umbră
+     * de la aceleași valori.
+     *
+     * @return false dacă lichiditatea disponibilă nu le acoperă (nimic rezervat)
+     */
+    public boolean restoreUnits(int index, long openUnits, long consumedUnits) {
+        if (openUnits < 0 || consumedUnits < 0) {
             return false;
         }
-        
-        if (available >= volume) {
-            availableLiquidity.put(instrumentId, available - volume);
+        if (openUnits + consumedUnits == 0) {
             return true;
         }
-        
-        return false;
+        beginEvent(index);
+        try {
+            if (!reserveUnits(index, openUnits + consumedUnits)) {
+                return false;
+            }
+            int cell = cell(index);
+            cells.getAndAdd(cell + OPEN, openUnits);
+            cells.getAndAdd(cell + CONSUMED, consumedUnits);
+            return true;
+        } finally {
+            endEvent(index);
+        }
     }
-    
+
     /**
      * Eliberează volumul rezervat (de exemplu, când ordinul expiră).
      */
-    public synchronized void releaseVolume(String instrumentId, double volume) {
-        Double available = availableLiquidity.get(instrumentId);
-        if (available != null) {
-            availableLiquidity.put(instrumentId, available + volume);
+    public void releaseVolume(String instrumentId, double volume) {
+        int index = indexOf(instrumentId);
+        if (index >= 0) {
+            releaseUnits(index, toUnits(index, volume));
         }
     }
-    
+
+    /**
+     * Eliberează volum rezervat (anulare, expirare), în unitățile
+     * instrumentului. Registrul-umbră nu se modifică.
+     */
+    public void releaseUnits(int index, long units) {
+        int cell = cell(index);
+        cells.getAndIncrement(cell + BEGIN);
+        cells.getAndAdd(cell + AVAILABLE, units);
+        cells.getAndIncrement(cell + END);
+    }
+
+    /**
+     * Deschide o secțiune care grupează mai multe mutații ale aceluiași
+     * instrument (de exemplu rezervarea și înregistrarea ordinului în
+     * registru): cititorii le văd pe toate sau pe niciuna. Se închide
+     * obligatoriu cu endEvent.
+     */
+    public void beginEvent(int index) {
+        cells.getAndIncrement(cell(index) + BEGIN);
+    }
+
+    public void endEvent(int index) {
+        cells.getAndIncrement(cell(index) + END);
+    }
+
+    /**
+     * Registrul-umbră: un ordin a fost admis cu volumul dat.
+     */
+    public void ledgerOpened(int index, long units) {
+        moveLedger(index, units, 0);
+    }
+
+    /**
+     * Registrul-umbră: un ordin deschis a fost executat (volumul lui trece
+     * din deschis în consumat).
+     */
+    public void ledgerExecuted(int index, long units) {
+        moveLedger(index, -units, units);
+    }
+
+    /**
+     * Registrul-umbră: un ordin deschis a fost anulat sau a expirat.
+     */
+    public void ledgerCancelled(int index, long units) {
+        moveLedger(index, -units, 0);
+    }
+
+    private void moveLedger(int index, long openDelta, long consumedDelta) {
+        int cell = cell(index);
+        cells.getAndIncrement(cell + BEGIN);
+        cells.getAndAdd(cell + OPEN, openDelta);
+        if (consumedDelta != 0) {
+            cells.getAndAdd(cell + CONSUMED, consumedDelta);
+        }
+        cells.getAndIncrement(cell + END);
+    }
+
     /**
      * Obține lichiditatea disponibilă pentru un instrument.
      */
     public double getAvailableLiquidity(String instrumentId) {
-        return availableLiquidity.getOrDefault(instrumentId, 0.0);
-    }
-    
-    /**
-     * Verifică integritatea: nicio lichiditate nu depășește maximul.
-     */
-    public synchronized boolean checkIntegrity(Map<String, Instrument> instruments) {
-        for (Map.Entry<String, Instrument> entry : instruments.entrySet()) {
-            String id = entry.getKey();
-            Instrument instrument = entry.getValue();
-            double available = availableLiquidity.getOrDefault(id, 0.0);
-            
-            if (available > instrument.getMaxLiquidity()) {
-                System.err.println("EROARE INTEGRITATE: Instrument " + id + 
-                                 " are lichiditate " + available + 
-                                 " > max " + instrument.getMaxLiquidity());
+        int index = indexOf(instrumentId);
+        return index >= 0 ? fromUnits(index, cells.get(cell(index) + AVAILABLE)) : 0.0;
+    }
+
+    /**
+     * Lichiditatea disponibilă în unitățile instrumentului.
+     */
+    public long getAvailableUnits(int index) {
+        return cells.get(cell(index) + AVAILABLE);
+    }
+
+    /**
+     * Lichiditatea maximă în unitățile instrumentului.
+     */
+    public long getMaxUnits(int index) {
+        return maxUnits[index];
+    }
+
+    public int size() {
+        return maxUnits.length;
+    }
+
+    /**
+     * Citește consistent celula unui instrument, fără lock: disponibil,
+     * deschis, consumat și numărul de mutații încheiate (secvența).
+     * Dacă instrumentul este modificat în continuu, renunță după câteva
+     * încercări în loc să aștepte.
+     *
+     * @param out Cel puțin 4 valori: disponibil, deschis, consumat, secvență
+     * @return false dacă nu s-a obținut o imagine consistentă
+     */
+    boolean snapshot(int index, long[] out) {
+        int cell = cell(index);
+        for (int attempt = 0; attempt < SNAPSHOT_ATTEMPTS; attempt++) {
+            long end = cells.get(cell + END);
+            out[0] = cells.get(cell + AVAILABLE);
+            out[1] = cells.get(cell + OPEN);
+            out[2] = cells.get(cell + CONSUMED);
+            // END <= BEGIN mereu: egalitatea înseamnă nicio mutație în curs sau începută între timp
+            if (cells.get(cell + BEGIN) == end) {
+                out[3] = end;
+                return true;
+            }
+            Thread.onSpinWait();
+        }
+        return false;
+    }
+
+    /**
+     * Abaterea registrului-umbră: (max - disponibil) - (deschis + consumat).
+     * Zero pentru o imagine corectă.
+     */
+    long drift(int index, long[] snapshot) {
+        return maxUnits[index] - snapshot[0] - snapshot[1] - snapshot[2];
+    }
+
+    /**
+     * true dacă imaginea respectă limitele: disponibil în [0, max], deschis și consumat nenegative.
+     */
+    boolean inBounds(int index, long[] snapshot) {
+        return snapshot[0] >= 0 && snapshot[0] <= maxUnits[index] && snapshot[1] >= 0 && snapshot[2] >= 0;
+    }
+
+    /**
+     * Verificare completă a tuturor instrumentelor: limitele lichidității și
+     * invariantul registrului-umbră. Citește fiecare celulă consistent, fără
+     * să oprească rezervările în curs; instrumentele modificate chiar în
+     * timpul citirii sunt sărite (le prinde reconcilierea continuă).
+     */
+    public boolean checkIntegrity() {
+        long[] snapshot = new long[4];
+        for (int index = 0; index < maxUnits.length; index++) {
+            if (!snapshot(index, snapshot)) {
+                continue;
+            }
+            if (!inBounds(index, snapshot) || drift(index, snapshot) != 0) {
+                System.err.println("EROARE INTEGRITATE: " + describe(index, snapshot));
                 return false;
             }
         }
         return true;
     }
-    
+
+    /**
+     * Descrierea unei imagini (pentru mesajele de eroare).
+     */
+    String describe(int index, long[] snapshot) {
+        return String.format("Instrument %s: disponibil %s din %s, rezervat %s, "
+                             + "deschis %s + consumat %s (abatere %s, secvența %d)",
+                             registry.get(index).getId(),
+                             fromUnits(index, snapshot[0]), fromUnits(index, maxUnits[index]),
+                             fromUnits(index, maxUnits[index] - snapshot[0]),
+                             fromUnits(index, snapshot[1]), fromUnits(index, snapshot[2]),
+                             fromUnits(index, drift(index, snapshot)), snapshot[3]);
+    }
+
     /**
      * Afișează statusul lichidității pentru toate instrumentele.
      */
     public String getLiquidityStatus() {
         StringBuilder sb = new StringBuilder();
         sb.append("Status Lichiditate:\n");
-        for (Map.Entry<String, Double> entry : availableLiquidity.entrySet()) {
-            sb.append(String.format("  %s: %.2f disponibil\n", 
-                                  entry.getKey(), entry.getValue()));
+        for (int i = 0; i < maxUnits.length; i++) {
+            sb.append(String.format("  %s: %.2f disponibil\n",
+                                  registry.get(i).getId(), fromUnits(i, cells.get(cell(i) + AVAILABLE))));
         }
         return sb.toString();
     }
+
+    private long toUnits(int index, double volume) {
+        return Math.round(volume * volumeScale[index]);
+    }
+
+    private double fromUnits(int index, long units) {
+        return (double) units / volumeScale[index];
+    }
+
+    private static int cell(int index) {
+        return index * CELL_STRIDE;
+    }
 }
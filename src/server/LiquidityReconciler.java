@@ -0,0 +1,166 @@
+package server;
+
+import util.DiagnosticLevel;
+import util.Diagnostics;
+import util.Metrics;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reconcilierea continuă a lichidității, în locul verificării complete din audit.
+ *
+ * Un thread de fundal parcurge instrumentele pe rând, câte cel mult BATCH la
+ * fiecare interval, și compară lichiditatea rezervată cu registrul-umbră din
+ * LiquidityManager, ținut separat din ciclul de viață al ordinelor
+ * (max - disponibil == deschis + consumat). Citirea este
+ * fără lock (LiquidityManager.snapshot): submiterile nu așteaptă niciodată
+ * după reconciliere, iar un instrument modificat chiar în timpul citirii este
+ * amânat la trecerea următoare (liquidity.reconcile_busy).
+ *
+ * Pentru fiecare instrument se reține secvența ultimei verificări curate; o
+ * abatere se raportează (liquidity.drift și un mesaj ERROR) cu instrumentul și
+ * intervalul de secvențe (ultima secvență curată, secvența curentă] în care a
+ * apărut. O abatere neschimbată nu se raportează din nou.
+ */
+public class LiquidityReconciler {
+    private static final int BATCH = 4_096;
+    private static final LongAdder CHECKS = Metrics.counter("liquidity.reconciled");
+    private static final LongAdder BUSY = Metrics.counter("liquidity.reconcile_busy");
+    private static final LongAdder DRIFTS = Metrics.counter("liquidity.drift");
+    private static final Diagnostics.Type DRIFT = Diagnostics.type("liquidity.drift", DiagnosticLevel.ERROR,
+        (out, e) -> out.append("✗ ABATERE LICHIDITATE: ").append(e.object(0))
+                       .append(", mutațiile (").append(e.longValue(0)).append(", ")
+                       .append(e.longValue(1)).append(']'));
+
+    private final LiquidityManager liquidity;
+    private final long intervalNanos;
+    // Doar thread-ul de reconciliere
+    private final long[] lastCleanSeq;
+    private final long[] reportedDrift;
+    private final boolean[] reportedBounds;
+    private final long[] snapshot = new long[4];
+    private int cursor;
+    // Instrumente cu abatere la ultima lor verificare
+    private volatile int driftingInstruments;
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * @param intervalNanos Pauza dintre două loturi de instrumente
+     */
+    public LiquidityReconciler(LiquidityManager liquidity, long intervalNanos) {
+        if (intervalNanos <= 0) {
+            throw new IllegalArgumentException("Interval de reconciliere invalid: " + intervalNanos);
+        }
+        this.liquidity = liquidity;
+        this.intervalNanos = intervalNanos;
+        this.lastCleanSeq = new long[liquidity.size()];
+        this.reportedDrift = new long[liquidity.size()];
+        this.reportedBounds = new boolean[liquidity.size()];
+    }
+
+    /**
+     * Pornește thread-ul de reconciliere.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "LiquidityReconciler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Oprește thread-ul de reconciliere și așteaptă terminarea lui.
+     */
+    public synchronized void stop() {
+        running = false;
+        Thread t = thread;
+        if (t != null) {
+            LockSupport.unpark(t);
+            try {
+                t.join(2_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    /**
+     * Numărul de instrumente care aveau abatere la ultima lor verificare.
+     */
+    public int getDriftingInstruments() {
+        return driftingInstruments;
+    }
+
+    public long getCheckCount() {
+        return CHECKS.sum();
+    }
+
+    public long getDriftCount() {
+        return DRIFTS.sum();
+    }
+
+    public long getBusyCount() {
+        return BUSY.sum();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                reconcileBatch();
+            } catch (RuntimeException e) {
+                System.err.println("Eroare reconciliere lichiditate: " + e.getMessage());
+            }
+            LockSupport.parkNanos(this, intervalNanos);
+        }
+    }
+
+    /**
+     * Verifică următoarele cel mult BATCH instrumente (circular).
+     */
+    private void reconcileBatch() {
+        int size = liquidity.size();
+        int count = Math.min(size, BATCH);
+        int drifting = driftingInstruments;
+        for (int k = 0; k < count; k++) {
+            int index = cursor;
+            cursor = cursor + 1 == size ? 0 : cursor + 1;
+            drifting += reconcile(index);
+        }
+        driftingInstruments = drifting;
+    }
+
+    /**
+     * Verifică un instrument.
+     *
+     * @return Variația numărului de instrumente cu abatere (-1, 0 sau 1)
+     */
+    private int reconcile(int index) {
+        if (!liquidity.snapshot(index, snapshot)) {
+            BUSY.increment();
+            return 0;
+        }
+        CHECKS.increment();
+        boolean wasDrifting = reportedDrift[index] != 0 || reportedBounds[index];
+        long drift = liquidity.drift(index, snapshot);
+        boolean outOfBounds = !liquidity.inBounds(index, snapshot);
+        if (drift == 0 && !outOfBounds) {
+            lastCleanSeq[index] = snapshot[3];
+            reportedDrift[index] = 0;
+            reportedBounds[index] = false;
+            return wasDrifting ? -1 : 0;
+        }
+        if (drift != reportedDrift[index] || outOfBounds != reportedBounds[index]) {
+            reportedDrift[index] = drift;
+            reportedBounds[index] = outOfBounds;
+            DRIFTS.increment();
+            // Cale rară: textul se formatează la emitere
+            Diagnostics.emit(DRIFT, liquidity.describe(index, snapshot), lastCleanSeq[index], snapshot[3]);
+        }
+        return wasDrifting ? 0 : 1;
+    }
+}
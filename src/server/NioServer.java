@@ -0,0 +1,740 @@
+package server;
+
+import model.Order;
+import model.OrderStatus;
+import util.BinaryProtocol;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Server de ordine non-blocant (mod NIO).
+ *
+ * Un număr mic de bucle de evenimente, fiecare cu propriul Selector și thread,
+ * deservesc toate conexiunile. Bucla 0 acceptă conexiunile noi și le distribuie
+ * round-robin. Citirea se face într-un buffer direct al buclei; mesajele
+ * incomplete rămân în bufferul conexiunii până la următoarea citire.
+ * Răspunsurile sunt adunate într-un buffer direct și scrise cu un singur apel;
+ * ce nu încape în socket intră în coada de scriere a conexiunii și se trimite
+ * la OP_WRITE. Fiecare conexiune vorbește fie protocolul text, fie cel binar
+ * (BinaryProtocol), ales după primul octet.
+ *
+ * Când un ordin admis se execută sau este anulat, clientul primește un mesaj
+ * nesolicitat (EXEC/CANCEL sau EXECUTION_REPORT). Ordinele încheiate se adună
+ * într-o coadă a conexiunii și sunt scrise împreună, cu un singur apel, pe
+ * bucla conexiunii.
+ */
+class NioServer {
+    private static final int MAX_LINE_LENGTH = RequestHandler.MAX_REQUEST_LENGTH;
+    // Începutul unei linii incomplete plus o citire nouă trebuie să încapă împreună
+    private static final int READ_BUFFER_SIZE = 2 * MAX_LINE_LENGTH;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    // Peste aceste limite conexiunea nu mai este citită până se golește (backpressure)
+    private static final int MAX_PENDING_REPLIES = 1024;
+    private static final int MAX_QUEUED_BYTES = 1 << 20;
+
+    private final int port;
+    private final RequestHandler handler;
+    private final EventLoop[] loops;
+    private ServerSocketChannel serverChannel;
+    private int nextLoop;
+    private volatile boolean running;
+
+    NioServer(int port, RequestHandler handler, int numLoops) {
+        if (numLoops < 1) {
+            throw new IllegalArgumentException("Număr de bucle invalid: " + numLoops);
+        }
+        this.port = port;
+        this.handler = handler;
+        this.loops = new EventLoop[numLoops];
+    }
+
+    void start() throws IOException {
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop(i);
+        }
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+
+        running = true;
+        for (EventLoop loop : loops) {
+            loop.thread.start();
+        }
+    }
+
+    void stop() {
+        running = false;
+        for (EventLoop loop : loops) {
+            if (loop != null) {
+                loop.selector.wakeup();
+            }
+        }
+        for (EventLoop loop : loops) {
+            if (loop == null) {
+                continue;
+            }
+            try {
+                loop.thread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            // Ignoră erori la închidere
+        }
+    }
+
+    /**
+     * Răspunsul la o cerere text și ordinele create de ea. Rapoartele de
+     * execuție ale ordinelor sunt programate abia după scrierea răspunsului.
+     */
+    private static final class PendingReply {
+        CompletableFuture<String> reply;
+        List<Order> orders;
+        long readNanos; // momentul citirii cererii (0 = fără măsurare)
+
+        void addOrder(Order order) {
+            if (orders == null) {
+                orders = new ArrayList<>(1);
+            }
+            orders.add(order);
+        }
+    }
+
+    /**
+     * Bucla de evenimente: un Selector, un thread și buffere directe partajate
+     * de conexiunile sale (folosite doar de thread-ul buclei).
+     */
+    private final class EventLoop implements Runnable {
+        final Selector selector;
+        final Thread thread;
+        final ByteBuffer readBuffer;
+        final ByteBuffer writeBuffer;
+        final byte[] lineBytes;
+        // Flyweight-uri refolosite de toate conexiunile buclei
+        final BinaryProtocol.Logon logon = new BinaryProtocol.Logon();
+        final BinaryProtocol.NewOrder newOrder = new BinaryProtocol.NewOrder();
+        final BinaryProtocol.Ack ack = new BinaryProtocol.Ack();
+        final BinaryProtocol.Reject reject = new BinaryProtocol.Reject();
+        final BinaryProtocol.ExecutionReport executionReport = new BinaryProtocol.ExecutionReport();
+        private final ConcurrentLinkedQueue<Runnable> tasks;
+        private final AtomicBoolean wakeupPending;
+
+        EventLoop(int id) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "NioEventLoop-" + id);
+            this.readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+            this.writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+            this.lineBytes = new byte[MAX_LINE_LENGTH];
+            this.tasks = new ConcurrentLinkedQueue<>();
+            this.wakeupPending = new AtomicBoolean();
+        }
+
+        /**
+         * Rulează o sarcină pe thread-ul buclei (apelabil din orice thread).
+         * O sarcină adăugată chiar de pe thread-ul buclei (de exemplu un
+         * whenComplete pe un future deja terminat) nu trezește selectorul:
+         * bucla o vede la următoarea iterație, care face selectNow().
+         */
+        void execute(Runnable task) {
+            tasks.add(task);
+            if (Thread.currentThread() != thread && wakeupPending.compareAndSet(false, true)) {
+                selector.wakeup();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    if (tasks.isEmpty()) {
+                        selector.select();
+                    } else {
+                        // Sarcini puse de pe thread-ul buclei: nu așteptăm trafic nou
+                        selector.selectNow();
+                    }
+                } catch (IOException e) {
+                    System.err.println("Eroare selector: " + e.getMessage());
+                    break;
+                }
+                wakeupPending.set(false);
+                runTasks();
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        acceptAll();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    if (key.isWritable()) {
+                        connection.onWritable();
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        connection.onReadable();
+                    }
+                }
+            }
+            closeAll();
+        }
+
+        private void runTasks() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+
+        private void acceptAll() {
+            try {
+                SocketChannel channel;
+                while ((channel = serverChannel.accept()) != null) {
+                    channel.configureBlocking(false);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    EventLoop target = loops[nextLoop];
+                    nextLoop = (nextLoop + 1) % loops.length;
+                    SocketChannel accepted = channel;
+                    if (target == this) {
+                        target.register(accepted);
+                    } else {
+                        target.execute(() -> target.register(accepted));
+                    }
+                }
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Eroare acceptare client: " + e.getMessage());
+                }
+            }
+        }
+
+        private void register(SocketChannel channel) {
+            try {
+                Connection connection = new Connection(this, channel);
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            } catch (ClosedChannelException e) {
+                // Clientul a închis conexiunea înainte de înregistrare
+            }
+        }
+
+        private void closeAll() {
+            runTasks();
+            for (SelectionKey key : selector.keys()) {
+                Object attachment = key.attachment();
+                if (attachment instanceof Connection) {
+                    ((Connection) attachment).close();
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // Ignoră erori la închidere
+            }
+        }
+    }
+
+    /**
+     * Starea unei conexiuni. Accesată doar de thread-ul buclei care o deține.
+     *
+     * Protocolul se alege după primul octet primit: BinaryProtocol.MAGIC
+     * înseamnă mesaje binare de lungime fixă, orice altceva protocolul text.
+     * Ieșirea se adună în bufferul direct al buclei (reserve/commit) și se
+     * scrie o dată la sfârșitul fiecărui eveniment (flushOutput).
+     */
+    private final class Connection {
+        private static final int PROTOCOL_UNKNOWN = 0;
+        private static final int PROTOCOL_TEXT = 1;
+        private static final int PROTOCOL_BINARY = 2;
+
+        private final EventLoop loop;
+        private final SocketChannel channel;
+        private SelectionKey key;
+        private int protocol;
+        // Octeții unui mesaj început dar neterminat la ultima citire
+        private ByteBuffer partialMessage;
+        // Momentul ultimei citiri din socket (pentru latența până la răspuns)
+        private long readNanos;
+        // Text: răspunsuri în ordinea cererilor; unele pot aștepta decizia de admitere
+        private final ArrayDeque<PendingReply> pendingReplies;
+        // Text: cereri REQ|corrId|... încă fără răspuns (răspund în ordinea completării)
+        private int pendingCorrelated;
+        // Binar: clientul autentificat prin LOGON și ordinele încă fără ACK/REJECT
+        private String clientId;
+        private int pendingAdmissions;
+        // Ordine încheiate care așteaptă raportul de execuție (scrise de alte thread-uri)
+        private final ConcurrentLinkedQueue<Order> completedOrders;
+        private final AtomicBoolean completionsScheduled;
+        private final ArrayDeque<ByteBuffer> writeQueue;
+        private int queuedBytes;
+        // Text: restul unei linii prea lungi (deja respinse) se ignoră până la '\n'
+        private boolean discardingLine;
+        private boolean closed;
+
+        Connection(EventLoop loop, SocketChannel channel) {
+            this.loop = loop;
+            this.channel = channel;
+            this.pendingReplies = new ArrayDeque<>();
+            this.completedOrders = new ConcurrentLinkedQueue<>();
+            this.completionsScheduled = new AtomicBoolean();
+            this.writeQueue = new ArrayDeque<>();
+        }
+
+        void onReadable() {
+            ByteBuffer buffer = loop.readBuffer;
+            buffer.clear();
+            if (partialMessage != null && partialMessage.position() > 0) {
+                partialMessage.flip();
+                buffer.put(partialMessage);
+                partialMessage.clear();
+            }
+
+            int read;
+            try {
+                read = channel.read(buffer);
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            if (read < 0) {
+                close();
+                return;
+            }
+            readNanos = System.nanoTime();
+
+            buffer.flip();
+            int start = 0;
+            int limit = buffer.limit();
+            if (protocol == PROTOCOL_UNKNOWN && limit > 0) {
+                if (buffer.get(0) == BinaryProtocol.MAGIC) {
+                    protocol = PROTOCOL_BINARY;
+                    start = 1;
+                } else {
+                    protocol = PROTOCOL_TEXT;
+                }
+            }
+
+            int consumed = protocol == PROTOCOL_BINARY
+                ? processBinary(buffer, start, limit)
+                : processText(buffer, start, limit);
+
+            int remaining = limit - consumed;
+            if (!closed && remaining > 0) {
+                if (partialMessage == null || partialMessage.capacity() < remaining) {
+                    partialMessage = ByteBuffer.allocate(Math.max(remaining, 256));
+                }
+                buffer.position(consumed);
+                partialMessage.put(buffer);
+            }
+            flushOutput();
+        }
+
+        // ---------------------------------------------------------------
+        // Protocol text
+        // ---------------------------------------------------------------
+
+        private int processText(ByteBuffer buffer, int start, int limit) {
+            int lineStart = start;
+            for (int i = start; i < limit; i++) {
+                if (buffer.get(i) == '\n') {
+                    if (discardingLine) {
+                        discardingLine = false;
+                    } else {
+                        dispatch(decodeLine(buffer, lineStart, i));
+                    }
+                    lineStart = i + 1;
+                }
+            }
+            if (discardingLine) {
+                lineStart = limit;
+            } else if (limit - lineStart >= MAX_LINE_LENGTH) {
+                // Linie fără terminator peste limită: răspunde acum cu eroare și
+                // ignoră restul ei; conexiunea rămâne deschisă
+                dispatch(null);
+                discardingLine = true;
+                lineStart = limit;
+            }
+            drainReplies();
+            return lineStart;
+        }
+
+        private String decodeLine(ByteBuffer buffer, int start, int end) {
+            int length = end - start;
+            if (length > 0 && buffer.get(end - 1) == '\r') {
+                length--;
+            }
+            if (length > MAX_LINE_LENGTH) {
+                return null;
+            }
+            buffer.get(start, loop.lineBytes, 0, length);
+            return new String(loop.lineBytes, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private void dispatch(String request) {
+            if (request != null && request.isEmpty()) {
+                return;
+            }
+            PendingReply pending = new PendingReply();
+            pending.readNanos = readNanos;
+            pending.reply = request != null
+                ? handler.handle(request, pending::addOrder)
+                : CompletableFuture.completedFuture("ERROR|Linie prea lungă (max. " + MAX_LINE_LENGTH + " octeți)");
+            CompletableFuture<String> reply = pending.reply;
+
+            if (request != null && RequestHandler.isCorrelated(request)) {
+                // Răspunsul poartă ID-ul de corelare - nu așteaptă cererile anterioare
+                if (reply.isDone()) {
+                    writeReply(pending);
+                } else {
+                    pendingCorrelated++;
+                    reply.whenComplete((r, e) -> loop.execute(() -> {
+                        pendingCorrelated--;
+                        writeReply(pending);
+                        flushOutput();
+                    }));
+                }
+                return;
+            }
+
+            pendingReplies.add(pending);
+            if (!reply.isDone()) {
+                // Decizia vine de pe alt thread (shard, jurnal) - reluăm pe bucla conexiunii
+                reply.whenComplete((r, e) -> loop.execute(() -> {
+                    drainReplies();
+                    flushOutput();
+                }));
+            }
+        }
+
+        /**
+         * Pune în ieșire răspunsurile gata, în ordinea cererilor.
+         */
+        private void drainReplies() {
+            while (!pendingReplies.isEmpty() && pendingReplies.peek().reply.isDone()) {
+                writeReply(pendingReplies.poll());
+            }
+        }
+
+        /**
+         * Scrie răspunsul și abia apoi urmărește ordinele admise de cerere,
+         * ca EXEC/CANCEL să nu poată ajunge înaintea lui ACCEPTED.
+         */
+        private void writeReply(PendingReply pending) {
+            if (closed) {
+                return;
+            }
+            String text;
+            try {
+                text = pending.reply.join();
+            } catch (Exception e) {
+                text = "ERROR|" + e.getMessage();
+            }
+            writeLine(text);
+            if (pending.readNanos != 0) {
+                RequestHandler.READ_TO_ACK.recordSince(pending.readNanos);
+            }
+
+            if (pending.orders != null) {
+                for (Order order : pending.orders) {
+                    watchCompletion(order);
+                }
+            }
+        }
+
+        private void writeLine(String text) {
+            byte[] bytes = (text + "\n").getBytes(StandardCharsets.UTF_8);
+            ByteBuffer target = reserve(bytes.length);
+            target.put(target.position(), bytes);
+            commit(target, bytes.length);
+        }
+
+        // ---------------------------------------------------------------
+        // Rapoarte de execuție (ambele protocoale)
+        // ---------------------------------------------------------------
+
+        /**
+         * Programează raportul de execuție pentru un ordin admis.
+         */
+        private void watchCompletion(Order order) {
+            if (order.getAdmissionFuture().join() != OrderStatus.PENDING) {
+                return;
+            }
+            order.getResultFuture().whenComplete((status, e) -> onOrderCompleted(order));
+        }
+
+        /**
+         * Apelat de thread-ul care a încheiat ordinul. Doar prima completare
+         * dintr-un lot programează scrierea; restul se adaugă la același lot.
+         */
+        private void onOrderCompleted(Order order) {
+            completedOrders.add(order);
+            if (completionsScheduled.compareAndSet(false, true)) {
+                loop.execute(this::writeCompletions);
+            }
+        }
+
+        private void writeCompletions() {
+            completionsScheduled.set(false);
+            Order order;
+            while ((order = completedOrders.poll()) != null) {
+                if (closed) {
+                    continue;
+                }
+                if (protocol == PROTOCOL_BINARY) {
+                    sendExecutionReport(order);
+                } else {
+                    String message = RequestHandler.completionMessage(order);
+                    if (message != null) {
+                        writeLine(message);
+                    }
+                }
+            }
+            flushOutput();
+        }
+
+        // ---------------------------------------------------------------
+        // Protocol binar
+        // ---------------------------------------------------------------
+
+        private int processBinary(ByteBuffer buffer, int start, int limit) {
+            int position = start;
+            while (position < limit && !closed) {
+                byte type = buffer.get(position);
+                int length = BinaryProtocol.lengthOf(type);
+                if (length < 0) {
+                    // Fără delimitatori nu ne putem resincroniza - închidem conexiunea
+                    close();
+                    return limit;
+                }
+                if (limit - position < length) {
+                    break;
+                }
+                onBinaryMessage(buffer, position, type);
+                position += length;
+            }
+            return position;
+        }
+
+        private void onBinaryMessage(ByteBuffer buffer, int offset, byte type) {
+            switch (type) {
+                case BinaryProtocol.LOGON:
+                    // Un ID invalid lasă conexiunea neautentificată (ordinele primesc NOT_LOGGED_ON)
+                    String id = loop.logon.wrap(buffer, offset).clientId();
+                    clientId = RequestHandler.isValidClientId(id) ? id : null;
+                    break;
+                case BinaryProtocol.NEW_ORDER:
+                    onNewOrder(loop.newOrder.wrap(buffer, offset));
+                    break;
+                default:
+                    // Mesajele de răspuns nu sunt acceptate de la client
+                    close();
+                    break;
+            }
+        }
+
+        private void onNewOrder(BinaryProtocol.NewOrder message) {
+            if (clientId == null) {
+                sendReject(BinaryProtocol.REJECT_NOT_LOGGED_ON, message.clientOrderId());
+                return;
+            }
+            byte reason = handler.validate(message);
+            if (reason != 0) {
+                sendReject(reason, message.clientOrderId());
+                return;
+            }
+            Order order = handler.submit(clientId, message);
+            long requestNanos = readNanos;
+            pendingAdmissions++;
+            CompletableFuture<OrderStatus> admission = order.getAdmissionFuture();
+            if (admission.isDone()) {
+                sendAdmission(order, requestNanos);
+            } else {
+                admission.whenComplete((s, e) -> loop.execute(() -> {
+                    sendAdmission(order, requestNanos);
+                    flushOutput();
+                }));
+            }
+        }
+
+        /**
+         * ACK sau REJECT după decizia de admitere. Raportul de execuție este
+         * programat abia după ACK, ca să nu poată ajunge înaintea lui.
+         *
+         * @param readNanos Momentul citirii mesajului NEW_ORDER
+         */
+        private void sendAdmission(Order order, long readNanos) {
+            pendingAdmissions--;
+            if (closed) {
+                return;
+            }
+            if (order.getAdmissionFuture().join() != OrderStatus.PENDING) {
+                sendReject(RequestHandler.rejectCode(order), order.getClientOrderId());
+                RequestHandler.READ_TO_ACK.recordSince(readNanos);
+                return;
+            }
+
+            ByteBuffer target = reserve(BinaryProtocol.ACK_LENGTH);
+            loop.ack.wrap(target, target.position())
+                .encode(order.getClientOrderId(), order.getOrderNumber());
+            commit(target, BinaryProtocol.ACK_LENGTH);
+            RequestHandler.READ_TO_ACK.recordSince(readNanos);
+
+            watchCompletion(order);
+        }
+
+        private void sendExecutionReport(Order order) {
+            if (closed) {
+                return;
+            }
+            boolean filled = order.getStatus() == OrderStatus.EXECUTED;
+            ByteBuffer target = reserve(BinaryProtocol.EXECUTION_REPORT_LENGTH);
+            loop.executionReport.wrap(target, target.position()).encode(
+                filled ? BinaryProtocol.EXEC_FILLED : BinaryProtocol.EXEC_CANCELLED,
+                order.getClientOrderId(),
+                order.getOrderNumber(),
+                filled ? order.getExecutionPriceTicks() : 0,
+                order.getVolumeUnits());
+            commit(target, BinaryProtocol.EXECUTION_REPORT_LENGTH);
+        }
+
+        private void sendReject(byte reason, long clientOrderId) {
+            ByteBuffer target = reserve(BinaryProtocol.REJECT_LENGTH);
+            loop.reject.wrap(target, target.position()).encode(reason, clientOrderId);
+            commit(target, BinaryProtocol.REJECT_LENGTH);
+        }
+
+        // ---------------------------------------------------------------
+        // Ieșire
+        // ---------------------------------------------------------------
+
+        /**
+         * Spațiu pentru un mesaj de lungimea dată, începând la target.position().
+         * De regulă este bufferul direct al buclei; dacă socket-ul e plin și
+         * există deja date în coada de scriere, un buffer nou care va fi pus
+         * în coadă (ordinea octeților pe fir se păstrează).
+         */
+        private ByteBuffer reserve(int length) {
+            ByteBuffer out = loop.writeBuffer;
+            if (writeQueue.isEmpty() && length > out.remaining()) {
+                writeStaged(out);
+            }
+            if (writeQueue.isEmpty() && length <= out.remaining()) {
+                return out;
+            }
+            return ByteBuffer.allocate(length);
+        }
+
+        private void commit(ByteBuffer target, int length) {
+            if (target == loop.writeBuffer) {
+                target.position(target.position() + length);
+            } else {
+                enqueue(target);
+            }
+        }
+
+        /**
+         * Scrie ieșirea adunată în timpul evenimentului curent și actualizează
+         * interesul pe selector. Lasă bufferul buclei gol pentru alte conexiuni.
+         */
+        private void flushOutput() {
+            if (!closed) {
+                writeStaged(loop.writeBuffer);
+                updateInterest();
+            }
+            loop.writeBuffer.clear();
+        }
+
+        private void writeStaged(ByteBuffer out) {
+            out.flip();
+            try {
+                if (out.hasRemaining()) {
+                    channel.write(out);
+                }
+                if (out.hasRemaining()) {
+                    ByteBuffer rest = ByteBuffer.allocate(out.remaining());
+                    rest.put(out).flip();
+                    enqueue(rest);
+                }
+            } catch (IOException e) {
+                close();
+            } finally {
+                out.clear();
+            }
+        }
+
+        private void enqueue(ByteBuffer buffer) {
+            writeQueue.add(buffer);
+            queuedBytes += buffer.remaining();
+        }
+
+        void onWritable() {
+            try {
+                while (!writeQueue.isEmpty()) {
+                    ByteBuffer head = writeQueue.peek();
+                    int written = channel.write(head);
+                    queuedBytes -= written;
+                    if (head.hasRemaining()) {
+                        break;
+                    }
+                    writeQueue.poll();
+                }
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            updateInterest();
+        }
+
+        private void updateInterest() {
+            if (closed) {
+                return;
+            }
+            boolean paused = pendingReplies.size() + pendingCorrelated + pendingAdmissions >= MAX_PENDING_REPLIES
+                || queuedBytes >= MAX_QUEUED_BYTES;
+            int ops = (paused ? 0 : SelectionKey.OP_READ)
+                | (writeQueue.isEmpty() ? 0 : SelectionKey.OP_WRITE);
+            if (key.interestOps() != ops) {
+                key.interestOps(ops);
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Ignoră erori la închidere
+            }
+        }
+    }
+}
@@ -1,32 +1,75 @@
 package server;
 
-import model.*;
+import model.Order;
+import model.OrderStatus;
+import util.BinaryProtocol;
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Server TCP care ascultă pe un port și procesează ordine de la clienți.
- * Fiecare conexiune client este gestionată într-un thread separat.
+ *
+ * În modul BLOCKING fiecare conexiune client este gestionată într-un thread
+ * separat. În modul NIO un set mic de bucle de evenimente (NioServer)
+ * deservește toate conexiunile, cu aceleași protocoale (text sau binar,
+ * negociat prin primul octet al conexiunii).
  */
 public class OrderServer {
+    private static final int DEFAULT_IO_THREADS = 2;
+    // Rapoarte de execuție binare scrise împreună, cu un singur apel
+    private static final int REPORT_BATCH = 64;
+
     private final int port;
     private final TradingEngine engine;
+    private final ServerMode mode;
+    private final RequestHandler requestHandler;
     private ServerSocket serverSocket;
     private final ExecutorService clientHandlerPool;
+    private final NioServer nioServer;
     private volatile boolean running = false;
     
     public OrderServer(int port, TradingEngine engine) {
+        this(port, engine, ServerMode.BLOCKING, DEFAULT_IO_THREADS);
+    }
+    
+    /**
+     * @param mode Modul serverului
+     * @param ioThreads Numărul de bucle de evenimente (doar în modul NIO)
+     */
+    public OrderServer(int port, TradingEngine engine, ServerMode mode, int ioThreads) {
         this.port = port;
         this.engine = engine;
-        // Pool de thread-uri pentru a gestiona conexiunile clienților
-        this.clientHandlerPool = Executors.newCachedThreadPool();
+        this.mode = mode;
+        this.requestHandler = new RequestHandler(engine);
+        if (mode == ServerMode.NIO) {
+            this.clientHandlerPool = null;
+            this.nioServer = new NioServer(port, requestHandler, ioThreads);
+        } else {
+            this.nioServer = null;
+            // Pool de thread-uri pentru a gestiona conexiunile clienților
+            this.clientHandlerPool = Executors.newCachedThreadPool();
+        }
     }
     
     /**
      * Pornește serverul TCP și acceptă conexiuni de la clienți.
      */
     public void start() {
+        if (mode == ServerMode.NIO) {
+            try {
+                nioServer.start();
+                running = true;
+                System.out.println("✓ Order Server (NIO) pornit pe portul " + port);
+            } catch (IOException e) {
+                System.err.println("Eroare pornire server: " + e.getMessage());
+            }
+            return;
+        }
         try {
             serverSocket = new ServerSocket(port);
             running = true;
@@ -57,6 +100,11 @@ public class OrderServer {
      */
     public void stop() {
         running = false;
+        if (mode == ServerMode.NIO) {
+            nioServer.stop();
+            System.out.println("Order Server oprit!");
+            return;
+        }
         try {
             if (serverSocket != null && !serverSocket.isClosed()) {
                 serverSocket.close();
@@ -72,12 +120,22 @@ public class OrderServer {
     }
     
     /**
-     * Handler pentru fiecare conexiune client.
-     * Protocol: SUBMIT|clientId|instrumentId|orderType|volume|limitPrice
-     * Răspuns: ACCEPTED|orderId sau REJECTED|reason
+     * Handler pentru fiecare conexiune client (mod BLOCKING).
+     * Protocolul este ales după primul octet: BinaryProtocol.MAGIC pentru
+     * mesaje binare, altfel protocolul text interpretat de RequestHandler.
+     *
+     * Ordinele încheiate sunt raportate ca în NioServer: thread-ul engine-ului
+     * care le încheie doar le pune în coada conexiunii, iar scrierea (cu un
+     * singur flush pentru tot lotul) se face pe clientHandlerPool. Un client
+     * lent nu blochează deci niciodată shard-ul, auditul sau tick-urile.
      */
     private class ClientHandler implements Runnable {
         private final Socket socket;
+        // Ordine încheiate care așteaptă raportul (adăugate de thread-urile engine-ului)
+        private final ConcurrentLinkedQueue<Order> completedOrders = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean completionsScheduled = new AtomicBoolean();
+        // Scrierea rapoartelor, după protocolul conexiunii
+        private volatile Runnable completionWriter;
         
         public ClientHandler(Socket socket) {
             this.socket = socket;
@@ -85,15 +143,17 @@ public class OrderServer {
         
         @Override
         public void run() {
-            try (
-                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-                PrintWriter out = new PrintWriter(socket.getOutputStream(), true)
-            ) {
-                String request;
-                // Procesează cereri de la client până când se deconectează
-                while ((request = in.readLine()) != null) {
-                    String response = processRequest(request);
-                    out.println(response);
+            try (InputStream input = new BufferedInputStream(socket.getInputStream())) {
+                input.mark(1);
+                int first = input.read();
+                if (first < 0) {
+                    return;
+                }
+                if ((byte) first == BinaryProtocol.MAGIC) {
+                    new BinarySession(this, input, socket.getOutputStream()).run();
+                } else {
+                    input.reset();
+                    runText(input);
                 }
             } catch (IOException e) {
                 // Client deconectat - normal
@@ -106,96 +166,180 @@ public class OrderServer {
             }
         }
         
-        /**
-         * Procesează o cerere de la client.
-         * Format: SUBMIT|clientId|instrumentId|orderType|volume|limitPrice
-         */
-        private String processRequest(String request) {
-            try {
-                String[] parts = request.split("\\|");
-                
-                if (parts.length < 1) {
-                    return "ERROR|Format invalid";
+        private void runText(InputStream input) throws IOException {
+            BufferedReader in = new BufferedReader(new InputStreamReader(input));
+            PrintWriter out = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(socket.getOutputStream())), false);
+            completionWriter = () -> writeCompletions(out);
+            List<Order> submitted = new ArrayList<>();
+            String request;
+            // Procesează cereri de la client până când se deconectează
+            while ((request = in.readLine()) != null) {
+                long readNanos = System.nanoTime();
+                submitted.clear();
+                String response = requestHandler.handle(request, submitted::add).join();
+                synchronized (out) {
+                    out.println(response);
+                    out.flush();
                 }
-                
-                String command = parts[0];
-                
-                if ("SUBMIT".equals(command)) {
-                    return handleSubmitOrder(parts);
-                } else if ("PING".equals(command)) {
-                    return "PONG";
-                } else {
-                    return "ERROR|Comandă necunoscută: " + command;
+                RequestHandler.READ_TO_ACK.recordSince(readNanos);
+                // Rapoartele de execuție sunt urmărite abia după ce ACCEPTED a plecat
+                for (Order order : submitted) {
+                    if (order.getAdmissionFuture().join() == OrderStatus.PENDING) {
+                        order.getResultFuture().whenComplete((status, e) -> onOrderCompleted(order));
+                    }
                 }
-                
-            } catch (Exception e) {
-                return "ERROR|" + e.getMessage();
             }
         }
         
         /**
-         * Gestionează comanda SUBMIT pentru plasarea unui ordin.
-         * Format: SUBMIT|clientId|instrumentId|orderType|volume|limitPrice
+         * Apelat de thread-ul care a încheiat ordinul. Doar prima completare
+         * dintr-un lot programează scrierea; restul se adaugă la același lot.
          */
-        private String handleSubmitOrder(String[] parts) {
-            if (parts.length != 6) {
-                return "ERROR|Format SUBMIT invalid. Așteptat: SUBMIT|clientId|instrumentId|orderType|volume|limitPrice";
+        void onOrderCompleted(Order order) {
+            completedOrders.add(order);
+            if (completionsScheduled.compareAndSet(false, true)) {
+                try {
+                    clientHandlerPool.execute(completionWriter);
+                } catch (RejectedExecutionException e) {
+                    // Serverul se oprește - rapoartele se pierd odată cu conexiunea
+                }
             }
-            
-            try {
-                String clientId = parts[1];
-                String instrumentId = parts[2];
-                String orderTypeStr = parts[3];
-                double volume = Double.parseDouble(parts[4]);
-                double limitPrice = Double.parseDouble(parts[5]);
-                
-                // Găsește instrumentul
-                Instrument instrument = engine.getInstruments().values().stream()
-                    .filter(i -> i.getId().equals(instrumentId))
-                    .findFirst()
-                    .orElse(null);
-                
-                if (instrument == null) {
-                    return "REJECTED|Instrument inexistent: " + instrumentId;
+        }
+        
+        /**
+         * Trimite EXEC/CANCEL pentru ordinele adunate, cu un singur flush.
+         */
+        private void writeCompletions(PrintWriter out) {
+            completionsScheduled.set(false);
+            synchronized (out) {
+                Order completed;
+                while ((completed = completedOrders.poll()) != null) {
+                    String message = RequestHandler.completionMessage(completed);
+                    if (message != null) {
+                        out.println(message);
+                    }
                 }
-                
-                // Parse order type
-                OrderType orderType;
-                try {
-                    orderType = OrderType.valueOf(orderTypeStr);
-                } catch (IllegalArgumentException e) {
-                    return "REJECTED|Tip ordin invalid: " + orderTypeStr;
+                out.flush();
+            }
+        }
+    }
+    
+    /**
+     * Sesiune binară pe o conexiune blocantă. Mesajele sunt citite într-un
+     * buffer refolosit; ACK-ul se trimite după decizia de admitere, iar
+     * rapoartele de execuție sunt scrise pe loturi de thread-ul de scriere al
+     * conexiunii (ClientHandler), de aceea scrierea este sincronizată.
+     */
+    private class BinarySession {
+        private final ClientHandler handler;
+        private final DataInputStream in;
+        private final OutputStream out;
+        private final ByteBuffer inBuffer = ByteBuffer.allocate(BinaryProtocol.NEW_ORDER_LENGTH);
+        private final ByteBuffer outBuffer = ByteBuffer.allocate(BinaryProtocol.EXECUTION_REPORT_LENGTH);
+        private final ByteBuffer reportBuffer =
+            ByteBuffer.allocate(BinaryProtocol.EXECUTION_REPORT_LENGTH * REPORT_BATCH);
+        private final BinaryProtocol.Logon logon = new BinaryProtocol.Logon();
+        private final BinaryProtocol.NewOrder newOrder = new BinaryProtocol.NewOrder();
+        private final BinaryProtocol.Ack ack = new BinaryProtocol.Ack();
+        private final BinaryProtocol.Reject reject = new BinaryProtocol.Reject();
+        private final BinaryProtocol.ExecutionReport executionReport = new BinaryProtocol.ExecutionReport();
+        private String clientId;
+        
+        BinarySession(ClientHandler handler, InputStream input, OutputStream output) {
+            this.handler = handler;
+            this.in = new DataInputStream(input);
+            this.out = new BufferedOutputStream(output, 4096);
+            handler.completionWriter = this::writeExecutionReports;
+        }
+        
+        void run() throws IOException {
+            byte[] frame = inBuffer.array();
+            int type;
+            while ((type = in.read()) >= 0) {
+                int length = BinaryProtocol.lengthOf((byte) type);
+                if (length < 0 || length > frame.length) {
+                    return; // Tip necunoscut - nu ne putem resincroniza
                 }
+                frame[0] = (byte) type;
+                in.readFully(frame, 1, length - 1);
+                long readNanos = System.nanoTime();
                 
-                // Creează și trimite ordinul la engine
-                Order order = new Order(
-                    util.IdGenerator.generateOrderId(),
-                    clientId,
-                    instrument,
-                    orderType,
-                    volume,
-                    limitPrice
-                );
-                
-                // submitOrder returnează CompletableFuture<OrderStatus>
-                // Pentru simplitate, returnăm ACCEPTED dacă ordinul a fost pus în coadă
-                // Statusul real va fi procesat de AuditService
-                CompletableFuture<OrderStatus> future = engine.submitOrder(order);
-                
-                // Verificăm statusul inițial al ordinului (PENDING sau REJECTED)
-                OrderStatus initialStatus = order.getStatus();
-                
-                if (initialStatus == OrderStatus.PENDING) {
-                    return "ACCEPTED|" + order.getOrderId();
+                if (type == BinaryProtocol.LOGON) {
+                    // Un ID invalid lasă conexiunea neautentificată (ordinele primesc NOT_LOGGED_ON)
+                    String id = logon.wrap(inBuffer, 0).clientId();
+                    clientId = RequestHandler.isValidClientId(id) ? id : null;
+                } else if (type == BinaryProtocol.NEW_ORDER) {
+                    onNewOrder(newOrder.wrap(inBuffer, 0), readNanos);
                 } else {
-                    return "REJECTED|" + initialStatus;
+                    return;
                 }
-                
-            } catch (NumberFormatException e) {
-                return "ERROR|Volume sau limitPrice invalid";
-            } catch (Exception e) {
-                return "ERROR|" + e.getMessage();
             }
         }
+        
+        private void onNewOrder(BinaryProtocol.NewOrder message, long readNanos) throws IOException {
+            if (clientId == null) {
+                sendReject(BinaryProtocol.REJECT_NOT_LOGGED_ON, message.clientOrderId());
+                return;
+            }
+            byte reason = requestHandler.validate(message);
+            if (reason != 0) {
+                sendReject(reason, message.clientOrderId());
+                return;
+            }
+            Order order = requestHandler.submit(clientId, message);
+            if (order.getAdmissionFuture().join() != OrderStatus.PENDING) {
+                sendReject(RequestHandler.rejectCode(order), order.getClientOrderId());
+                RequestHandler.READ_TO_ACK.recordSince(readNanos);
+                return;
+            }
+            synchronized (this) {
+                ack.wrap(outBuffer, 0).encode(order.getClientOrderId(), order.getOrderNumber());
+                write(BinaryProtocol.ACK_LENGTH);
+            }
+            RequestHandler.READ_TO_ACK.recordSince(readNanos);
+            order.getResultFuture().whenComplete((status, e) -> handler.onOrderCompleted(order));
+        }
+        
+        private synchronized void sendReject(byte reason, long clientOrderId) throws IOException {
+            reject.wrap(outBuffer, 0).encode(reason, clientOrderId);
+            write(BinaryProtocol.REJECT_LENGTH);
+        }
+        
+        /**
+         * Scrie rapoartele de execuție adunate, câte REPORT_BATCH într-un apel,
+         * cu un singur flush la final.
+         */
+        private synchronized void writeExecutionReports() {
+            handler.completionsScheduled.set(false);
+            int length = 0;
+            try {
+                Order order;
+                while ((order = handler.completedOrders.poll()) != null) {
+                    boolean filled = order.getStatus() == OrderStatus.EXECUTED;
+                    executionReport.wrap(reportBuffer, length).encode(
+                        filled ? BinaryProtocol.EXEC_FILLED : BinaryProtocol.EXEC_CANCELLED,
+                        order.getClientOrderId(),
+                        order.getOrderNumber(),
+                        filled ? order.getExecutionPriceTicks() : 0,
+                        order.getVolumeUnits());
+                    length += BinaryProtocol.EXECUTION_REPORT_LENGTH;
+                    if (length == reportBuffer.capacity()) {
+                        out.write(reportBuffer.array(), 0, length);
+                        length = 0;
+                    }
+                }
+                out.write(reportBuffer.array(), 0, length);
+                out.flush();
+            } catch (IOException e) {
+                // Client deconectat - rapoartele se pierd
+                handler.completedOrders.clear();
+            }
+        }
+        
+        private void write(int length) throws IOException {
+            out.write(outBuffer.array(), 0, length);
+            out.flush();
+        }
     }
 }
@@ -0,0 +1,390 @@
+package server;
+
+import model.Instrument;
+import model.InstrumentRegistry;
+import model.Order;
+import model.OrderStatus;
+import model.OrderType;
+import util.LongLongHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Depozitul ordinelor engine-ului, indexat după numărul ordinului.
+ *
+ * Ordinele active (PENDING) sunt ținute ca obiecte Order în sloturi
+ * refolosibile. Când un ordin ajunge într-o stare finală (EXECUTED,
+ * CANCELLED, REJECTED) este copiat într-o formă compactă, pe coloane, în
+ * bucăți (chunk-uri) append-only, iar obiectul Order nu mai este referit de
+ * depozit. Bucățile cele mai vechi sunt eliminate după politica de retenție
+ * (număr maxim de ordine arhivate și vechime maximă), deci memoria rămâne
+ * mărginită oricât ar rula serverul.
+ *
+ * Indexul numărOrdin -> poziție este un LongLongHashMap (fără boxing).
+ * Depozitul este împărțit în segmente după numărul ordinului, fiecare cu
+ * lock-ul lui, ca admiterea de pe thread-uri diferite să nu se blocheze
+ * reciproc. Toate operațiile sunt O(1) (amortizat).
+ */
+class OrderStore {
+    private static final int SEGMENTS = 16;
+    private static final int CHUNK_SIZE = 1024;
+    // Valoarea din index pentru chei absente
+    private static final long MISSING = Long.MIN_VALUE;
+
+    private static final OrderType[] ORDER_TYPES = OrderType.values();
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private final InstrumentRegistry registry;
+    private final Segment[] segments;
+    private volatile int maxArchivedPerSegment;
+    private volatile long retentionMillis;
+
+    /**
+     * @param maxArchivedOrders Numărul maxim de ordine finalizate păstrate
+     * @param retentionMillis Vechimea maximă a unui ordin finalizat
+     */
+    OrderStore(InstrumentRegistry registry, int maxArchivedOrders, long retentionMillis) {
+        this.registry = registry;
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+        setRetention(maxArchivedOrders, retentionMillis);
+    }
+
+    /**
+     * Schimbă politica de retenție; se aplică la următoarele arhivări.
+     */
+    void setRetention(int maxArchivedOrders, long retentionMillis) {
+        if (maxArchivedOrders < 0 || retentionMillis <= 0) {
+            throw new IllegalArgumentException("Retenție invalidă: " + maxArchivedOrders +
+                                               " ordine / " + retentionMillis + " ms");
+        }
+        this.maxArchivedPerSegment = (maxArchivedOrders + SEGMENTS - 1) / SEGMENTS;
+        this.retentionMillis = retentionMillis;
+    }
+
+    /**
+     * Adaugă un ordin activ (admis).
+     */
+    void add(Order order) {
+        segmentOf(order.getOrderNumber()).add(order);
+    }
+
+    /**
+     * Mută un ordin în arhivă după ce a ajuns într-o stare finală. Ordinele
+     * care nu au fost niciodată active (respinse) sunt arhivate direct.
+     */
+    void archive(Order order) {
+        segmentOf(order.getOrderNumber()).archive(order, System.currentTimeMillis());
+    }
+
+    /**
+     * Ordinul activ cu numărul dat sau null (inexistent, finalizat sau eliminat).
+     */
+    Order getActive(long orderNumber) {
+        return segmentOf(orderNumber).getActive(orderNumber);
+    }
+
+    /**
+     * Copie a ordinelor active (pentru raportul de audit).
+     */
+    List<Order> getActiveOrders() {
+        List<Order> orders = new ArrayList<>();
+        for (Segment segment : segments) {
+            segment.collectActive(orders);
+        }
+        return orders;
+    }
+
+    /**
+     * Copiază starea unui ordin (activ sau arhivat) în record, fără alocări.
+     *
+     * @return false dacă ordinul nu este cunoscut (sau a fost eliminat)
+     */
+    boolean lookup(long orderNumber, OrderRecord into) {
+        return segmentOf(orderNumber).lookup(orderNumber, into);
+    }
+
+    long getActiveCount() {
+        long total = 0;
+        for (Segment segment : segments) {
+            total += segment.activeCount();
+        }
+        return total;
+    }
+
+    long getArchivedCount() {
+        long total = 0;
+        for (Segment segment : segments) {
+            total += segment.archivedCount();
+        }
+        return total;
+    }
+
+    long getEvictedCount() {
+        long total = 0;
+        for (Segment segment : segments) {
+            total += segment.evictedCount();
+        }
+        return total;
+    }
+
+    private Segment segmentOf(long orderNumber) {
+        return segments[(int) (orderNumber & (SEGMENTS - 1))];
+    }
+
+    /**
+     * Starea unui ordin citită din depozit (refolosibilă între căutări).
+     */
+    static final class OrderRecord {
+        private long orderNumber;
+        private long clientOrderId;
+        private String clientId;
+        private Instrument instrument;
+        private OrderType orderType;
+        private OrderStatus status;
+        private long volumeUnits;
+        private long limitPriceTicks;
+        private long executionPriceTicks;
+        private long createdMillis;
+
+        long getOrderNumber() {
+            return orderNumber;
+        }
+
+        long getClientOrderId() {
+            return clientOrderId;
+        }
+
+        String getClientId() {
+            return clientId;
+        }
+
+        Instrument getInstrument() {
+            return instrument;
+        }
+
+        OrderType getOrderType() {
+            return orderType;
+        }
+
+        OrderStatus getStatus() {
+            return status;
+        }
+
+        long getVolumeUnits() {
+            return volumeUnits;
+        }
+
+        long getLimitPriceTicks() {
+            return limitPriceTicks;
+        }
+
+        long getExecutionPriceTicks() {
+            return executionPriceTicks;
+        }
+
+        long getCreatedMillis() {
+            return createdMillis;
+        }
+
+        private void copyFrom(Order order) {
+            this.orderNumber = order.getOrderNumber();
+            this.clientOrderId = order.getClientOrderId();
+            this.clientId = order.getClientId();
+            this.instrument = order.getInstrument();
+            this.orderType = order.getOrderType();
+            this.status = order.getStatus();
+            this.volumeUnits = order.getVolumeUnits();
+            this.limitPriceTicks = order.getLimitPriceTicks();
+            this.executionPriceTicks = order.getExecutionPriceTicks();
+            this.createdMillis = order.getCreatedMillis();
+        }
+    }
+
+    /**
+     * Bucată de arhivă: CHUNK_SIZE ordine finalizate, pe coloane.
+     */
+    private static final class ArchiveChunk {
+        final long[] orderNumbers = new long[CHUNK_SIZE];
+        final long[] clientOrderIds = new long[CHUNK_SIZE];
+        final String[] clientIds = new String[CHUNK_SIZE];
+        final int[] instrumentIndexes = new int[CHUNK_SIZE];
+        // tipul ordinului (4 biți superiori) și statusul final (4 biți inferiori)
+        final byte[] typeAndStatus = new byte[CHUNK_SIZE];
+        final long[] volumeUnits = new long[CHUNK_SIZE];
+        final long[] limitPriceTicks = new long[CHUNK_SIZE];
+        final long[] executionPriceTicks = new long[CHUNK_SIZE];
+        final long[] createdMillis = new long[CHUNK_SIZE];
+        long lastArchivedMillis;
+    }
+
+    /**
+     * Un segment: ordinele ale căror numere cad în el. Valoarea din index este
+     * slotul ordinului activ (>= 0) sau -(secvența din arhivă + 1).
+     */
+    private final class Segment {
+        private final LongLongHashMap index = new LongLongHashMap(1024, MISSING);
+        private Order[] active = new Order[64];
+        private int[] freeSlots = new int[64];
+        private int freeCount;
+        private int usedSlots;
+        private int activeCount;
+
+        private final List<ArchiveChunk> chunks = new ArrayList<>();
+        // Secvența primei înregistrări din chunks.get(0) și a următoarei înregistrări
+        private long firstSequence;
+        private long nextSequence;
+        private ArchiveChunk spareChunk;
+        private long evicted;
+
+        synchronized void add(Order order) {
+            int slot;
+            if (freeCount > 0) {
+                slot = freeSlots[--freeCount];
+            } else {
+                if (usedSlots == active.length) {
+                    active = Arrays.copyOf(active, active.length * 2);
+                }
+                slot = usedSlots++;
+            }
+            active[slot] = order;
+            activeCount++;
+            if (order.getOrderNumber() != 0) {
+                index.put(order.getOrderNumber(), slot);
+            }
+        }
+
+        synchronized void archive(Order order, long nowMillis) {
+            long orderNumber = order.getOrderNumber();
+            long handle = index.get(orderNumber);
+            if (handle >= 0 && active[(int) handle] == order) {
+                releaseSlot((int) handle);
+            }
+
+            long sequence = nextSequence++;
+            int position = (int) (sequence - firstSequence) % CHUNK_SIZE;
+            if (position == 0) {
+                chunks.add(newChunk());
+            }
+            ArchiveChunk chunk = chunks.get(chunks.size() - 1);
+            chunk.orderNumbers[position] = orderNumber;
+            chunk.clientOrderIds[position] = order.getClientOrderId();
+            chunk.clientIds[position] = order.getClientId();
+            chunk.instrumentIndexes[position] = order.getInstrument().getIndex();
+            chunk.typeAndStatus[position] =
+                (byte) (order.getOrderType().ordinal() << 4 | order.getStatus().ordinal());
+            chunk.volumeUnits[position] = order.getVolumeUnits();
+            chunk.limitPriceTicks[position] = order.getLimitPriceTicks();
+            chunk.executionPriceTicks[position] = order.getExecutionPriceTicks();
+            chunk.createdMillis[position] = order.getCreatedMillis();
+            chunk.lastArchivedMillis = nowMillis;
+            if (orderNumber != 0) {
+                index.put(orderNumber, -(sequence + 1));
+            }
+
+            evictExpired(nowMillis);
+        }
+
+        synchronized Order getActive(long orderNumber) {
+            long handle = index.get(orderNumber);
+            return handle >= 0 ? active[(int) handle] : null;
+        }
+
+        synchronized boolean lookup(long orderNumber, OrderRecord into) {
+            long handle = index.get(orderNumber);
+            if (handle == MISSING) {
+                return false;
+            }
+            if (handle >= 0) {
+                into.copyFrom(active[(int) handle]);
+                return true;
+            }
+            long offset = -handle - 1 - firstSequence;
+            ArchiveChunk chunk = chunks.get((int) (offset / CHUNK_SIZE));
+            int position = (int) (offset % CHUNK_SIZE);
+            into.orderNumber = chunk.orderNumbers[position];
+            into.clientOrderId = chunk.clientOrderIds[position];
+            into.clientId = chunk.clientIds[position];
+            into.instrument = registry.get(chunk.instrumentIndexes[position]);
+            into.orderType = ORDER_TYPES[chunk.typeAndStatus[position] >>> 4 & 0x0F];
+            into.status = STATUSES[chunk.typeAndStatus[position] & 0x0F];
+            into.volumeUnits = chunk.volumeUnits[position];
+            into.limitPriceTicks = chunk.limitPriceTicks[position];
+            into.executionPriceTicks = chunk.executionPriceTicks[position];
+            into.createdMillis = chunk.createdMillis[position];
+            return true;
+        }
+
+        synchronized void collectActive(List<Order> out) {
+            for (int slot = 0; slot < usedSlots; slot++) {
+                if (active[slot] != null) {
+                    out.add(active[slot]);
+                }
+            }
+        }
+
+        synchronized long activeCount() {
+            return activeCount;
+        }
+
+        synchronized long archivedCount() {
+            return nextSequence - firstSequence;
+        }
+
+        synchronized long evictedCount() {
+            return evicted;
+        }
+
+        private void releaseSlot(int slot) {
+            active[slot] = null;
+            activeCount--;
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+            }
+            freeSlots[freeCount++] = slot;
+        }
+
+        /**
+         * Elimină bucățile pline cele mai vechi care depășesc retenția.
+         * Bucata curentă (în care se scrie) nu este eliminată niciodată.
+         */
+        private void evictExpired(long nowMillis) {
+            while (chunks.size() > 1) {
+                ArchiveChunk oldest = chunks.get(0);
+                boolean overCount = nextSequence - firstSequence - CHUNK_SIZE >= maxArchivedPerSegment;
+                boolean overAge = oldest.lastArchivedMillis < nowMillis - retentionMillis;
+                if (!overCount && !overAge) {
+                    return;
+                }
+                evictChunk(oldest);
+            }
+        }
+
+        private void evictChunk(ArchiveChunk chunk) {
+            for (int i = 0; i < CHUNK_SIZE; i++) {
+                long orderNumber = chunk.orderNumbers[i];
+                // Ordinul poate fi indexat din nou în altă parte (ex.: refăcut din jurnal)
+                if (orderNumber != 0 && index.get(orderNumber) == -(firstSequence + i + 1)) {
+                    index.remove(orderNumber);
+                }
+            }
+            chunks.remove(0);
+            Arrays.fill(chunk.clientIds, null);
+            spareChunk = chunk;
+            firstSequence += CHUNK_SIZE;
+            evicted += CHUNK_SIZE;
+        }
+
+        private ArchiveChunk newChunk() {
+            ArchiveChunk chunk = spareChunk;
+            if (chunk != null) {
+                spareChunk = null;
+                return chunk;
+            }
+            return new ArchiveChunk();
+        }
+    }
+}
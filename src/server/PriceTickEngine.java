@@ -0,0 +1,169 @@
+package server;
+
+import model.Instrument;
+import util.BulkPriceSimulator;
+import util.LatencyHistogram;
+import util.Metrics;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Planificator de tick-uri de preț, separat de ciclul de audit.
+ *
+ * Un thread dedicat avansează prețurile tuturor instrumentelor la un interval
+ * fix (până sub o milisecundă), cu dt egal cu intervalul, deci varianța pe
+ * secundă rămâne cea a modelului. După fiecare tick, instrumentele al căror
+ * preț s-a schimbat cu cel puțin un tick cer imediat evaluarea ordinelor lor
+ * (pe shard-ul care le deține, în modul SHARDED). Auditul rămâne la ritmul
+ * lui lent și doar raportează prețurile curente.
+ *
+ * Așteptarea până la următorul tick se face cu park, apoi activ în ultimele
+ * SPIN_THRESHOLD_NANOS, pentru precizie la intervale mici. Dacă un tick
+ * durează mai mult decât intervalul, tick-urile ratate nu se recuperează în
+ * rafală: sunt sărite și numărate (prices.ticks_missed).
+ *
+ * Prețurile se simulează mereu cu BulkPriceSimulator, care le ține în double
+ * între tick-uri și rotunjește doar la publicare: la intervale mici pasul
+ * mu * dt este mult sub un tick de preț și s-ar pierde la rotunjire. Un
+ * univers mic are o singură partiție, simulată pe thread-ul de tick-uri.
+ */
+public class PriceTickEngine {
+    private static final long SPIN_THRESHOLD_NANOS = 50_000;
+    private static final LongAdder TICKS = Metrics.counter("prices.ticks");
+    private static final LongAdder MISSED_TICKS = Metrics.counter("prices.ticks_missed");
+    private static final LatencyHistogram TICK_LATENCY = Metrics.histogram("prices.tick");
+
+    private final TradingEngine engine;
+    private final Instrument[] instruments;
+    private final long[] publishedTicks;
+    private final int[] movedIndexes;
+    private final long intervalNanos;
+    private final BulkPriceSimulator simulator;
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * Constructor cu sămânță aleatoare.
+     *
+     * @param intervalNanos Intervalul dintre tick-uri
+     */
+    public PriceTickEngine(TradingEngine engine, long intervalNanos) {
+        this(engine, intervalNanos, false, 0);
+    }
+
+    /**
+     * Constructor cu sămânță fixă pentru simularea prețurilor.
+     */
+    public PriceTickEngine(TradingEngine engine, long intervalNanos, long seed) {
+        this(engine, intervalNanos, true, seed);
+    }
+
+    private PriceTickEngine(TradingEngine engine, long intervalNanos, boolean seeded, long seed) {
+        if (intervalNanos <= 0) {
+            throw new IllegalArgumentException("Interval de tick invalid: " + intervalNanos);
+        }
+        List<Instrument> all = engine.getRegistry().instruments();
+        double dt = intervalNanos / 1e9;
+        this.engine = engine;
+        this.instruments = all.toArray(new Instrument[0]);
+        this.publishedTicks = new long[instruments.length];
+        this.movedIndexes = new int[instruments.length];
+        this.intervalNanos = intervalNanos;
+        this.simulator = seeded ? new BulkPriceSimulator(all, dt, seed) : new BulkPriceSimulator(all, dt);
+    }
+
+    /**
+     * Pornește thread-ul de tick-uri (de la prețurile curente ale instrumentelor).
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        for (int i = 0; i < instruments.length; i++) {
+            publishedTicks[i] = instruments[i].getCurrentPriceTicks();
+        }
+        simulator.reload();
+        running = true;
+        thread = new Thread(this::run, "PriceTickEngine");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Oprește thread-ul de tick-uri și așteaptă terminarea lui.
+     */
+    public synchronized void stop() {
+        running = false;
+        Thread t = thread;
+        if (t != null) {
+            LockSupport.unpark(t);
+            try {
+                t.join(2_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    private void run() {
+        long next = System.nanoTime() + intervalNanos;
+        while (running) {
+            long wait = next - System.nanoTime();
+            if (wait > SPIN_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(this, wait - SPIN_THRESHOLD_NANOS);
+                continue;
+            }
+            if (wait > 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+
+            long start = System.nanoTime();
+            try {
+                tick();
+            } catch (RuntimeException e) {
+                System.err.println("Eroare tick de preț: " + e.getMessage());
+            }
+            TICK_LATENCY.recordSince(start);
+
+            next += intervalNanos;
+            long behind = System.nanoTime() - next;
+            if (behind > intervalNanos) {
+                long missed = behind / intervalNanos;
+                MISSED_TICKS.add(missed);
+                next += missed * intervalNanos;
+            }
+        }
+    }
+
+    /**
+     * Avansează toate prețurile cu un pas și cere evaluarea ordinelor
+     * instrumentelor al căror preț (în tick-uri) s-a schimbat.
+     */
+    private void tick() {
+        simulator.updateAllPrices();
+
+        int moved = 0;
+        for (int i = 0; i < instruments.length; i++) {
+            long ticks = instruments[i].getCurrentPriceTicks();
+            if (ticks != publishedTicks[i]) {
+                publishedTicks[i] = ticks;
+                movedIndexes[moved++] = i;
+            }
+        }
+        if (moved > 0) {
+            // Captura vede prețurile înaintea execuțiilor pe care le declanșează
+            engine.recordPrices(System.currentTimeMillis());
+            for (int k = 0; k < moved; k++) {
+                engine.requestMatch(instruments[movedIndexes[k]]);
+            }
+        }
+        TICKS.increment();
+    }
+}
@@ -0,0 +1,186 @@
+package server;
+
+import model.Instrument;
+import model.InstrumentRegistry;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Comisioane, P&L și profit net, ținute incremental pe măsură ce au loc execuțiile.
+ *
+ * Execuțiile adună exact, în unități de notional, în câte un LongAdder per
+ * instrument și marchează instrumentul ca modificat. publish() construiește
+ * un Snapshot imuabil nou doar din instrumentele modificate de la publicarea
+ * anterioară (restul valorilor și totalurile globale sunt preluate din
+ * snapshot-ul precedent) și îl publică printr-o referință volatilă. Orice
+ * cititor (audit, consolă, interogări) ia snapshot-ul curent în O(1), fără
+ * copierea vreunui map.
+ */
+public class ProfitAnalytics {
+    private final InstrumentRegistry registry;
+    private final LongAdder[] commissionUnits;
+    private final LongAdder[] pnlUnits;
+    private final AtomicIntegerArray dirty;
+    private final LongAdder executions;
+    private volatile Snapshot current;
+
+    ProfitAnalytics(InstrumentRegistry registry) {
+        int size = registry.size();
+        this.registry = registry;
+        this.commissionUnits = new LongAdder[size];
+        this.pnlUnits = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            commissionUnits[i] = new LongAdder();
+            pnlUnits[i] = new LongAdder();
+        }
+        this.dirty = new AtomicIntegerArray(size);
+        this.executions = new LongAdder();
+        this.current = new Snapshot(registry, 0, System.currentTimeMillis(), 0,
+                                    new double[size], new double[size], 0.0, 0.0);
+    }
+
+    /**
+     * Înregistrează o execuție (apelat de thread-ul care a executat ordinul).
+     *
+     * @param pnlUnits Încasare (+) sau plată (-), în unități de notional
+     */
+    void recordExecution(int instrumentIndex, long commissionUnits, long pnlUnits) {
+        this.commissionUnits[instrumentIndex].add(commissionUnits);
+        this.pnlUnits[instrumentIndex].add(pnlUnits);
+        executions.increment();
+        dirty.set(instrumentIndex, 1);
+    }
+
+    /**
+     * Adaugă totalurile refăcute din jurnal (la pornire).
+     */
+    void restore(int instrumentIndex, long commissionUnits, long pnlUnits) {
+        this.commissionUnits[instrumentIndex].add(commissionUnits);
+        this.pnlUnits[instrumentIndex].add(pnlUnits);
+        dirty.set(instrumentIndex, 1);
+    }
+
+    /**
+     * Publică un snapshot nou dacă au existat execuții de la cel anterior.
+     * Costul este proporțional cu numărul de instrumente modificate (plus o
+     * copiere de tablou).
+     *
+     * @return Snapshot-ul curent (nou sau cel anterior, dacă nimic nu s-a schimbat)
+     */
+    synchronized Snapshot publish() {
+        Snapshot previous = current;
+        double[] commissions = null;
+        double[] pnl = null;
+        double totalCommission = previous.totalCommission;
+        double totalPnL = previous.totalPnL;
+
+        for (int i = 0; i < commissionUnits.length; i++) {
+            // Steagul se șterge înainte de citire: o execuție concurentă îl va pune din nou
+            if (dirty.get(i) == 0 || dirty.getAndSet(i, 0) == 0) {
+                continue;
+            }
+            if (commissions == null) {
+                commissions = previous.commissions.clone();
+                pnl = previous.pnl.clone();
+            }
+            Instrument instrument = registry.get(i);
+            double commission = instrument.notionalFromUnits(commissionUnits[i].sum());
+            double value = instrument.notionalFromUnits(pnlUnits[i].sum());
+            totalCommission += commission - commissions[i];
+            totalPnL += value - pnl[i];
+            commissions[i] = commission;
+            pnl[i] = value;
+        }
+        if (commissions == null) {
+            return previous;
+        }
+
+        Snapshot next = new Snapshot(registry, previous.version + 1, System.currentTimeMillis(),
+                                     executions.sum(), commissions, pnl,
+                                     totalCommission, totalPnL);
+        current = next;
+        return next;
+    }
+
+    /**
+     * Ultimul snapshot publicat (O(1), fără copiere).
+     */
+    public Snapshot getSnapshot() {
+        return current;
+    }
+
+    /**
+     * Stare imuabilă a profitului la un moment dat. Versiunea crește cu
+     * fiecare publicare, deci doi cititori pot compara ușor ce au văzut.
+     */
+    public static final class Snapshot {
+        private final InstrumentRegistry registry;
+        private final long version;
+        private final long timestampMillis;
+        private final long executionCount;
+        private final double[] commissions;
+        private final double[] pnl;
+        private final double totalCommission;
+        private final double totalPnL;
+
+        private Snapshot(InstrumentRegistry registry, long version, long timestampMillis,
+                         long executionCount, double[] commissions, double[] pnl,
+                         double totalCommission, double totalPnL) {
+            this.registry = registry;
+            this.version = version;
+            this.timestampMillis = timestampMillis;
+            this.executionCount = executionCount;
+            this.commissions = commissions;
+            this.pnl = pnl;
+            this.totalCommission = totalCommission;
+            this.totalPnL = totalPnL;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public long getTimestampMillis() {
+            return timestampMillis;
+        }
+
+        /**
+         * Numărul de execuții incluse în snapshot.
+         */
+        public long getExecutionCount() {
+            return executionCount;
+        }
+
+        public int getInstrumentCount() {
+            return commissions.length;
+        }
+
+        public Instrument getInstrument(int index) {
+            return registry.get(index);
+        }
+
+        public double getCommission(int index) {
+            return commissions[index];
+        }
+
+        public double getPnL(int index) {
+            return pnl[index];
+        }
+
+        public double getNetProfit(int index) {
+            return commissions[index] + pnl[index];
+        }
+
+        public double getTotalCommission() {
+            return totalCommission;
+        }
+
+        public double getTotalPnL() {
+            return totalPnL;
+        }
+
+        public double getNetProfit() {
+            return totalCommission + totalPnL;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package server;
+
+import model.Instrument;
+import model.InstrumentRegistry;
+import model.Order;
+import util.RingBuffer;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Înregistrează fluxul de intrare al engine-ului (ordine, anulări cerute de
+ * clienți, tick-urile la care se procesează ordinele pending și prețurile
+ * avansate de PriceTickEngine) cu
+ * timp logic: milisecunde de la începutul capturii. Replay reia captura
+ * printr-un engine nou, determinist.
+ *
+ * Producătorii pun evenimentele într-un RingBuffer fără să aștepte; un singur
+ * thread le scrie secvențial în fișier. Ordinea din captură este ordinea în
+ * care producătorii au intrat în coadă: ea devine ordinea canonică a
+ * încărcării (la rulare, thread-uri concurente pot ajunge în engine în altă
+ * ordine, dar orice reluare a capturii dă același rezultat).
+ *
+ * Format (DataOutputStream, big-endian):
+ *   antet: MAGIC, VERSION, startMillis, TTL implicit, limitele clienților
+ *          (volum, notional), numărul de instrumente, apoi pentru fiecare:
+ *          id, preț (tick-uri), lichiditate maximă, volatilitate, trend,
+ *          scala prețului, scala volumului, lichiditate disponibilă (unități)
+ *   ORDER:  tip, timp, orderId, clientOrderId, clientId, index instrument,
+ *           tip ordin, volum (unități), limită (tick-uri), ttlMillis
+ *   CANCEL: tip, timp, număr ordin
+ *   TICK:   tip, timp, prețul fiecărui instrument (tick-uri, în ordinea indexului)
+ *   PRICES: ca TICK; se evaluează doar instrumentele al căror preț s-a schimbat (din versiunea 2)
+ */
+public final class Recorder implements AutoCloseable {
+    public static final int MAGIC = 0x52504C59; // "RPLY"
+    public static final int VERSION = 2;
+
+    // Tipuri de evenimente
+    static final byte ORDER = 1;
+    static final byte CANCEL = 2;
+    static final byte TICK = 3;
+    static final byte PRICES = 4;
+
+    private static final int QUEUE_CAPACITY = 1 << 16;
+    private static final long IDLE_PARK_NANOS = 1_000_000; // 1 ms
+
+    /**
+     * Un eveniment în drum spre fișier.
+     */
+    private static final class Event {
+        final byte type;
+        final long timeMillis;
+        final Order order;
+        final long orderNumber;
+        final long[] prices;
+
+        Event(byte type, long timeMillis, Order order, long orderNumber, long[] prices) {
+            this.type = type;
+            this.timeMillis = timeMillis;
+            this.order = order;
+            this.orderNumber = orderNumber;
+            this.prices = prices;
+        }
+    }
+
+    private final Path file;
+    private final DataOutputStream out;
+    private final RingBuffer<Event> queue;
+    private final AtomicLong eventCount;
+    private long startMillis;
+    private Thread writerThread;
+    private volatile boolean running;
+    private volatile boolean parked;
+    private volatile boolean failed;
+
+    private Recorder(Path file) throws IOException {
+        this.file = file;
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        this.queue = new RingBuffer<>(QUEUE_CAPACITY);
+        this.eventCount = new AtomicLong();
+    }
+
+    /**
+     * Creează (sau suprascrie) fișierul de captură. Înregistrarea pornește
+     * la TradingEngine.attachRecorder().
+     */
+    public static Recorder open(Path file) throws IOException {
+        return new Recorder(file);
+    }
+
+    /**
+     * Scrie antetul cu starea de pornire a engine-ului și pornește thread-ul de scriere.
+     */
+    synchronized void start(TradingEngine engine) throws IOException {
+        if (writerThread != null) {
+            throw new IllegalStateException("Captura a pornit deja");
+        }
+        startMillis = System.currentTimeMillis();
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(startMillis);
+        out.writeLong(engine.getDefaultOrderTtlMillis());
+        out.writeDouble(engine.getClientMaxOpenVolume());
+        out.writeDouble(engine.getClientMaxOpenNotional());
+        LiquidityManager liquidity = engine.getLiquidityManager();
+        out.writeInt(engine.getRegistry().size());
+        for (Instrument instrument : engine.getRegistry().instruments()) {
+            out.writeUTF(instrument.getId());
+            out.writeLong(instrument.getCurrentPriceTicks());
+            out.writeDouble(instrument.getMaxLiquidity());
+            out.writeDouble(instrument.getVolatility());
+            out.writeDouble(instrument.getTrend());
+            out.writeLong(instrument.getPriceScale());
+            out.writeLong(instrument.getVolumeScale());
+            out.writeLong(liquidity.getAvailableUnits(instrument.getIndex()));
+        }
+        running = true;
+        writerThread = new Thread(this::runWriter, "Recorder");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Înregistrează un ordin primit (timpul este momentul creării ordinului).
+     */
+    void recordOrder(Order order) {
+        append(new Event(ORDER, order.getCreatedMillis() - startMillis, order, 0, null));
+    }
+
+    /**
+     * Înregistrează o cerere de anulare a clientului (indiferent de rezultat).
+     */
+    void recordCancel(long orderNumber, long nowMillis) {
+        append(new Event(CANCEL, nowMillis - startMillis, null, orderNumber, null));
+    }
+
+    /**
+     * Înregistrează prețurile curente și momentul procesării ordinelor pending.
+     */
+    void recordTick(long nowMillis, InstrumentRegistry registry) {
+        append(new Event(TICK, nowMillis - startMillis, null, 0, currentPrices(registry)));
+    }
+
+    /**
+     * Înregistrează prețurile după un tick al PriceTickEngine.
+     */
+    void recordPrices(long nowMillis, InstrumentRegistry registry) {
+        append(new Event(PRICES, nowMillis - startMillis, null, 0, currentPrices(registry)));
+    }
+
+    private static long[] currentPrices(InstrumentRegistry registry) {
+        long[] prices = new long[registry.size()];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = registry.get(i).getCurrentPriceTicks();
+        }
+        return prices;
+    }
+
+    /**
+     * Numărul de evenimente scrise până acum.
+     */
+    public long getEventCount() {
+        return eventCount.get();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    private void append(Event event) {
+        if (failed || !running) {
+            return;
+        }
+        while (!queue.offer(event)) {
+            if (failed) {
+                return;
+            }
+            LockSupport.unpark(writerThread);
+            Thread.onSpinWait();
+        }
+        if (parked) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * Golește coada și închide fișierul.
+     */
+    @Override
+    public void close() {
+        running = false;
+        Thread t = writerThread;
+        if (t != null) {
+            LockSupport.unpark(t);
+            try {
+                t.join(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // Captura nu a pornit - nimic de salvat
+            }
+        }
+    }
+
+    private void runWriter() {
+        try (DataOutputStream stream = out) {
+            while (running || !queue.isEmpty()) {
+                Event event;
+                boolean wrote = false;
+                while ((event = queue.poll()) != null) {
+                    write(stream, event);
+                    eventCount.incrementAndGet();
+                    wrote = true;
+                }
+                if (wrote) {
+                    continue;
+                }
+                stream.flush();
+                parked = true;
+                if (running && queue.isEmpty()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                parked = false;
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Eroare captură, înregistrarea este oprită: " + e.getMessage());
+            failed = true;
+            running = false;
+        }
+    }
+
+    private static void write(DataOutputStream stream, Event event) throws IOException {
+        stream.writeByte(event.type);
+        stream.writeLong(event.timeMillis);
+        switch (event.type) {
+            case ORDER:
+                Order order = event.order;
+                stream.writeUTF(order.getOrderId());
+                stream.writeLong(order.getClientOrderId());
+                stream.writeUTF(order.getClientId());
+                stream.writeInt(order.getInstrument().getIndex());
+                stream.writeByte(order.getOrderType().ordinal());
+                stream.writeLong(order.getVolumeUnits());
+                stream.writeLong(order.getLimitPriceTicks());
+                stream.writeLong(order.getTtlMillis());
+                break;
+            case CANCEL:
+                stream.writeLong(event.orderNumber);
+                break;
+            case TICK:
+            case PRICES:
+                for (long price : event.prices) {
+                    stream.writeLong(price);
+                }
+                break;
+            default:
+                throw new IllegalStateException("Tip de eveniment necunoscut: " + event.type);
+        }
+    }
+}
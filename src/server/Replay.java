@@ -0,0 +1,411 @@
+package server;
+
+import model.Instrument;
+import model.InstrumentRegistry;
+import model.Order;
+import model.OrderType;
+import util.Diagnostics;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reia o captură (Recorder) printr-un TradingEngine nou, în același proces.
+ *
+ * Engine-ul rulează în modul SHARED și fără audit: admiterea, anulările,
+ * execuțiile și expirarea se fac pe thread-ul care reia captura, în ordinea
+ * din fișier, iar timpul este cel logic din captură. De aceea fiecare
+ * reluare produce aceleași execuții, anulări și același P&L; amprenta
+ * (digest) le rezumă, ca două build-uri să poată fi comparate pe aceeași
+ * încărcare după throughput, cu garanția că au făcut aceeași muncă.
+ *
+ * Evenimentele sunt citite în memorie înainte de măsurare, deci timpul
+ * măsurat este doar al engine-ului. Reluarea poate rula cât de repede se
+ * poate sau în ritmul înregistrat.
+ */
+public final class Replay {
+    // Începutul timpului logic este aliniat la secundă (multiplu al rezoluției roții
+    // de expirare), cu același rest ca la înregistrare: scadențele cad pe aceleași tick-uri
+    private static final long TIME_ALIGNMENT_MILLIS = 1_000;
+    private static final long FNV_PRIME = 0x100000001B3L;
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+
+    /**
+     * Un eveniment citit din captură.
+     */
+    private static final class Event {
+        byte type;
+        long timeMillis;
+        String orderId;
+        long clientOrderId;
+        String clientId;
+        Instrument instrument;
+        OrderType orderType;
+        long volumeUnits;
+        long limitPriceTicks;
+        long ttlMillis;
+        long orderNumber;
+        long[] prices;
+    }
+
+    /**
+     * Captura citită: antetul (instrumente, limite) și evenimentele.
+     */
+    private static final class Capture {
+        long startMillis;
+        long defaultTtlMillis;
+        double maxOpenVolume;
+        double maxOpenNotional;
+        InstrumentRegistry registry;
+        long[] initialPriceTicks;
+        long[] consumedUnits;
+        final List<Event> events = new ArrayList<>();
+        int orders;
+        int cancels;
+        int ticks;
+    }
+
+    /**
+     * Rezultatul unei reluări.
+     */
+    public static final class Result {
+        private final int events;
+        private final int orders;
+        private final long executed;
+        private final long cancelled;
+        private final long rejected;
+        private final int pending;
+        private final double totalCommission;
+        private final double totalPnL;
+        private final long digest;
+        private final long elapsedNanos;
+
+        Result(int events, int orders, long executed, long cancelled, long rejected, int pending,
+               double totalCommission, double totalPnL, long digest, long elapsedNanos) {
+            this.events = events;
+            this.orders = orders;
+            this.executed = executed;
+            this.cancelled = cancelled;
+            this.rejected = rejected;
+            this.pending = pending;
+            this.totalCommission = totalCommission;
+            this.totalPnL = totalPnL;
+            this.digest = digest;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getEvents() {
+            return events;
+        }
+
+        public long getExecuted() {
+            return executed;
+        }
+
+        public long getCancelled() {
+            return cancelled;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public int getPending() {
+            return pending;
+        }
+
+        public double getTotalCommission() {
+            return totalCommission;
+        }
+
+        public double getTotalPnL() {
+            return totalPnL;
+        }
+
+        /**
+         * Amprenta rezultatelor: fiecare ordin finalizat (număr, status, preț de
+         * execuție, motiv de respingere), în ordinea finalizării.
+         */
+        public long getDigest() {
+            return digest;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Evenimente reluate pe secundă.
+         */
+        public double getEventsPerSecond() {
+            return events * 1e9 / Math.max(1, elapsedNanos);
+        }
+
+        /**
+         * Același rezultat (nu și aceeași durată).
+         */
+        public boolean sameOutcome(Result other) {
+            return digest == other.digest && executed == other.executed
+                && cancelled == other.cancelled && rejected == other.rejected
+                && pending == other.pending && totalCommission == other.totalCommission
+                && totalPnL == other.totalPnL;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                "%d evenimente (%d ordine) în %.1f ms = %.0f ev/s | executate=%d anulate=%d " +
+                "respinse=%d pending=%d | comision=%.2f P&L=%.2f | amprentă=%016x",
+                events, orders, elapsedNanos / 1e6, getEventsPerSecond(), executed, cancelled,
+                rejected, pending, totalCommission, totalPnL, digest);
+        }
+    }
+
+    private Replay() {
+    }
+
+    /**
+     * Reia captura o dată.
+     *
+     * @param recordedSpeed true = în ritmul înregistrat, false = cât de repede se poate
+     */
+    public static Result run(Path file, boolean recordedSpeed) throws IOException {
+        return run(read(file), recordedSpeed);
+    }
+
+    private static Result run(Capture capture, boolean recordedSpeed) {
+        InstrumentRegistry registry = capture.registry;
+        TradingEngine engine = new TradingEngine(registry, 1, capture.defaultTtlMillis, EngineMode.SHARED);
+        engine.setClientRiskLimits(capture.maxOpenVolume, capture.maxOpenNotional);
+        LiquidityManager liquidity = engine.getLiquidityManager();
+        for (int i = 0; i < registry.size(); i++) {
+            // Instrumentele sunt comune reluărilor: prețul revine la cel de la începutul capturii
+            registry.get(i).setCurrentPriceTicks(capture.initialPriceTicks[i]);
+            liquidity.restoreUnits(i, 0, capture.consumedUnits[i]);
+        }
+
+        // Roata de expirare a engine-ului pornește acum: timpul logic începe după
+        long now = System.currentTimeMillis();
+        long base = (now / TIME_ALIGNMENT_MILLIS + 1) * TIME_ALIGNMENT_MILLIS
+                    + Math.floorMod(capture.startMillis, TIME_ALIGNMENT_MILLIS);
+        long[] digest = {FNV_OFFSET};
+        long[] rejected = new long[1];
+
+        long startNanos = System.nanoTime();
+        for (Event event : capture.events) {
+            if (recordedSpeed) {
+                long delay = startNanos + event.timeMillis * 1_000_000 - System.nanoTime();
+                if (delay > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+            }
+            switch (event.type) {
+                case Recorder.ORDER:
+                    Order order = Order.ofUnits(event.orderId, event.clientOrderId, event.clientId,
+                                                event.instrument, event.orderType, event.volumeUnits,
+                                                event.limitPriceTicks, event.ttlMillis,
+                                                base + event.timeMillis);
+                    // Pe acest thread: callback-urile rulează sincron, în ordinea finalizării
+                    order.getResultFuture().thenAccept(status -> {
+                        long h = digest[0];
+                        h = (h ^ order.getOrderNumber()) * FNV_PRIME;
+                        h = (h ^ status.ordinal()) * FNV_PRIME;
+                        h = (h ^ order.getExecutionPriceTicks()) * FNV_PRIME;
+                        if (order.getRejectReason() != null) {
+                            h = (h ^ (order.getRejectReason().ordinal() + 1)) * FNV_PRIME;
+                            rejected[0]++;
+                        }
+                        digest[0] = h;
+                    });
+                    engine.submitOrder(order);
+                    break;
+                case Recorder.CANCEL:
+                    engine.cancelOrder(event.orderNumber);
+                    break;
+                case Recorder.TICK:
+                    for (int i = 0; i < event.prices.length; i++) {
+                        registry.get(i).setCurrentPriceTicks(event.prices[i]);
+                    }
+                    engine.processPendingOrders(base + event.timeMillis);
+                    break;
+                case Recorder.PRICES:
+                    // Ca PriceTickEngine: doar instrumentele mișcate își evaluează ordinele
+                    for (int i = 0; i < event.prices.length; i++) {
+                        Instrument instrument = registry.get(i);
+                        if (instrument.getCurrentPriceTicks() != event.prices[i]) {
+                            instrument.setCurrentPriceTicks(event.prices[i]);
+                            engine.matchInstrument(instrument);
+                        }
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Tip de eveniment necunoscut: " + event.type);
+            }
+        }
+        long elapsed = System.nanoTime() - startNanos;
+
+        ProfitAnalytics.Snapshot profit = engine.publishAnalytics();
+        Result result = new Result(capture.events.size(), capture.orders, engine.getExecutedCount(),
+                                   engine.getCancelledCount(), rejected[0], engine.getPendingCount(),
+                                   profit.getTotalCommission(), profit.getTotalPnL(), digest[0], elapsed);
+        engine.shutdown();
+        return result;
+    }
+
+    /**
+     * Citește captura în memorie. Instrumentele sunt create din nou, cu
+     * prețurile de la începutul capturii.
+     */
+    private static Capture read(Path file) throws IOException {
+        Capture capture = new Capture();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != Recorder.MAGIC) {
+                throw new IOException("Fișierul nu este o captură: " + file);
+            }
+            int version = in.readInt();
+            if (version < 1 || version > Recorder.VERSION) {
+                throw new IOException("Versiune de captură nesuportată: " + version);
+            }
+            capture.startMillis = in.readLong();
+            capture.defaultTtlMillis = in.readLong();
+            capture.maxOpenVolume = in.readDouble();
+            capture.maxOpenNotional = in.readDouble();
+
+            int count = in.readInt();
+            List<Instrument> instruments = new ArrayList<>(count);
+            long[] availableUnits = new long[count];
+            for (int i = 0; i < count; i++) {
+                String id = in.readUTF();
+                long priceTicks = in.readLong();
+                double maxLiquidity = in.readDouble();
+                double volatility = in.readDouble();
+                double trend = in.readDouble();
+                long priceScale = in.readLong();
+                long volumeScale = in.readLong();
+                Instrument instrument = new Instrument(id, (double) priceTicks / priceScale, maxLiquidity,
+                                                       volatility, trend, priceScale, volumeScale);
+                instrument.setCurrentPriceTicks(priceTicks);
+                instruments.add(instrument);
+                availableUnits[i] = in.readLong();
+            }
+            // Indexul din captură -> instrumentul din registrul nou (aceeași ordine a ID-urilor)
+            capture.registry = new InstrumentRegistry(instruments);
+            capture.initialPriceTicks = new long[count];
+            capture.consumedUnits = new long[count];
+            Instrument[] byRecordedIndex = instruments.toArray(new Instrument[0]);
+            for (int i = 0; i < count; i++) {
+                capture.initialPriceTicks[byRecordedIndex[i].getIndex()] =
+                    byRecordedIndex[i].getCurrentPriceTicks();
+                capture.consumedUnits[byRecordedIndex[i].getIndex()] =
+                    byRecordedIndex[i].getMaxLiquidityUnits() - availableUnits[i];
+            }
+            OrderType[] orderTypes = OrderType.values();
+
+            while (true) {
+                Event event = new Event();
+                try {
+                    event.type = in.readByte();
+                } catch (EOFException e) {
+                    break;
+                }
+                event.timeMillis = in.readLong();
+                switch (event.type) {
+                    case Recorder.ORDER:
+                        event.orderId = in.readUTF();
+                        event.clientOrderId = in.readLong();
+                        event.clientId = in.readUTF();
+                        event.instrument = byRecordedIndex[in.readInt()];
+                        event.orderType = orderTypes[in.readByte()];
+                        event.volumeUnits = in.readLong();
+                        event.limitPriceTicks = in.readLong();
+                        event.ttlMillis = in.readLong();
+                        capture.orders++;
+                        break;
+                    case Recorder.CANCEL:
+                        event.orderNumber = in.readLong();
+                        capture.cancels++;
+                        break;
+                    case Recorder.TICK:
+                    case Recorder.PRICES:
+                        // Prețurile sunt rearanjate în ordinea indexului din registrul nou
+                        event.prices = new long[count];
+                        for (int i = 0; i < count; i++) {
+                            event.prices[byRecordedIndex[i].getIndex()] = in.readLong();
+                        }
+                        capture.ticks++;
+                        break;
+                    default:
+                        throw new IOException("Captură coruptă: tip de eveniment " + event.type);
+                }
+                capture.events.add(event);
+            }
+        }
+        return capture;
+    }
+
+    /**
+     * java server.Replay captura.bin [reluări] [--recorded-speed]
+     *
+     * Reia captura de mai multe ori și verifică faptul că toate reluările au
+     * același rezultat (prima reluare încălzește JIT-ul).
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Utilizare: java server.Replay captura.bin [reluări] [--recorded-speed]");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[0]);
+        int runs = 3;
+        boolean recordedSpeed = false;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--recorded-speed")) {
+                recordedSpeed = true;
+            } else {
+                runs = Integer.parseInt(args[i]);
+            }
+        }
+
+        Capture capture = read(file);
+        System.out.printf("Captură %s: %d ordine, %d anulări, %d tick-uri, %d instrumente%n",
+                          file, capture.orders, capture.cancels, capture.ticks, capture.registry.size());
+
+        // Consola engine-ului ar domina timpul măsurat - este redusă la tăcere în timpul
+        // reluării, iar evenimentele de diagnostic per ordin nici nu mai sunt emise
+        Diagnostics.setQuiet(true);
+        PrintStream console = System.out;
+        PrintStream silent = new PrintStream(OutputStream.nullOutputStream());
+        Result first = null;
+        boolean identical = true;
+        for (int run = 1; run <= runs; run++) {
+            System.setOut(silent);
+            Result result;
+            try {
+                result = run(capture, recordedSpeed);
+            } finally {
+                System.setOut(console);
+            }
+            System.out.println("Reluarea " + run + ": " + result);
+            if (first == null) {
+                first = result;
+            } else if (!result.sameOutcome(first)) {
+                identical = false;
+            }
+        }
+        System.out.println(identical ? "✓ Toate reluările au rezultate identice"
+                                     : "❌ Reluările au rezultate diferite!");
+        if (!identical) {
+            System.exit(1);
+        }
+    }
+}
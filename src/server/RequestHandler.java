@@ -0,0 +1,386 @@
+package server;
+
+import model.*;
+import util.BinaryProtocol;
+import util.IdGenerator;
+import util.LatencyHistogram;
+import util.Metrics;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Interpretează cererile clienților (protocolul text și cel binar).
+ * Protocol: SUBMIT|clientId|instrumentId|orderType|volume|limitPrice[|ttlMillis],
+ * SUBMIT_BATCH|clientId|..., STATUS|orderId, CANCEL|orderId, STATS sau PING,
+ * opțional prefixate de REQ|corrId|
+ * Răspuns: ACCEPTED|orderId, REJECTED|reason, BATCH|n|..., STATUS|orderId|...,
+ * CANCEL_ACCEPTED|orderId, CANCEL_REJECTED|motiv, STATS|metrici, ERROR|mesaj sau PONG
+ * Mesaje nesolicitate, după ACCEPTED: EXEC|orderId|price|volume și CANCEL|orderId
+ *
+ * Este folosit de ambele moduri ale serverului. Răspunsul la SUBMIT depinde de
+ * decizia de admitere, care poate fi luată asincron (shard, jurnal), de aceea
+ * rezultatul este un CompletableFuture: serverul blocant îl așteaptă, cel NIO
+ * doar atașează un callback și nu blochează bucla de evenimente.
+ *
+ * Pentru protocolul binar (BinaryProtocol) ordinele sunt citite direct din
+ * flyweight: instrumentul se găsește în InstrumentRegistry după simbolul
+ * codificat ca long (fără alocări), iar volumul și prețul sunt deja în
+ * virgulă fixă.
+ */
+class RequestHandler {
+    private static final OrderType[] ORDER_TYPES = OrderType.values();
+    private static final String CORRELATION_PREFIX = "REQ|";
+    private static final int MAX_BATCH_SIZE = 1000;
+    // Un ordin din lot: instrumentId,orderType,volume,limitPrice[,ttlMillis] (cu separator)
+    private static final int MAX_BATCH_ITEM_LENGTH = 64;
+
+    /**
+     * Lungimea maximă a unei cereri text: încape un SUBMIT_BATCH cu
+     * MAX_BATCH_SIZE ordine, plus prefixele REQ|corrId| și SUBMIT_BATCH|clientId|.
+     */
+    static final int MAX_REQUEST_LENGTH = 256 + MAX_BATCH_SIZE * MAX_BATCH_ITEM_LENGTH;
+
+    /**
+     * Durata de la citirea cererii din socket până la scrierea răspunsului
+     * (ACK/REJECT), înregistrată de ambele servere.
+     */
+    static final LatencyHistogram READ_TO_ACK = Metrics.histogram("server.read_to_ack");
+
+    private final TradingEngine engine;
+    private final InstrumentRegistry registry;
+
+    RequestHandler(TradingEngine engine) {
+        this.engine = engine;
+        this.registry = engine.getRegistry();
+    }
+
+    /**
+     * Procesează o cerere de la client.
+     *
+     * O cerere de forma REQ|corrId|<cerere> primește răspunsul RSP|corrId|<răspuns>;
+     * astfel clientul poate avea mai multe cereri în zbor pe aceeași conexiune
+     * și poate asocia răspunsurile fără să depindă de ordinea lor.
+     */
+    CompletableFuture<String> handle(String request) {
+        return handle(request, null);
+    }
+
+    /**
+     * Procesează o cerere și anunță fiecare ordin trimis la engine (pentru
+     * rapoartele de execuție trimise ulterior pe aceeași conexiune).
+     *
+     * @param submitted Primește ordinele create de cerere (poate fi null)
+     */
+    CompletableFuture<String> handle(String request, Consumer<Order> submitted) {
+        if (isCorrelated(request)) {
+            int end = request.indexOf('|', CORRELATION_PREFIX.length());
+            if (end < 0) {
+                return CompletableFuture.completedFuture("ERROR|Format REQ invalid. Așteptat: REQ|corrId|cerere");
+            }
+            String prefix = "RSP|" + request.substring(CORRELATION_PREFIX.length(), end) + "|";
+            return handleCommand(request.substring(end + 1), submitted)
+                .thenApply(response -> prefix + response);
+        }
+        return handleCommand(request, submitted);
+    }
+
+    /**
+     * Cererea poartă un ID de corelare (răspunsul poate fi trimis în afara ordinii).
+     */
+    static boolean isCorrelated(String request) {
+        return request.startsWith(CORRELATION_PREFIX);
+    }
+
+    private CompletableFuture<String> handleCommand(String request, Consumer<Order> submitted) {
+        try {
+            String[] parts = request.split("\\|");
+
+            if (parts.length < 1) {
+                return CompletableFuture.completedFuture("ERROR|Format invalid");
+            }
+
+            String command = parts[0];
+
+            if ("SUBMIT".equals(command)) {
+                return handleSubmitOrder(parts, submitted);
+            } else if ("SUBMIT_BATCH".equals(command)) {
+                return handleSubmitBatch(parts, submitted);
+            } else if ("STATUS".equals(command)) {
+                return CompletableFuture.completedFuture(handleStatus(parts));
+            } else if ("CANCEL".equals(command)) {
+                return CompletableFuture.completedFuture(handleCancel(parts));
+            } else if ("STATS".equals(command)) {
+                // Metricile (vezi Metrics.format()): nume=n:..,p50:..,p99:..,p999:..,max:..;contor=valoare
+                return CompletableFuture.completedFuture("STATS|" + Metrics.format());
+            } else if ("PING".equals(command)) {
+                return CompletableFuture.completedFuture("PONG");
+            } else {
+                return CompletableFuture.completedFuture("ERROR|Comandă necunoscută: " + command);
+            }
+
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture("ERROR|" + e.getMessage());
+        }
+    }
+
+    /**
+     * Gestionează comanda SUBMIT pentru plasarea unui ordin.
+     * Format: SUBMIT|clientId|instrumentId|orderType|volume|limitPrice[|ttlMillis]
+     */
+    private CompletableFuture<String> handleSubmitOrder(String[] parts, Consumer<Order> submitted) {
+        if (parts.length != 6 && parts.length != 7) {
+            return CompletableFuture.completedFuture(
+                "ERROR|Format SUBMIT invalid. Așteptat: SUBMIT|clientId|instrumentId|orderType|volume|limitPrice[|ttlMillis]");
+        }
+        return submitOrder(parts[1], parts[2], parts[3], parts[4], parts[5],
+                           parts.length == 7 ? parts[6] : null, submitted);
+    }
+
+    /**
+     * Gestionează comanda SUBMIT_BATCH: N ordine ale aceluiași client într-o
+     * singură cerere, N rezultate într-un singur răspuns (în ordinea ordinelor).
+     * Format: SUBMIT_BATCH|clientId|instrumentId,orderType,volume,limitPrice[,ttlMillis];...
+     * Răspuns: BATCH|n|ACCEPTED:orderId;REJECTED:motiv;...
+     */
+    private CompletableFuture<String> handleSubmitBatch(String[] parts, Consumer<Order> submitted) {
+        if (parts.length != 3) {
+            return CompletableFuture.completedFuture(
+                "ERROR|Format SUBMIT_BATCH invalid. Așteptat: SUBMIT_BATCH|clientId|instrumentId,orderType,volume,limitPrice[,ttlMillis];...");
+        }
+        String clientId = parts[1];
+        String[] items = parts[2].split(";");
+        if (items.length > MAX_BATCH_SIZE) {
+            return CompletableFuture.completedFuture("ERROR|Lot prea mare (max. " + MAX_BATCH_SIZE + ")");
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        CompletableFuture<String>[] results = new CompletableFuture[items.length];
+        for (int i = 0; i < items.length; i++) {
+            String[] fields = items[i].split(",");
+            if (fields.length != 4 && fields.length != 5) {
+                results[i] = CompletableFuture.completedFuture("ERROR|Ordin invalid în lot: " + items[i]);
+            } else {
+                results[i] = submitOrder(clientId, fields[0], fields[1], fields[2], fields[3],
+                                         fields.length == 5 ? fields[4] : null, submitted);
+            }
+        }
+
+        return CompletableFuture.allOf(results).thenApply(ignored -> {
+            StringBuilder response = new StringBuilder("BATCH|").append(results.length).append('|');
+            for (int i = 0; i < results.length; i++) {
+                if (i > 0) {
+                    response.append(';');
+                }
+                response.append(results[i].join().replace('|', ':'));
+            }
+            return response.toString();
+        });
+    }
+
+    /**
+     * Validează câmpurile unui ordin text, îl trimite la engine și întoarce
+     * răspunsul după decizia de admitere.
+     */
+    private CompletableFuture<String> submitOrder(String clientId, String instrumentId,
+                                                  String orderTypeStr, String volumeStr,
+                                                  String limitPriceStr, String ttlStr,
+                                                  Consumer<Order> submitted) {
+        try {
+            double volume = Double.parseDouble(volumeStr);
+            double limitPrice = Double.parseDouble(limitPriceStr);
+            // TTL opțional; 0 = durata implicită a engine-ului
+            long ttlMillis = ttlStr != null ? Long.parseLong(ttlStr) : 0;
+            if (ttlMillis < 0) {
+                return CompletableFuture.completedFuture("REJECTED|TTL invalid: " + ttlMillis);
+            }
+
+            if (!isValidClientId(clientId)) {
+                return CompletableFuture.completedFuture("REJECTED|ClientId invalid (max. "
+                    + Journal.MAX_CLIENT_ID_LENGTH + " caractere ASCII): " + clientId);
+            }
+
+            Instrument instrument = registry.get(instrumentId);
+            if (instrument == null) {
+                return CompletableFuture.completedFuture("REJECTED|Instrument inexistent: " + instrumentId);
+            }
+
+            // Aceleași reguli ca validate() pentru protocolul binar: NaN, infinit,
+            // valori negative sau rotunjite la zero nu ajung la engine
+            if (!Double.isFinite(volume) || !Double.isFinite(limitPrice)
+                    || instrument.toVolumeUnits(volume) <= 0 || instrument.toPriceTicks(limitPrice) <= 0) {
+                return CompletableFuture.completedFuture(
+                    "REJECTED|Volum sau preț invalid: " + volumeStr + ", " + limitPriceStr);
+            }
+
+            // Parse order type
+            OrderType orderType;
+            try {
+                orderType = OrderType.valueOf(orderTypeStr);
+            } catch (IllegalArgumentException e) {
+                return CompletableFuture.completedFuture("REJECTED|Tip ordin invalid: " + orderTypeStr);
+            }
+
+            // Creează și trimite ordinul la engine
+            Order order = new Order(
+                IdGenerator.generateOrderId(),
+                clientId,
+                instrument,
+                orderType,
+                volume,
+                limitPrice,
+                ttlMillis
+            );
+
+            engine.submitOrder(order);
+            if (submitted != null) {
+                submitted.accept(order);
+            }
+
+            // Răspunsul depinde de decizia de admitere (PENDING sau REJECTED); în
+            // modul SHARDED ea este luată asincron de shard-ul instrumentului
+            return order.getAdmissionFuture().thenApply(initialStatus ->
+                initialStatus == OrderStatus.PENDING
+                    ? "ACCEPTED|" + order.getOrderId()
+                    : "REJECTED|" + order.getRejectReason());
+
+        } catch (NumberFormatException e) {
+            return CompletableFuture.completedFuture("ERROR|Volume, limitPrice sau ttlMillis invalid");
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture("ERROR|" + e.getMessage());
+        }
+    }
+
+    /**
+     * Gestionează comanda STATUS: starea unui ordin, activ sau finalizat,
+     * citită din indexul numeric al OrderStore.
+     * Format: STATUS|orderId
+     * Răspuns: STATUS|orderId|status|instrumentId|orderType|volume|limitPrice[|executionPrice]
+     */
+    private String handleStatus(String[] parts) {
+        if (parts.length != 2) {
+            return "ERROR|Format STATUS invalid. Așteptat: STATUS|orderId";
+        }
+        long orderNumber = parseOrderNumber(parts[1]);
+        OrderStore.OrderRecord order = new OrderStore.OrderRecord();
+        if (orderNumber <= 0 || !engine.getOrderStore().lookup(orderNumber, order)) {
+            return "ERROR|Ordin necunoscut: " + parts[1];
+        }
+        Instrument instrument = order.getInstrument();
+        StringBuilder response = new StringBuilder("STATUS|")
+            .append(IdGenerator.orderIdOf(orderNumber))
+            .append('|').append(order.getStatus())
+            .append('|').append(instrument.getId())
+            .append('|').append(order.getOrderType())
+            .append('|').append(instrument.volumeFromUnits(order.getVolumeUnits()))
+            .append('|').append(instrument.priceFromTicks(order.getLimitPriceTicks()));
+        if (order.getStatus() == OrderStatus.EXECUTED) {
+            response.append('|').append(instrument.priceFromTicks(order.getExecutionPriceTicks()));
+        }
+        return response.toString();
+    }
+
+    /**
+     * Gestionează comanda CANCEL: anulează un ordin pending și eliberează
+     * imediat lichiditatea rezervată.
+     * Format: CANCEL|orderId
+     * Răspuns: CANCEL_ACCEPTED|orderId sau CANCEL_REJECTED|motiv
+     */
+    private String handleCancel(String[] parts) {
+        if (parts.length != 2) {
+            return "ERROR|Format CANCEL invalid. Așteptat: CANCEL|orderId";
+        }
+        long orderNumber = parseOrderNumber(parts[1]);
+        if (orderNumber > 0) {
+            Order cancelled = engine.cancelOrder(orderNumber);
+            if (cancelled != null) {
+                return "CANCEL_ACCEPTED|" + cancelled.getOrderId();
+            }
+        }
+        return "CANCEL_REJECTED|Ordin inexistent sau deja finalizat: " + parts[1];
+    }
+
+    /**
+     * Numărul unui ordin dat ca "ORD-123" sau "123" (-1 dacă e invalid).
+     */
+    private static long parseOrderNumber(String orderId) {
+        String digits = orderId.startsWith("ORD-") ? orderId.substring(4) : orderId;
+        try {
+            return Long.parseLong(digits);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Mesajul trimis clientului când un ordin admis se încheie:
+     * EXEC|orderId|price|volume sau CANCEL|orderId (null pentru alte statusuri).
+     */
+    static String completionMessage(Order order) {
+        OrderStatus status = order.getStatus();
+        if (status == OrderStatus.EXECUTED) {
+            return "EXEC|" + order.getOrderId()
+                + "|" + order.getInstrument().priceFromTicks(order.getExecutionPriceTicks())
+                + "|" + order.getVolume();
+        } else if (status == OrderStatus.CANCELLED) {
+            return "CANCEL|" + order.getOrderId();
+        }
+        return null;
+    }
+
+    /**
+     * Codul REJECT binar pentru un ordin respins de engine.
+     */
+    static byte rejectCode(Order order) {
+        switch (order.getRejectReason()) {
+            case INSUFFICIENT_LIQUIDITY: return BinaryProtocol.REJECT_INSUFFICIENT_LIQUIDITY;
+            case INVALID_VALUES: return BinaryProtocol.REJECT_INVALID_VALUES;
+            default: return BinaryProtocol.REJECT_RISK_LIMIT;
+        }
+    }
+
+    /**
+     * ID-ul unui client (text sau LOGON binar) trebuie să încapă nemodificat
+     * în jurnal: nevid, cel mult Journal.MAX_CLIENT_ID_LENGTH caractere ASCII.
+     */
+    static boolean isValidClientId(String clientId) {
+        return !clientId.isEmpty() && Journal.fits(clientId, Journal.MAX_CLIENT_ID_LENGTH);
+    }
+
+    /**
+     * Verifică un mesaj NEW_ORDER.
+     *
+     * @return 0 dacă mesajul e valid, altfel motivul de respingere
+     */
+    byte validate(BinaryProtocol.NewOrder message) {
+        if (registry.indexOfSymbolKey(message.symbolKey()) < 0) {
+            return BinaryProtocol.REJECT_UNKNOWN_INSTRUMENT;
+        }
+        int type = message.orderType();
+        if (type < 0 || type >= ORDER_TYPES.length) {
+            return BinaryProtocol.REJECT_INVALID_ORDER_TYPE;
+        }
+        if (message.volumeUnits() <= 0 || message.limitPriceTicks() <= 0 || message.ttlMillis() < 0) {
+            return BinaryProtocol.REJECT_INVALID_VALUES;
+        }
+        return 0;
+    }
+
+    /**
+     * Creează și trimite la engine ordinul descris de un mesaj NEW_ORDER valid.
+     * Decizia de admitere vine prin order.getAdmissionFuture().
+     */
+    Order submit(String clientId, BinaryProtocol.NewOrder message) {
+        Order order = Order.ofUnits(
+            IdGenerator.orderIdOf(IdGenerator.nextOrderNumber()),
+            message.clientOrderId(),
+            clientId,
+            registry.get(registry.indexOfSymbolKey(message.symbolKey())),
+            ORDER_TYPES[message.orderType()],
+            message.volumeUnits(),
+            message.limitPriceTicks(),
+            message.ttlMillis()
+        );
+        engine.submitOrder(order);
+        return order;
+    }
+}
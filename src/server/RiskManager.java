@@ -0,0 +1,417 @@
+package server;
+
+import model.Instrument;
+import model.InstrumentRegistry;
+import model.Order;
+import model.OrderType;
+import model.RejectReason;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limite pre-trade per client: volumul deschis pe fiecare instrument și
+ * valoarea totală (notional) a ordinelor deschise.
+ *
+ * Fiecare client are propriul cont, fără lock-uri: notionalul deschis într-o
+ * celulă atomică și o tabelă mică de sloturi, câte unul pentru fiecare
+ * instrument tranzacționat de client (volum deschis și poziție, celule
+ * primitive actualizate prin CAS). Contul ocupă deci memorie după
+ * instrumentele pe care clientul le-a tranzacționat, nu după mărimea
+ * universului. Verificarea este o rezervare CAS pe celulele clientului: un bot
+ * care trimite ordine în exces atinge doar celulele lui și este respins, fără
+ * să încetinească ceilalți clienți.
+ *
+ * Numărul conturilor este plafonat: peste maxAccounts, auditul elimină
+ * conturile fără ordine deschise (evictIdleAccounts); pozițiile lor se pierd.
+ * Eliminarea marchează notionalul contului (0 -> EVICTED) prin CAS, deci o
+ * rezervare concurentă fie o vede și se reia pe un cont nou, fie câștigă și
+ * contul rămâne.
+ *
+ * Notionalul este ținut într-o scală monetară comună (MONEY_SCALE), ca
+ * ordinele pe instrumente cu scale diferite să poată fi adunate.
+ */
+public class RiskManager {
+    /**
+     * Scala notionalului comun (cenți).
+     */
+    public static final long MONEY_SCALE = 100;
+
+    /**
+     * Numărul implicit de conturi păstrate înainte de eliminarea celor inactive.
+     */
+    public static final int DEFAULT_MAX_ACCOUNTS = 10_000;
+
+    // Notionalul unui cont eliminat: rezervările noi trebuie să ia un cont nou
+    private static final long EVICTED = Long.MIN_VALUE;
+
+    private static final AtomicLongFieldUpdater<Slot> OPEN_UNITS =
+        AtomicLongFieldUpdater.newUpdater(Slot.class, "openUnits");
+    private static final AtomicLongFieldUpdater<Slot> POSITION =
+        AtomicLongFieldUpdater.newUpdater(Slot.class, "position");
+
+    private final InstrumentRegistry registry;
+    private final long[] notionalDivisor;
+    private final ConcurrentHashMap<String, ClientAccount> accounts;
+    private final LongAdder volumeRejections;
+    private final LongAdder notionalRejections;
+    private final LongAdder evictedAccounts;
+    private volatile long[] maxOpenUnits;
+    private volatile long maxOpenNotional;
+    private volatile int maxAccounts;
+
+    /**
+     * Constructor: fără limite până la apelul setLimits().
+     */
+    RiskManager(InstrumentRegistry registry) {
+        int size = registry.size();
+        this.registry = registry;
+        this.notionalDivisor = new long[size];
+        for (int i = 0; i < size; i++) {
+            Instrument instrument = registry.get(i);
+            notionalDivisor[i] = instrument.getPriceScale() * instrument.getVolumeScale();
+        }
+        this.accounts = new ConcurrentHashMap<>();
+        this.volumeRejections = new LongAdder();
+        this.notionalRejections = new LongAdder();
+        this.evictedAccounts = new LongAdder();
+        this.maxAccounts = DEFAULT_MAX_ACCOUNTS;
+        setLimits(0, 0);
+    }
+
+    /**
+     * Configurează limitele aplicate fiecărui client (0 = fără limită).
+     * Ordinele deja deschise nu sunt afectate.
+     *
+     * @param maxOpenVolume Volumul deschis maxim pe un instrument
+     * @param maxOpenNotional Valoarea maximă a tuturor ordinelor deschise
+     */
+    public void setLimits(double maxOpenVolume, double maxOpenNotional) {
+        if (maxOpenVolume < 0 || maxOpenNotional < 0) {
+            throw new IllegalArgumentException("Limite de risc invalide: " +
+                                               maxOpenVolume + ", " + maxOpenNotional);
+        }
+        long[] units = new long[registry.size()];
+        for (int i = 0; i < units.length; i++) {
+            units[i] = maxOpenVolume > 0 ? registry.get(i).toVolumeUnits(maxOpenVolume) : Long.MAX_VALUE;
+        }
+        this.maxOpenUnits = units;
+        this.maxOpenNotional = maxOpenNotional > 0
+            ? Math.round(maxOpenNotional * MONEY_SCALE) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Plafonul conturilor păstrate; peste el, conturile fără ordine deschise
+     * sunt eliminate la următorul evictIdleAccounts().
+     */
+    public void setMaxAccounts(int maxAccounts) {
+        if (maxAccounts <= 0) {
+            throw new IllegalArgumentException("Număr maxim de conturi invalid: " + maxAccounts);
+        }
+        this.maxAccounts = maxAccounts;
+    }
+
+    /**
+     * Verifică limitele clientului și rezervă volumul și notionalul ordinului.
+     * Dacă a doua rezervare eșuează, prima este anulată.
+     *
+     * @return null dacă ordinul se încadrează, altfel motivul respingerii
+     */
+    RejectReason reserve(Order order) {
+        long units = order.getVolumeUnits();
+        // Un volum sau un preț negativ ar micșora rezervările clientului și ar ocoli limitele
+        if (units <= 0 || order.getLimitPriceTicks() <= 0) {
+            return RejectReason.INVALID_VALUES;
+        }
+        long notional = notionalOf(order);
+        if (notional < 0) {
+            // Volum * preț depășește long: un notional negativ ar ocoli limita
+            return RejectReason.INVALID_VALUES;
+        }
+        long maxUnits = maxOpenUnits[indexOf(order)];
+        long maxNotional = maxOpenNotional;
+        while (true) {
+            ClientAccount account = account(order.getClientId());
+            Slot slot = account.slot(keyOf(order), true);
+
+            long open;
+            do {
+                open = slot.openUnits;
+                if (units > maxUnits - open) {
+                    volumeRejections.increment();
+                    return RejectReason.OPEN_VOLUME_LIMIT;
+                }
+            } while (!OPEN_UNITS.compareAndSet(slot, open, open + units));
+
+            long current;
+            do {
+                current = account.openNotional.get();
+                if (current == EVICTED) {
+                    break;
+                }
+                if (notional > maxNotional - current) {
+                    OPEN_UNITS.addAndGet(slot, -units);
+                    notionalRejections.increment();
+                    return RejectReason.NOTIONAL_LIMIT;
+                }
+            } while (!account.openNotional.compareAndSet(current, current + notional));
+            if (current != EVICTED) {
+                return null;
+            }
+            // Contul tocmai a fost eliminat - se reia cu unul nou
+            OPEN_UNITS.addAndGet(slot, -units);
+        }
+    }
+
+    /**
+     * Rezervă fără verificarea limitelor (ordine pending refăcute din jurnal).
+     */
+    void restore(Order order) {
+        long units = order.getVolumeUnits();
+        long notional = notionalOf(order);
+        while (true) {
+            ClientAccount account = account(order.getClientId());
+            Slot slot = account.slot(keyOf(order), true);
+            OPEN_UNITS.addAndGet(slot, units);
+            long current;
+            do {
+                current = account.openNotional.get();
+            } while (current != EVICTED && !account.openNotional.compareAndSet(current, current + notional));
+            if (current != EVICTED) {
+                return;
+            }
+            OPEN_UNITS.addAndGet(slot, -units);
+        }
+    }
+
+    /**
+     * Eliberează rezervarea unui ordin anulat, expirat sau respins după rezervare.
+     * Contul are notional deschis, deci nu poate fi eliminat între timp.
+     */
+    void release(Order order) {
+        ClientAccount account = account(order.getClientId());
+        OPEN_UNITS.addAndGet(account.slot(keyOf(order), true), -order.getVolumeUnits());
+        account.openNotional.addAndGet(-notionalOf(order));
+    }
+
+    /**
+     * Eliberează rezervarea unui ordin executat și actualizează poziția
+     * clientului (BUY +, SELL -). Notionalul se eliberează ultimul, ca
+     * eliminarea contului să nu piardă poziția abia scrisă.
+     */
+    void onExecuted(Order order) {
+        ClientAccount account = account(order.getClientId());
+        Slot slot = account.slot(keyOf(order), true);
+        long units = order.getVolumeUnits();
+        OPEN_UNITS.addAndGet(slot, -units);
+        POSITION.addAndGet(slot, order.getOrderType() == OrderType.BUY_LIMIT ? units : -units);
+        account.openNotional.addAndGet(-notionalOf(order));
+    }
+
+    /**
+     * Elimină conturile fără ordine deschise cât timp numărul conturilor
+     * depășește plafonul (apelat periodic de audit).
+     *
+     * @return Numărul de conturi eliminate
+     */
+    public int evictIdleAccounts() {
+        int excess = accounts.size() - maxAccounts;
+        int evicted = 0;
+        for (Map.Entry<String, ClientAccount> entry : accounts.entrySet()) {
+            if (excess <= 0) {
+                break;
+            }
+            ClientAccount account = entry.getValue();
+            // Notionalul e pozitiv cât timp contul are ordine deschise
+            if (account.openNotional.compareAndSet(0, EVICTED)) {
+                accounts.remove(entry.getKey(), account);
+                excess--;
+                evicted++;
+            }
+        }
+        evictedAccounts.add(evicted);
+        return evicted;
+    }
+
+    /**
+     * Volumul ordinelor deschise ale clientului pe instrument.
+     */
+    public double getOpenVolume(String clientId, Instrument instrument) {
+        Slot slot = slotOf(clientId, instrument);
+        return slot == null ? 0.0 : instrument.volumeFromUnits(slot.openUnits);
+    }
+
+    /**
+     * Poziția netă a clientului pe instrument, din ordinele executate.
+     */
+    public double getPosition(String clientId, Instrument instrument) {
+        Slot slot = slotOf(clientId, instrument);
+        return slot == null ? 0.0 : instrument.volumeFromUnits(slot.position);
+    }
+
+    /**
+     * Valoarea totală a ordinelor deschise ale clientului (la prețul limită).
+     */
+    public double getOpenNotional(String clientId) {
+        ClientAccount account = accounts.get(clientId);
+        long notional = account == null ? 0 : account.openNotional.get();
+        return notional == EVICTED ? 0.0 : (double) notional / MONEY_SCALE;
+    }
+
+    /**
+     * Clienții care au un cont (au trimis cel puțin un ordin și nu au fost eliminați).
+     */
+    public List<String> getClientIds() {
+        return new ArrayList<>(accounts.keySet());
+    }
+
+    /**
+     * Ordine respinse pentru depășirea volumului deschis.
+     */
+    public long getVolumeRejections() {
+        return volumeRejections.sum();
+    }
+
+    /**
+     * Ordine respinse pentru depășirea notionalului deschis.
+     */
+    public long getNotionalRejections() {
+        return notionalRejections.sum();
+    }
+
+    /**
+     * Conturi inactive eliminate de la pornire.
+     */
+    public long getEvictedAccounts() {
+        return evictedAccounts.sum();
+    }
+
+    public int getAccountCount() {
+        return accounts.size();
+    }
+
+    private ClientAccount account(String clientId) {
+        ClientAccount account = accounts.get(clientId);
+        return account != null ? account : accounts.computeIfAbsent(clientId, id -> new ClientAccount());
+    }
+
+    private Slot slotOf(String clientId, Instrument instrument) {
+        ClientAccount account = accounts.get(clientId);
+        return account == null ? null : account.slot(instrument.getIndex() + 1, false);
+    }
+
+    /**
+     * Notionalul ordinului la prețul limită, în scala comună (rotunjit în sus).
+     *
+     * @return Notionalul sau -1 dacă produsul depășește long
+     */
+    private long notionalOf(Order order) {
+        long divisor = notionalDivisor[indexOf(order)];
+        long units;
+        try {
+            units = Math.multiplyExact(Math.multiplyExact(order.getVolumeUnits(), order.getLimitPriceTicks()),
+                                       MONEY_SCALE);
+        } catch (ArithmeticException e) {
+            return -1;
+        }
+        return units / divisor + (units % divisor != 0 ? 1 : 0);
+    }
+
+    private static int indexOf(Order order) {
+        return order.getInstrument().getIndex();
+    }
+
+    /**
+     * Cheia slotului: indexul instrumentului + 1 (cheia 0 e rezervată).
+     */
+    private static int keyOf(Order order) {
+        return indexOf(order) + 1;
+    }
+
+    /**
+     * Celulele unui client pe un instrument.
+     */
+    private static final class Slot {
+        final int key;
+        volatile long openUnits;
+        volatile long position;
+
+        Slot(int key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Contul unui client: notionalul deschis (EVICTED după eliminare) și
+     * sloturile instrumentelor tranzacționate.
+     */
+    private static final class ClientAccount {
+        final AtomicLong openNotional = new AtomicLong();
+        final SlotTable slots = new SlotTable(SlotTable.INITIAL_CAPACITY);
+
+        Slot slot(int key, boolean create) {
+            return slots.find(key, create);
+        }
+    }
+
+    /**
+     * Tabelă de sloturi cu adresare deschisă, doar cu inserări: un slot se
+     * revendică prin CAS și nu se mai șterge (volumul lui doar revine la 0).
+     * Dacă fereastra de căutare a unei chei e plină, cheia trece în tabela
+     * următoare, de două ori mai mare, legată tot prin CAS.
+     */
+    private static final class SlotTable {
+        static final int INITIAL_CAPACITY = 8;
+        static final int MAX_PROBES = 8;
+
+        final AtomicReferenceArray<Slot> slots;
+        final AtomicReference<SlotTable> next;
+        final int mask;
+
+        SlotTable(int capacity) {
+            this.slots = new AtomicReferenceArray<>(capacity);
+            this.next = new AtomicReference<>();
+            this.mask = capacity - 1;
+        }
+
+        Slot find(int key, boolean create) {
+            SlotTable table = this;
+            while (true) {
+                int hash = key * 0x9E3779B9;
+                int i = (hash ^ hash >>> 16) & table.mask;
+                for (int probe = 0; probe < MAX_PROBES && probe <= table.mask; probe++) {
+                    Slot slot = table.slots.get(i);
+                    if (slot == null) {
+                        if (!create) {
+                            return null;
+                        }
+                        Slot created = new Slot(key);
+                        if (table.slots.compareAndSet(i, null, created)) {
+                            return created;
+                        }
+                        slot = table.slots.get(i);
+                    }
+                    if (slot.key == key) {
+                        return slot;
+                    }
+                    i = (i + 1) & table.mask;
+                }
+                SlotTable next = table.next.get();
+                if (next == null) {
+                    if (!create) {
+                        return null;
+                    }
+                    table.next.compareAndSet(null, new SlotTable(2 * (table.mask + 1)));
+                    next = table.next.get();
+                }
+                table = next;
+            }
+        }
+    }
+}
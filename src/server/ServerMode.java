@@ -0,0 +1,16 @@
+package server;
+
+/**
+ * Modurile de funcționare ale serverului de ordine.
+ */
+public enum ServerMode {
+    /**
+     * ServerSocket blocant; fiecare conexiune are propriul thread
+     */
+    BLOCKING,
+
+    /**
+     * Selector NIO; un set mic de bucle de evenimente deservește toate conexiunile
+     */
+    NIO
+}
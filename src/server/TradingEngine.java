@@ -1,8 +1,15 @@
 package server;
 
 import model.*;
+import util.DiagnosticLevel;
+import util.Diagnostics;
 import util.FileLogger;
+import util.IdGenerator;
+import util.LatencyHistogram;
+import util.Metrics;
+import java.io.IOException;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
@@ -11,20 +18,87 @@ import java.util.ArrayList;
 /**
  * Motorul principal de tranzacționare.
  * Gestionează primirea ordinelor, validarea lichidității și orchestrarea execuției.
+ * 
+ * În modul SHARDED instrumentele sunt împărțite pe shard-uri care rulează în
+ * worker pool; fiecare instrument este scris de un singur thread.
  */
 public class TradingEngine {
+    // Durata de viață implicită a unui ordin pending
+    public static final long DEFAULT_ORDER_TTL_MILLIS = 10_000;
+    // Retenția implicită a ordinelor finalizate în OrderStore
+    public static final int DEFAULT_MAX_ARCHIVED_ORDERS = 100_000;
+    public static final long DEFAULT_ORDER_RETENTION_MILLIS = 10 * 60_000;
+    // Rezoluția roții de expirare
+    private static final long EXPIRY_TICK_MILLIS = 100;
+    
+    private static final LatencyHistogram SUBMIT_LATENCY = Metrics.histogram("engine.submit");
+    private static final LatencyHistogram ACCEPT_TO_EXECUTION = Metrics.histogram("order.accept_to_exec");
+    private static final LatencyHistogram ACCEPT_TO_CANCEL = Metrics.histogram("order.accept_to_cancel");
+    private static final LongAdder[] REJECTIONS = new LongAdder[RejectReason.values().length];
+    
+    // Mesajele de consolă per ordin (randate asincron, vezi Diagnostics)
+    private static final Diagnostics.Type ACCEPTED = Diagnostics.type("order.accepted", DiagnosticLevel.INFO,
+        (out, e) -> out.append("✓ ").append(e.object(0)).append(" ACCEPTAT în coadă"));
+    private static final Diagnostics.Type REJECTED = Diagnostics.type("order.rejected", DiagnosticLevel.INFO,
+        (out, e) -> out.append("❌ ").append(e.object(0)).append(" RESPINS (").append(e.object(1)).append(')'));
+    private static final Diagnostics.Type EXECUTED = Diagnostics.type("order.executed", DiagnosticLevel.INFO,
+        (out, e) -> out.append("✅ EXECUTAT: ").append(e.object(0))
+                       .append(" la prețul ").append(String.format("%.2f", e.doubleValue(0)))
+                       .append(" | Comision: ").append(String.format("%.2f", e.doubleValue(1))));
+    private static final Diagnostics.Type CANCELLED = Diagnostics.type("order.cancelled", DiagnosticLevel.INFO,
+        (out, e) -> out.append("⏱️ ANULAT (").append(e.object(1)).append("): ").append(e.object(0)));
+    static {
+        for (RejectReason reason : RejectReason.values()) {
+            REJECTIONS[reason.ordinal()] = Metrics.counter("orders.rejected." + reason);
+        }
+    }
+    
+    private final InstrumentRegistry registry;
     private final Map<String, Instrument> instruments;
     private final LiquidityManager liquidityManager;
-    private final BlockingQueue<Order> pendingOrders;
+    // Index de declanșare per instrument (indexul din registru -> TriggerBook)
+    private final TriggerBook[] triggerBooks;
     private final ExecutorService workerPool;
+    private final ExpiryWheel expiryWheel;
+    private final ExpiryBatch expiryBatch;
+    // Lista de lucru a matchInstrument() pentru apelurile de pe thread-ul apelant
+    private final ThreadLocal<List<Order>> matchScratch = ThreadLocal.withInitial(ArrayList::new);
+    private final long defaultOrderTtlMillis;
+    private final EngineMode mode;
+    private final List<EngineShard> shards;
+    private final EngineShard[] shardByInstrument;
+    
+    // Contoare cumulative (citite de audit ca diferență între cicluri)
+    private final LongAdder executedCount;
+    private final LongAdder cancelledCount;
     private final AuditService auditService;
     
-    // Liste thread-safe pentru tracking
-    private final List<Order> allOrders;
+    // Toate ordinele: active ca obiecte, finalizate în arhiva compactă (mărginită)
+    private final OrderStore orderStore;
+    
+    // Comisioane și P&L, incremental, cu snapshot imuabil publicat
+    private final ProfitAnalytics analytics;
+    
+    // Limite pre-trade per client (volum și notional deschis)
+    private final RiskManager riskManager;
+    private volatile double clientMaxOpenVolume;
+    private volatile double clientMaxOpenNotional;
+    
+    // Jurnal write-ahead (null = dezactivat)
+    private volatile Journal journal;
     
-    // Profit per instrument (thread-safe)
-    private final Map<String, Double> profitPerInstrument; // Comisioane
-    private final Map<String, Double> pnlPerInstrument; // Profit/Pierdere din tranzacții
+    // Captura fluxului de intrare pentru Replay (null = dezactivată)
+    private volatile Recorder recorder;
+    
+    // Tick-uri de preț independente de audit (0 = prețurile se mișcă doar la audit)
+    private long priceTickIntervalNanos;
+    private boolean priceSeeded;
+    private long priceSeed;
+    private PriceTickEngine priceTicker;
+    
+    // Reconcilierea continuă a lichidității (0 = verificare completă doar la audit)
+    private long reconcileIntervalNanos;
+    private LiquidityReconciler reconciler;
     
     private volatile boolean running;
     
@@ -35,21 +109,80 @@ public class TradingEngine {
      * @param numThreads Numărul de thread-uri în pool
      */
     public TradingEngine(Map<String, Instrument> instruments, int numThreads) {
-        this.instruments = instruments;
-        this.liquidityManager = new LiquidityManager();
-        this.pendingOrders = new LinkedBlockingQueue<>();
+        this(instruments, numThreads, DEFAULT_ORDER_TTL_MILLIS);
+    }
+    
+    /**
+     * Constructor pentru Trading Engine cu durată de viață configurabilă.
+     * 
+     * @param instruments Map cu instrumentele disponibile
+     * @param numThreads Numărul de thread-uri în pool
+     * @param defaultOrderTtlMillis Durata de viață a ordinelor care nu au TTL propriu
+     */
+    public TradingEngine(Map<String, Instrument> instruments, int numThreads,
+                         long defaultOrderTtlMillis) {
+        this(instruments, numThreads, defaultOrderTtlMillis, EngineMode.SHARED);
+    }
+    
+    /**
+     * Constructor pentru Trading Engine cu mod de funcționare explicit.
+     * 
+     * @param instruments Map cu instrumentele disponibile
+     * @param numThreads Numărul de thread-uri în pool (= numărul de shard-uri în modul SHARDED)
+     * @param defaultOrderTtlMillis Durata de viață a ordinelor care nu au TTL propriu
+     * @param mode Modul de funcționare
+     */
+    public TradingEngine(Map<String, Instrument> instruments, int numThreads,
+                         long defaultOrderTtlMillis, EngineMode mode) {
+        this(new InstrumentRegistry(instruments.values()), numThreads, defaultOrderTtlMillis, mode);
+    }
+    
+    /**
+     * Constructor pentru Trading Engine peste un registru de instrumente.
+     * Toate structurile per instrument sunt tablouri indexate după indexul din registru.
+     * 
+     * @param registry Registrul instrumentelor disponibile
+     * @param numThreads Numărul de thread-uri în pool (= numărul de shard-uri în modul SHARDED)
+     * @param defaultOrderTtlMillis Durata de viață a ordinelor care nu au TTL propriu
+     * @param mode Modul de funcționare
+     */
+    public TradingEngine(InstrumentRegistry registry, int numThreads,
+                         long defaultOrderTtlMillis, EngineMode mode) {
+        if (defaultOrderTtlMillis <= 0) {
+            throw new IllegalArgumentException("TTL implicit invalid: " + defaultOrderTtlMillis);
+        }
+        int size = registry.size();
+        this.registry = registry;
+        this.instruments = registry.asMap();
+        this.liquidityManager = new LiquidityManager(registry);
+        this.triggerBooks = new TriggerBook[size];
         this.workerPool = Executors.newFixedThreadPool(numThreads);
-        this.allOrders = new CopyOnWriteArrayList<>();
-        this.profitPerInstrument = new ConcurrentHashMap<>();
-        this.pnlPerInstrument = new ConcurrentHashMap<>();
+        this.defaultOrderTtlMillis = defaultOrderTtlMillis;
+        this.expiryWheel = new ExpiryWheel(EXPIRY_TICK_MILLIS, System.currentTimeMillis());
+        this.expiryBatch = new ExpiryBatch(size);
+        this.mode = mode;
+        this.shards = new ArrayList<>();
+        this.shardByInstrument = new EngineShard[size];
+        this.executedCount = new LongAdder();
+        this.cancelledCount = new LongAdder();
+        this.orderStore = new OrderStore(registry, DEFAULT_MAX_ARCHIVED_ORDERS,
+                                         DEFAULT_ORDER_RETENTION_MILLIS);
+        this.analytics = new ProfitAnalytics(registry);
+        this.riskManager = new RiskManager(registry);
         this.running = false;
         
-        // Inițializează lichiditatea și profitul pentru toate instrumentele
-        for (Instrument instrument : instruments.values()) {
-            liquidityManager.initializeLiquidity(instrument);
-            profitPerInstrument.put(instrument.getId(), 0.0);
-            pnlPerInstrument.put(instrument.getId(), 0.0);
+        // Inițializează indexul de declanșare pentru toate instrumentele
+        // (lichiditatea e inițializată de LiquidityManager)
+        for (int i = 0; i < size; i++) {
+            triggerBooks[i] = new TriggerBook();
+        }
+        
+        if (mode == EngineMode.SHARDED) {
+            createShards(numThreads);
         }
+        Metrics.gauge("engine.pending", orderStore::getActiveCount);
+        Metrics.gauge("engine.executed", executedCount::sum);
+        Metrics.gauge("engine.cancelled", cancelledCount::sum);
         
         // Inițializează serviciul de audit
         this.auditService = new AuditService(this, liquidityManager, instruments);
@@ -58,6 +191,29 @@ public class TradingEngine {
         initializeLogFiles();
     }
     
+    /**
+     * Împarte instrumentele (în ordinea indexului = ordinea ID-ului) round-robin pe shard-uri.
+     */
+    private void createShards(int numShards) {
+        List<List<Instrument>> partitions = new ArrayList<>();
+        for (int i = 0; i < numShards; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (int i = 0; i < registry.size(); i++) {
+            partitions.get(i % numShards).add(registry.get(i));
+        }
+        
+        for (int i = 0; i < numShards; i++) {
+            EngineShard shard = new EngineShard(i, this, partitions.get(i), registry.size(),
+                new ExpiryWheel(EXPIRY_TICK_MILLIS, System.currentTimeMillis()));
+            shards.add(shard);
+            for (Instrument instrument : partitions.get(i)) {
+                shardByInstrument[instrument.getIndex()] = shard;
+            }
+            Metrics.gauge("shard." + i + ".inbox", shard::getQueueDepth);
+        }
+    }
+    
     /**
      * Inițializează fișierele de logging.
      */
@@ -68,26 +224,256 @@ public class TradingEngine {
         FileLogger.initializeFile("audit_log.txt", "LOG AUDIT - Financial Engine");
     }
     
+    /**
+     * Atașează jurnalul write-ahead: reface starea (lichiditate, P&L, prețuri,
+     * ordine pending) din snapshot + jurnal, apoi pornește scrierea.
+     * Trebuie apelat înainte de start().
+     */
+    public void attachJournal(Journal journal) {
+        if (running) {
+            throw new IllegalStateException("Jurnalul trebuie atașat înainte de pornire");
+        }
+        // Simbolurile se scriu în câmpuri fixe: unul care nu încape ar fi refăcut greșit
+        for (int i = 0; i < registry.size(); i++) {
+            String id = registry.get(i).getId();
+            if (!Journal.fits(id, Journal.MAX_SYMBOL_LENGTH)) {
+                throw new IllegalArgumentException("Simbol incompatibil cu jurnalul (max. " +
+                    Journal.MAX_SYMBOL_LENGTH + " caractere ASCII): " + id);
+            }
+        }
+        JournalState state = journal.getState();
+        
+        // Volumul ordinelor încă deschise, separat de cel consumat de execuții
+        long[] openUnits = new long[registry.size()];
+        for (Journal.Record record : state.getPendingOrders()) {
+            Instrument instrument = registry.get(record.symbol);
+            if (instrument != null) {
+                openUnits[instrument.getIndex()] += record.volumeUnits;
+            }
+        }
+        
+        for (Map.Entry<String, JournalState.InstrumentTotals> entry : state.getTotals().entrySet()) {
+            Instrument instrument = registry.get(entry.getKey());
+            if (instrument == null) {
+                System.err.println("Jurnal: instrument necunoscut " + entry.getKey() + " - ignorat");
+                continue;
+            }
+            JournalState.InstrumentTotals totals = entry.getValue();
+            if (totals.lastPriceTicks > 0) {
+                instrument.setCurrentPriceTicks(totals.lastPriceTicks);
+            }
+            int index = instrument.getIndex();
+            if (!liquidityManager.restoreUnits(index, openUnits[index],
+                                               totals.consumedVolumeUnits - openUnits[index])) {
+                System.err.println("Jurnal: volumul consumat depășește lichiditatea pentru " + entry.getKey());
+            }
+            analytics.restore(instrument.getIndex(), totals.commissionUnits, totals.pnlUnits);
+        }
+        
+        int restored = 0;
+        for (Journal.Record record : state.getPendingOrders()) {
+            Instrument instrument = registry.get(record.symbol);
+            if (instrument == null) {
+                continue;
+            }
+            Order order = Order.restore(record.orderId, record.clientId, instrument,
+                                        record.orderType, record.volumeUnits, record.priceTicks,
+                                        record.createdMillis, record.expiresAtMillis);
+            order.markAdmitted();
+            riskManager.restore(order);
+            orderStore.add(order);
+            triggerBooks[instrument.getIndex()].add(order);
+            if (mode == EngineMode.SHARDED) {
+                shardByInstrument[instrument.getIndex()].scheduleExpiry(order);
+            } else {
+                expiryWheel.schedule(order);
+            }
+            restored++;
+        }
+        IdGenerator.advanceTo(state.getMaxOrderNumber() + 1);
+        
+        this.journal = journal;
+        journal.start();
+        Metrics.gauge("journal.queue", journal::getQueueDepth);
+        System.out.println("✓ Jurnal recuperat până la secvența " + journal.getLastSequence() +
+                         " (" + restored + " ordine pending refăcute)");
+    }
+    
+    /**
+     * Pornește captura fluxului de intrare (ordine, anulări, tick-uri de preț)
+     * pentru reluarea deterministă cu Replay. Trebuie apelat înainte de start(),
+     * fără ordine pending: captura pornește de la prețurile, lichiditatea și
+     * limitele curente ale engine-ului.
+     */
+    public void attachRecorder(Recorder recorder) throws IOException {
+        if (running) {
+            throw new IllegalStateException("Captura trebuie pornită înainte de engine");
+        }
+        if (orderStore.getActiveCount() > 0) {
+            throw new IllegalStateException("Captura nu poate reface ordinele pending existente");
+        }
+        recorder.start(this);
+        this.recorder = recorder;
+        System.out.println("✓ Captură pornită: " + recorder.getFile());
+    }
+    
+    /**
+     * Folosește o sămânță fixă pentru prețurile simulate de audit. Trebuie apelat înainte de start().
+     */
+    public void setPriceSeed(long seed) {
+        auditService.setPriceSeed(seed);
+        this.priceSeeded = true;
+        this.priceSeed = seed;
+    }
+    
+    /**
+     * Avansează prețurile pe un thread dedicat, la intervalul dat, și evaluează
+     * ordinele fiecărui instrument imediat ce prețul lui se mișcă. Auditul
+     * rămâne la ritmul lui și doar raportează prețurile. Trebuie apelat înainte
+     * de start() (0 = prețurile se mișcă doar la audit).
+     * 
+     * @param intervalNanos Intervalul dintre tick-uri, în nanosecunde
+     */
+    public void setPriceTickInterval(long intervalNanos) {
+        if (running) {
+            throw new IllegalStateException("Intervalul de tick se setează înainte de pornire");
+        }
+        if (intervalNanos < 0) {
+            throw new IllegalArgumentException("Interval de tick invalid: " + intervalNanos);
+        }
+        this.priceTickIntervalNanos = intervalNanos;
+    }
+    
+    /**
+     * Verifică continuu, pe un thread de fundal, registrul-umbră al
+     * lichidității (LiquidityReconciler), câte un lot de instrumente la
+     * intervalul dat. Trebuie apelat înainte de start() (0 = auditul face o
+     * verificare completă la fiecare ciclu).
+     * 
+     * @param intervalNanos Pauza dintre loturi, în nanosecunde
+     */
+    public void setReconcileInterval(long intervalNanos) {
+        if (running) {
+            throw new IllegalStateException("Intervalul de reconciliere se setează înainte de pornire");
+        }
+        if (intervalNanos < 0) {
+            throw new IllegalArgumentException("Interval de reconciliere invalid: " + intervalNanos);
+        }
+        this.reconcileIntervalNanos = intervalNanos;
+    }
+    
+    /**
+     * Înregistrează în captură prețurile după un tick (dacă există captură).
+     */
+    void recordPrices(long nowMillis) {
+        Recorder r = recorder;
+        if (r != null) {
+            r.recordPrices(nowMillis, registry);
+        }
+    }
+    
+    /**
+     * Cere evaluarea ordinelor unui instrument la prețul lui curent: pe
+     * shard-ul care îl deține (SHARDED) sau sincron, pe thread-ul apelant (SHARED).
+     */
+    public void requestMatch(Instrument instrument) {
+        if (mode == EngineMode.SHARDED) {
+            shardByInstrument[instrument.getIndex()].requestMatch(instrument);
+        } else {
+            matchInstrument(instrument);
+        }
+    }
+    
+    /**
+     * Scrie prețurile curente în jurnal (după o actualizare de prețuri).
+     */
+    public void journalPrices() {
+        Journal j = journal;
+        if (j == null) {
+            return;
+        }
+        for (int i = 0; i < registry.size(); i++) {
+            Instrument instrument = registry.get(i);
+            j.appendPrice(instrument.getId(), instrument.getCurrentPriceTicks());
+        }
+    }
+    
+    /**
+     * Configurează retenția ordinelor finalizate: sunt păstrate aproximativ
+     * ultimele maxArchivedOrders (eliminarea se face pe bucăți), dar nu mai
+     * vechi de retentionMillis. Ordinele eliminate rămân doar în log și în jurnal.
+     */
+    public void setOrderRetention(int maxArchivedOrders, long retentionMillis) {
+        orderStore.setRetention(maxArchivedOrders, retentionMillis);
+    }
+    
+    /**
+     * Configurează limitele pre-trade aplicate fiecărui client (0 = fără limită).
+     * 
+     * @param maxOpenVolume Volumul maxim al ordinelor deschise pe un instrument
+     * @param maxOpenNotional Valoarea maximă (la prețul limită) a tuturor ordinelor deschise
+     */
+    public void setClientRiskLimits(double maxOpenVolume, double maxOpenNotional) {
+        riskManager.setLimits(maxOpenVolume, maxOpenNotional);
+        this.clientMaxOpenVolume = maxOpenVolume;
+        this.clientMaxOpenNotional = maxOpenNotional;
+    }
+    
+    double getClientMaxOpenVolume() {
+        return clientMaxOpenVolume;
+    }
+    
+    double getClientMaxOpenNotional() {
+        return clientMaxOpenNotional;
+    }
+    
     /**
      * Pornește motorul de tranzacționare.
      */
     public void start() {
         running = true;
+        for (EngineShard shard : shards) {
+            workerPool.submit(shard);
+        }
+        if (priceTickIntervalNanos > 0) {
+            // Prețurile pornesc de la valorile refăcute din jurnal
+            priceTicker = priceSeeded
+                ? new PriceTickEngine(this, priceTickIntervalNanos, priceSeed)
+                : new PriceTickEngine(this, priceTickIntervalNanos);
+            auditService.setSimulatePrices(false);
+            priceTicker.start();
+        }
+        if (reconcileIntervalNanos > 0) {
+            reconciler = new LiquidityReconciler(liquidityManager, reconcileIntervalNanos);
+            reconciler.start();
+        }
         auditService.start();
-        System.out.println("Trading Engine pornit!");
+        System.out.println("Trading Engine pornit! (mod " + mode +
+                         (shards.isEmpty() ? "" : ", " + shards.size() + " shard-uri") +
+                         (priceTicker == null ? "" : ", tick de preț " + priceTickIntervalNanos / 1_000 + " µs") + ")");
     }
     
     /**
      * Oprește motorul de tranzacționare.
      */
     public void shutdown() {
+        Diagnostics.flush();
         System.out.println("\n=== Oprire Trading Engine ===");
         running = false;
         
-        // Oprește serviciul de audit
+        // Oprește tick-urile de preț și serviciul de audit
+        if (priceTicker != null) {
+            priceTicker.stop();
+        }
         auditService.stop();
+        if (reconciler != null) {
+            reconciler.stop();
+        }
         
-        // Oprește worker pool-ul
+        // Oprește shard-urile (își golesc inbox-ul înainte de ieșire) și worker pool-ul
+        for (EngineShard shard : shards) {
+            shard.stop();
+        }
         workerPool.shutdown();
         try {
             if (!workerPool.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -98,6 +484,23 @@ public class TradingEngine {
             Thread.currentThread().interrupt();
         }
         
+        // Închide captura (golește coada de evenimente)
+        Recorder r = recorder;
+        if (r != null) {
+            r.close();
+            System.out.println("✓ Captură închisă: " + r.getEventCount() + " evenimente");
+        }
+        
+        // Închide jurnalul (golește coada și scrie snapshot-ul final)
+        Journal j = journal;
+        if (j != null) {
+            j.close();
+        }
+        
+        // Scrie în fișiere tot ce a rămas în coada de logging
+        FileLogger.shutdown();
+        
+        Diagnostics.flush();
         System.out.println("Trading Engine oprit!");
     }
     
@@ -108,120 +511,459 @@ public class TradingEngine {
      * @return Future cu rezultatul
      */
     public CompletableFuture<OrderStatus> submitOrder(Order order) {
+        long start = System.nanoTime();
+        Recorder r = recorder;
+        if (r != null) {
+            r.recordOrder(order);
+        }
+        // Limitele clientului se verifică pe thread-ul apelantului, fără lock-uri,
+        // înainte ca ordinul să ajungă la shard
+        RejectReason riskReason = riskManager.reserve(order);
+        if (riskReason != null) {
+            rejectOrder(order, riskReason);
+            SUBMIT_LATENCY.recordSince(start);
+            return order.getResultFuture();
+        }
+        if (mode == EngineMode.SHARDED) {
+            // Admiterea se face pe thread-ul shard-ului care deține instrumentul
+            shardByInstrument[order.getInstrument().getIndex()].submit(order);
+        } else {
+            admitOrder(order, expiryWheel);
+        }
+        SUBMIT_LATENCY.recordSince(start);
+        return order.getResultFuture();
+    }
+    
+    /**
+     * Validează lichiditatea și pune ordinul în pending sau îl respinge.
+     * Rulează pe thread-ul clientului (SHARED) sau pe thread-ul shard-ului (SHARDED).
+     */
+    void admitOrder(Order order, ExpiryWheel wheel) {
         // Validare lichiditate
         // Atât BUY cât și SELL consumă lichiditate (capacitate de procesare)
-        boolean reserved = liquidityManager.reserveVolume(
-            order.getInstrument().getId(), 
-            order.getVolume()
-        );
+        int index = order.getInstrument().getIndex();
+        boolean reserved;
+        liquidityManager.beginEvent(index);
+        try {
+            reserved = liquidityManager.reserveUnits(index, order.getVolumeUnits());
+            if (reserved) {
+                liquidityManager.ledgerOpened(index, order.getVolumeUnits());
+            }
+        } finally {
+            liquidityManager.endEvent(index);
+        }
         
         if (!reserved) {
             // Lichiditate insuficientă - respinge ordinul
-            order.setStatus(OrderStatus.REJECTED);
-            FileLogger.logWithTimestamp("orders.txt", 
-                order + " - REJECTED (lichiditate insuficientă)");
-            System.out.println("❌ " + order.getOrderId() + " RESPINS (lichiditate insuficientă)");
-            return order.getResultFuture();
+            riskManager.release(order);
+            rejectOrder(order, RejectReason.INSUFFICIENT_LIQUIDITY);
+            return;
         }
         
         // Ordin acceptat - adaugă în coadă
-        allOrders.add(order);
-        pendingOrders.offer(order);
+        long ttl = order.getTtlMillis() > 0 ? order.getTtlMillis() : defaultOrderTtlMillis;
+        order.setExpiresAtMillis(order.getCreatedMillis() + ttl);
+        
+        orderStore.add(order);
+        
+        // Write-ahead: cu jurnal, ACK-ul este confirmat de thread-ul jurnalului
+        // abia după ce acceptarea e durabilă. ACCEPT intră în coadă înainte ca
+        // ordinul să fie vizibil pentru execuție și expirare, deci EXECUTE/CANCEL
+        // îl urmează mereu în jurnal
+        Journal j = journal;
+        if (j != null) {
+            j.appendAccept(order);
+        } else {
+            order.markAdmitted();
+        }
+        TriggerBook book = triggerBooks[index];
+        book.add(order);
+        // ACK-ul poate pleca înainte de indexare: o anulare a clientului câștigată între timp
+        if (order.getStatus() != OrderStatus.PENDING) {
+            book.remove(order);
+        }
+        wheel.schedule(order);
         FileLogger.logWithTimestamp("orders.txt", order + " - ACCEPTAT");
-        System.out.println("✓ " + order.getOrderId() + " ACCEPTAT în coadă");
+        Diagnostics.emit(ACCEPTED, order.getOrderId());
+    }
+    
+    /**
+     * Respinge un ordin la admitere și îl arhivează.
+     */
+    private void rejectOrder(Order order, RejectReason reason) {
+        order.reject(reason);
+        REJECTIONS[reason.ordinal()].increment();
+        orderStore.archive(order);
+        FileLogger.logWithTimestamp("orders.txt", order + " - REJECTED (" + reason + ")");
+        Diagnostics.emit(REJECTED, order.getOrderId(), reason);
+    }
+    
+    /**
+     * Procesează ordinele pending: expirare și execuție la prețurile curente.
+     * În modul SHARED rulează sincron pe thread-ul apelant; în modul SHARDED
+     * doar semnalează shard-urile, iar rezultatele apar în contoare.
+     * 
+     * @param nowMillis Momentul curent
+     */
+    public void processPendingOrders(long nowMillis) {
+        Recorder r = recorder;
+        if (r != null) {
+            r.recordTick(nowMillis, registry);
+        }
+        if (mode == EngineMode.SHARDED) {
+            for (EngineShard shard : shards) {
+                shard.requestExpiry(nowMillis);
+                shard.requestMatchAll();
+            }
+            return;
+        }
         
-        return order.getResultFuture();
+        expireDueOrders(expiryWheel, expiryBatch, nowMillis);
+        for (int i = 0; i < registry.size(); i++) {
+            matchInstrument(registry.get(i));
+        }
     }
     
     /**
      * Obține toate ordinele pending pentru procesare.
      */
     public List<Order> getPendingOrders() {
-        return new ArrayList<>(pendingOrders);
+        return orderStore.getActiveOrders();
     }
     
     /**
-     * Șterge un ordin din coada de pending (după procesare).
+     * Numărul de ordine pending (fără copierea colecției).
      */
-    public void removeFromPending(Order order) {
-        pendingOrders.remove(order);
+    public int getPendingCount() {
+        return (int) orderStore.getActiveCount();
+    }
+    
+    /**
+     * Execută ordinele unui instrument care sunt atinse de prețul curent, pe
+     * thread-ul apelant (modul SHARED, reluarea unei capturi). Lista de lucru
+     * este a thread-ului: în modul SHARED apelează atât thread-ul de tick-uri
+     * cât și auditul.
+     * 
+     * @return Numărul de ordine executate
+     */
+    int matchInstrument(Instrument instrument) {
+        return matchInstrument(instrument, matchScratch.get());
+    }
+    
+    /**
+     * Execută ordinele unui instrument care sunt atinse de prețul curent.
+     * Vizitează doar ordinele care se execută, nu întreaga coadă.
+     * 
+     * @param crossing Lista de lucru a apelantului (refolosită, golită la final)
+     * @return Numărul de ordine executate
+     */
+    int matchInstrument(Instrument instrument, List<Order> crossing) {
+        long priceTicks = instrument.getCurrentPriceTicks();
+        triggerBooks[instrument.getIndex()].drainCrossing(priceTicks, crossing);
+        
+        int executed = 0;
+        try {
+            for (Order order : crossing) {
+                // Ordinul a fost deja scos din index; poate fi însă anulat între timp
+                if (executeOrder(order, priceTicks)) {
+                    executed++;
+                }
+            }
+        } finally {
+            crossing.clear();
+        }
+        executedCount.add(executed);
+        return executed;
     }
     
     /**
      * Execută un ordin și calculează comisionul și P&L.
+     * 
+     * @return false dacă ordinul nu mai era pending
+     */
+    public boolean executeOrder(Order order) {
+        return executeOrder(order, order.getInstrument().getCurrentPriceTicks());
+    }
+    
+    /**
+     * Execută un ordin la prețul dat (în tick-uri), dacă este încă pending.
      */
-    public void executeOrder(Order order) {
-        double executionPrice = order.getInstrument().getCurrentPrice();
-        order.setStatus(OrderStatus.EXECUTED);
+    boolean executeOrder(Order order, long executionPriceTicks) {
+        if (!order.markExecuted(executionPriceTicks)) {
+            return false;
+        }
+        orderStore.archive(order);
+        // Lichiditatea rămâne consumată: în registru volumul trece din deschis în consumat
+        liquidityManager.ledgerExecuted(order.getInstrument().getIndex(), order.getVolumeUnits());
+        riskManager.onExecuted(order);
+        recordLifetime(ACCEPT_TO_EXECUTION, order);
         
-        Execution execution = new Execution(order, executionPrice);
+        Execution execution = new Execution(order, executionPriceTicks);
         
-        // 1. Comision (0.5% din valoarea tranzacției)
-        double commission = execution.getCommission();
-        String instrumentId = order.getInstrument().getId();
-        profitPerInstrument.merge(instrumentId, commission, Double::sum);
-        
-        // 2. P&L din tranzacție (market maker perspective)
-        double transactionValue = executionPrice * order.getVolume();
-        double pnl;
-        if (order.getOrderType() == OrderType.BUY_LIMIT) {
-            // Client cumpără → Server vinde → Incăsăm bani (+)
-            pnl = transactionValue;
-        } else {
-            // Client vinde → Server cumpără → Plătim bani (-)
-            pnl = -transactionValue;
+        Journal j = journal;
+        if (j != null) {
+            j.appendExecute(order, executionPriceTicks);
         }
-        pnlPerInstrument.merge(instrumentId, pnl, Double::sum);
+        
+        // 1. Comision (0.5% din valoarea tranzacției)
+        // 2. P&L din tranzacție (market maker perspective):
+        //    client cumpără → server vinde → încasăm (+); client vinde → server cumpără → plătim (-)
+        long pnlUnits = order.getOrderType() == OrderType.BUY_LIMIT
+            ? execution.getNotionalUnits()
+            : -execution.getNotionalUnits();
+        analytics.recordExecution(order.getInstrument().getIndex(),
+                                  execution.getCommissionUnits(), pnlUnits);
         
         FileLogger.logWithTimestamp("executions.txt", execution.toString());
         
-        System.out.println("✅ EXECUTAT: " + order.getOrderId() + 
-                         " la prețul " + String.format("%.2f", executionPrice) +
-                         " | Comision: " + String.format("%.2f", commission));
+        Diagnostics.emit(EXECUTED, order.getOrderId(), execution.getExecutionPrice(), execution.getCommission());
+        return true;
     }
     
     /**
-     * Anulează un ordin (expirat).
+     * Anulează ordinele a căror durată de viață s-a încheiat.
+     * Costul este proporțional cu numărul de ordine expirate; lichiditatea
+     * se eliberează o singură dată per instrument pentru tot lotul.
+     * Trebuie apelat doar de thread-ul care deține roata.
+     * 
+     * @param wheel Roata de expirare (a engine-ului sau a unui shard)
+     * @param batch Memoria de lucru a roții
+     * @param nowMillis Momentul curent
+     * @return Numărul de ordine anulate
      */
-    public void cancelOrder(Order order) {
-        order.setStatus(OrderStatus.CANCELLED);
+    int expireDueOrders(ExpiryWheel wheel, ExpiryBatch batch, long nowMillis) {
+        List<Order> expired = batch.expired;
+        wheel.advance(nowMillis, expired);
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        
+        // Volum eliberat per instrument, în unități fixe (index dens -> unități),
+        // plus lista instrumentelor atinse: fără alocări pe lot
+        long[] releasedUnits = batch.releasedUnits;
+        int[] touched = batch.touched;
+        int touchedCount = 0;
+        int cancelled = 0;
+        for (int k = 0; k < expired.size(); k++) {
+            Order order = expired.get(k);
+            // Ordinul poate fi executat sau anulat între timp - doar cine câștigă CAS-ul îl anulează
+            if (!markCancelled(order, null)) {
+                continue;
+            }
+            int index = order.getInstrument().getIndex();
+            triggerBooks[index].remove(order);
+            if (releasedUnits[index] == 0) {
+                // Registrul se actualizează per ordin, lichiditatea per lot: secțiunea
+                // rămâne deschisă până la eliberare, ca reconcilierea să le vadă împreună
+                liquidityManager.beginEvent(index);
+                touched[touchedCount++] = index;
+            }
+            releasedUnits[index] += order.getVolumeUnits();
+            liquidityManager.ledgerCancelled(index, order.getVolumeUnits());
+            riskManager.release(order);
+            cancelled++;
+        }
+        expired.clear();
+        
+        for (int k = 0; k < touchedCount; k++) {
+            int index = touched[k];
+            liquidityManager.releaseUnits(index, releasedUnits[index]);
+            liquidityManager.endEvent(index);
+            releasedUnits[index] = 0;
+        }
+        cancelledCount.add(cancelled);
+        return cancelled;
+    }
+    
+    /**
+     * Memoria de lucru a expirării, refolosită de la un lot la altul. Una per
+     * roată, folosită doar de thread-ul care deține roata.
+     */
+    static final class ExpiryBatch {
+        private final List<Order> expired = new ArrayList<>();
+        private final long[] releasedUnits;
+        private final int[] touched;
+        
+        ExpiryBatch(int instrumentCount) {
+            this.releasedUnits = new long[instrumentCount];
+            this.touched = new int[instrumentCount];
+        }
+    }
+    
+    /**
+     * Anulează la cererea clientului ordinul pending cu numărul dat: O(1)
+     * prin indexul OrderStore, fără parcurgerea ordinelor pending.
+     * 
+     * @return Ordinul anulat sau null (inexistent, încă neconfirmat sau deja finalizat)
+     */
+    public Order cancelOrder(long orderNumber) {
+        Recorder r = recorder;
+        if (r != null) {
+            r.recordCancel(orderNumber, System.currentTimeMillis());
+        }
+        Order order = orderStore.getActive(orderNumber);
+        if (order == null) {
+            return null;
+        }
+        return cancelOrder(order, "Anulat de client") ? order : null;
+    }
+    
+    /**
+     * Anulează un ordin pending și eliberează imediat lichiditatea rezervată.
+     * 
+     * @return false dacă ordinul nu mai era pending sau nu era încă admis
+     */
+    public boolean cancelOrder(Order order) {
+        return cancelOrder(order, "Anulat");
+    }
+    
+    private boolean cancelOrder(Order order, String reason) {
+        // Până la confirmarea admiterii ordinul nu poate fi anulat: în modul
+        // SHARDED lichiditatea încă nu e rezervată, iar cu jurnal anularea nu
+        // are voie să apară înaintea acceptării
+        if (!order.getAdmissionFuture().isDone() || !markCancelled(order, reason)) {
+            return false;
+        }
+        int index = order.getInstrument().getIndex();
+        triggerBooks[index].remove(order);
         
         // Eliberează lichiditatea (ambele tipuri au rezervat la submit)
-        liquidityManager.releaseVolume(
-            order.getInstrument().getId(), 
-            order.getVolume()
-        );
+        liquidityManager.beginEvent(index);
+        liquidityManager.ledgerCancelled(index, order.getVolumeUnits());
+        liquidityManager.releaseUnits(index, order.getVolumeUnits());
+        liquidityManager.endEvent(index);
+        riskManager.release(order);
+        cancelledCount.increment();
+        return true;
+    }
+    
+    /**
+     * Marchează ordinul ca anulat (CAS din PENDING) și scrie în log, fără
+     * eliberarea lichidității.
+     * 
+     * @param reason Motivul anulării (null = expirat)
+     * @return false dacă ordinul nu mai era pending
+     */
+    private boolean markCancelled(Order order, String reason) {
+        if (!order.complete(OrderStatus.CANCELLED)) {
+            return false;
+        }
+        orderStore.archive(order);
+        recordLifetime(ACCEPT_TO_CANCEL, order);
         
+        Journal j = journal;
+        if (j != null) {
+            j.appendCancel(order);
+        }
+        
+        if (reason == null) {
+            reason = "Expirat după " + (order.getExpiresAtMillis() - order.getCreatedMillis()) + " ms";
+        }
         FileLogger.logWithTimestamp("cancellations.txt", 
-            order.getOrderId() + " | " + order.getInstrument().getId() + 
-            " | Expirat după 10 secunde");
+            order.getOrderId() + " | " + order.getInstrument().getId() + " | " + reason);
         
-        System.out.println("⏱️ ANULAT (expirat): " + order.getOrderId());
+        Diagnostics.emit(CANCELLED, order.getOrderId(), reason);
+        return true;
+    }
+    
+    /**
+     * Durata de la confirmarea admiterii până la încheierea ordinului.
+     */
+    private static void recordLifetime(LatencyHistogram histogram, Order order) {
+        long admitted = order.getAdmittedNanos();
+        if (admitted != 0) {
+            histogram.recordSince(admitted);
+        }
     }
     
     public Map<String, Instrument> getInstruments() {
         return instruments;
     }
     
+    public InstrumentRegistry getRegistry() {
+        return registry;
+    }
+    
+    OrderStore getOrderStore() {
+        return orderStore;
+    }
+    
+    public RiskManager getRiskManager() {
+        return riskManager;
+    }
+    
     public LiquidityManager getLiquidityManager() {
         return liquidityManager;
     }
     
+    /**
+     * Reconcilierea continuă sau null dacă nu rulează.
+     */
+    public LiquidityReconciler getLiquidityReconciler() {
+        return reconciler;
+    }
+    
+    public long getDefaultOrderTtlMillis() {
+        return defaultOrderTtlMillis;
+    }
+    
+    public EngineMode getMode() {
+        return mode;
+    }
+    
+    /**
+     * Numărul total de ordine executate de la pornire.
+     */
+    public long getExecutedCount() {
+        return executedCount.sum();
+    }
+    
+    /**
+     * Numărul total de ordine anulate (expirate) de la pornire.
+     */
+    public long getCancelledCount() {
+        return cancelledCount.sum();
+    }
+    
     public boolean isRunning() {
         return running;
     }
     
     /**
-     * Obține profitul total per instrument (din comisioane).
+     * Publică un snapshot nou de profit (dacă au existat execuții) și îl întoarce.
+     */
+    public ProfitAnalytics.Snapshot publishAnalytics() {
+        return analytics.publish();
+    }
+    
+    /**
+     * Ultimul snapshot de profit publicat (O(1), fără copiere).
+     */
+    public ProfitAnalytics.Snapshot getAnalyticsSnapshot() {
+        return analytics.getSnapshot();
+    }
+    
+    /**
+     * Obține profitul total per instrument (din comisioane), după ultimele execuții.
      */
     public Map<String, Double> getProfitPerInstrument() {
-        return new HashMap<>(profitPerInstrument);
+        ProfitAnalytics.Snapshot snapshot = analytics.publish();
+        Map<String, Double> amounts = new HashMap<>();
+        for (int i = 0; i < snapshot.getInstrumentCount(); i++) {
+            amounts.put(snapshot.getInstrument(i).getId(), snapshot.getCommission(i));
+        }
+        return amounts;
     }
     
     /**
-     * Obține P&L per instrument (incăsări - plăți).
+     * Obține P&L per instrument (incăsări - plăți), după ultimele execuții.
      */
     public Map<String, Double> getPnLPerInstrument() {
-        return new HashMap<>(pnlPerInstrument);
+        ProfitAnalytics.Snapshot snapshot = analytics.publish();
+        Map<String, Double> amounts = new HashMap<>();
+        for (int i = 0; i < snapshot.getInstrumentCount(); i++) {
+            amounts.put(snapshot.getInstrument(i).getId(), snapshot.getPnL(i));
+        }
+        return amounts;
     }
 }
@@ -0,0 +1,96 @@
+package server;
+
+import model.Order;
+import model.OrderType;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Index de declanșare pentru ordinele pending ale unui singur instrument.
+ *
+ * BUY_LIMIT sunt sortate descrescător după limită, SELL_LIMIT crescător.
+ * La o actualizare de preț se vizitează doar capul fiecărei părți, așa că
+ * ordinele care nu pot fi executate nu sunt atinse deloc.
+ */
+public class TriggerBook {
+    // Prețuri egale: ordinea de sosire (ID-ul ordinului) departajează
+    // Timpul logic al ordinului (nu ceasul de perete): aceeași ordine la reluarea unei capturi
+    private static final Comparator<Order> BY_ARRIVAL =
+        Comparator.comparingLong(Order::getCreatedMillis)
+                  .thenComparingLong(Order::getOrderNumber)
+                  .thenComparing(Order::getOrderId);
+
+    private static final Comparator<Order> BUY_PRIORITY =
+        Comparator.comparingLong(Order::getLimitPriceTicks).reversed().thenComparing(BY_ARRIVAL);
+
+    private static final Comparator<Order> SELL_PRIORITY =
+        Comparator.comparingLong(Order::getLimitPriceTicks).thenComparing(BY_ARRIVAL);
+
+    private final NavigableSet<Order> buyOrders;
+    private final NavigableSet<Order> sellOrders;
+
+    public TriggerBook() {
+        this.buyOrders = new ConcurrentSkipListSet<>(BUY_PRIORITY);
+        this.sellOrders = new ConcurrentSkipListSet<>(SELL_PRIORITY);
+    }
+
+    /**
+     * Adaugă un ordin pending în index.
+     */
+    public void add(Order order) {
+        sideOf(order).add(order);
+    }
+
+    /**
+     * Scoate un ordin din index (de exemplu, la expirare).
+     *
+     * @return true dacă ordinul era în index
+     */
+    public boolean remove(Order order) {
+        return sideOf(order).remove(order);
+    }
+
+    /**
+     * Extrage toate ordinele care se pot executa la prețul dat.
+     * Costul este proporțional cu numărul de ordine extrase.
+     *
+     * @param currentPriceTicks Prețul curent al instrumentului, în tick-uri
+     * @param out Lista în care se adaugă ordinele extrase
+     * @return Numărul de ordine extrase
+     */
+    public int drainCrossing(long currentPriceTicks, List<Order> out) {
+        int drained = 0;
+
+        // BUY_LIMIT: execută cât timp prețul curent <= cea mai mare limită
+        Order head;
+        while ((head = firstOrNull(buyOrders)) != null && head.canExecute(currentPriceTicks)) {
+            if (buyOrders.remove(head)) {
+                out.add(head);
+                drained++;
+            }
+        }
+
+        // SELL_LIMIT: execută cât timp prețul curent >= cea mai mică limită
+        while ((head = firstOrNull(sellOrders)) != null && head.canExecute(currentPriceTicks)) {
+            if (sellOrders.remove(head)) {
+                out.add(head);
+                drained++;
+            }
+        }
+
+        return drained;
+    }
+
+    private NavigableSet<Order> sideOf(Order order) {
+        return order.getOrderType() == OrderType.BUY_LIMIT ? buyOrders : sellOrders;
+    }
+
+    private static Order firstOrNull(NavigableSet<Order> side) {
+        // Iteratorul e slab consistent - nu aruncă excepție dacă setul se golește între timp
+        Iterator<Order> it = side.iterator();
+        return it.hasNext() ? it.next() : null;
+    }
+}
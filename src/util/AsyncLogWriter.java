@@ -0,0 +1,297 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pipeline asincron de logging (group commit).
+ *
+ * Producătorii pun înregistrări deja formatate într-un RingBuffer mărginit,
+ * fără lock-uri. Un singur thread de scriere ține deschis câte un FileChannel
+ * per fișier, adună înregistrările în buffere și le scrie pe loturi. Politica
+ * de flush (interval / număr de înregistrări), de fsync și de backpressure
+ * (blocare sau aruncare) sunt configurabile.
+ */
+public class AsyncLogWriter {
+    /**
+     * Când se forțează datele pe disc după un flush.
+     */
+    public enum FsyncPolicy {
+        /** Lasă sistemul de operare să decidă (cel mai rapid) */
+        NEVER,
+        /** channel.force() după fiecare flush de lot */
+        ON_FLUSH
+    }
+
+    /**
+     * Ce se întâmplă când coada este plină.
+     */
+    public enum BackpressureMode {
+        /** Producătorul așteaptă (cu Backoff) până se eliberează loc */
+        BLOCK,
+        /** Înregistrarea este aruncată și numărată */
+        DROP
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Durata unui flush de lot (scrierea efectivă în fișiere)
+    private static final LatencyHistogram WRITE_LATENCY = Metrics.histogram("log.write");
+
+    private enum Kind { APPEND, TRUNCATE, FLUSH }
+
+    private static final class LogRecord {
+        final Kind kind;
+        final String filename;
+        final String text;
+        final CountDownLatch done;
+
+        LogRecord(Kind kind, String filename, String text, CountDownLatch done) {
+            this.kind = kind;
+            this.filename = filename;
+            this.text = text;
+            this.done = done;
+        }
+    }
+
+    private final RingBuffer<LogRecord> queue;
+    private final long flushIntervalNanos;
+    private final int flushEveryRecords;
+    private final FsyncPolicy fsyncPolicy;
+    private final BackpressureMode backpressureMode;
+
+    // Starea thread-ului de scriere (un singur proprietar)
+    private final Map<String, FileChannel> channels;
+    private final Map<String, ByteBuffer> buffers;
+    private int unflushedRecords;
+    private long lastFlushNanos;
+
+    private final AtomicLong droppedCount;
+    private final Thread writerThread;
+    private volatile boolean running;
+    private volatile boolean parked;
+
+    /**
+     * @param queueCapacity Capacitatea cozii (putere a lui 2)
+     * @param flushIntervalMillis Intervalul maxim între flush-uri
+     * @param flushEveryRecords Flush după acest număr de înregistrări
+     * @param fsyncPolicy Politica de fsync
+     * @param backpressureMode Comportamentul când coada e plină
+     */
+    public AsyncLogWriter(int queueCapacity, long flushIntervalMillis, int flushEveryRecords,
+                          FsyncPolicy fsyncPolicy, BackpressureMode backpressureMode) {
+        this.queue = new RingBuffer<>(queueCapacity);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.flushEveryRecords = flushEveryRecords;
+        this.fsyncPolicy = fsyncPolicy;
+        this.backpressureMode = backpressureMode;
+        this.channels = new HashMap<>();
+        this.buffers = new HashMap<>();
+        this.droppedCount = new AtomicLong();
+        this.running = true;
+        this.lastFlushNanos = System.nanoTime();
+        this.writerThread = new Thread(this::runWriter, "AsyncLogWriter");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Adaugă o linie la sfârșitul fișierului.
+     */
+    public void append(String filename, String line) {
+        enqueue(new LogRecord(Kind.APPEND, filename, line, null), backpressureMode);
+    }
+
+    /**
+     * Golește fișierul și scrie conținutul dat (păstrând ordinea față de append-uri).
+     */
+    public void truncate(String filename, String content) {
+        enqueue(new LogRecord(Kind.TRUNCATE, filename, content, null), BackpressureMode.BLOCK);
+    }
+
+    /**
+     * Așteaptă până când toate înregistrările de dinainte sunt scrise.
+     */
+    public void flush() {
+        CountDownLatch done = new CountDownLatch(1);
+        enqueue(new LogRecord(Kind.FLUSH, null, null, done), BackpressureMode.BLOCK);
+        try {
+            done.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Scrie tot ce e în coadă, închide fișierele și oprește thread-ul de scriere.
+     */
+    public void close() {
+        flush();
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Numărul de înregistrări aruncate din cauza cozii pline (mod DROP).
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void enqueue(LogRecord record, BackpressureMode mode) {
+        if (!running) {
+            return;
+        }
+        int attempt = 0;
+        while (!queue.offer(record)) {
+            if (mode == BackpressureMode.DROP) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+            LockSupport.unpark(writerThread);
+            Backoff.pause(attempt++);
+        }
+        if (parked) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    private void runWriter() {
+        while (running || !queue.isEmpty()) {
+            LogRecord record;
+            int drained = 0;
+            while ((record = queue.poll()) != null) {
+                process(record);
+                drained++;
+            }
+
+            long now = System.nanoTime();
+            if (unflushedRecords > 0
+                    && (unflushedRecords >= flushEveryRecords || now - lastFlushNanos >= flushIntervalNanos)) {
+                flushAll();
+            }
+
+            if (drained == 0) {
+                parked = true;
+                if (running && queue.isEmpty()) {
+                    LockSupport.parkNanos(this, unflushedRecords > 0
+                        ? Math.max(1, flushIntervalNanos - (now - lastFlushNanos))
+                        : flushIntervalNanos);
+                }
+                parked = false;
+            }
+        }
+        flushAll();
+        closeAll();
+    }
+
+    private void process(LogRecord record) {
+        try {
+            switch (record.kind) {
+                case APPEND:
+                    write(record.filename, record.text + System.lineSeparator());
+                    unflushedRecords++;
+                    break;
+                case TRUNCATE:
+                    buffers.computeIfAbsent(record.filename, f -> ByteBuffer.allocateDirect(BUFFER_SIZE)).clear();
+                    channel(record.filename).truncate(0);
+                    write(record.filename, record.text);
+                    unflushedRecords++;
+                    break;
+                case FLUSH:
+                    flushAll();
+                    record.done.countDown();
+                    break;
+            }
+        } catch (IOException e) {
+            System.err.println("Eroare la scrierea în fișier " + record.filename + ": " + e.getMessage());
+        }
+    }
+
+    private void write(String filename, String text) throws IOException {
+        ByteBuffer buffer = buffers.computeIfAbsent(filename, f -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+
+        if (bytes.length > buffer.remaining()) {
+            drain(filename, buffer);
+        }
+        if (bytes.length > buffer.capacity()) {
+            // Înregistrare mai mare decât bufferul - scriere directă
+            ByteBuffer large = ByteBuffer.wrap(bytes);
+            FileChannel channel = channel(filename);
+            while (large.hasRemaining()) {
+                channel.write(large);
+            }
+            return;
+        }
+        buffer.put(bytes);
+    }
+
+    private void flushAll() {
+        long start = System.nanoTime();
+        for (Map.Entry<String, ByteBuffer> entry : buffers.entrySet()) {
+            try {
+                drain(entry.getKey(), entry.getValue());
+                if (fsyncPolicy == FsyncPolicy.ON_FLUSH) {
+                    channel(entry.getKey()).force(false);
+                }
+            } catch (IOException e) {
+                System.err.println("Eroare la flush în fișier " + entry.getKey() + ": " + e.getMessage());
+            }
+        }
+        unflushedRecords = 0;
+        lastFlushNanos = System.nanoTime();
+        WRITE_LATENCY.record(lastFlushNanos - start);
+    }
+
+    private void drain(String filename, ByteBuffer buffer) throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        FileChannel channel = channel(filename);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private FileChannel channel(String filename) throws IOException {
+        FileChannel channel = channels.get(filename);
+        if (channel == null) {
+            channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                                       StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            channels.put(filename, channel);
+        }
+        return channel;
+    }
+
+    private void closeAll() {
+        for (Map.Entry<String, FileChannel> entry : channels.entrySet()) {
+            try {
+                entry.getValue().close();
+            } catch (IOException e) {
+                System.err.println("Eroare la închiderea fișierului " + entry.getKey() + ": " + e.getMessage());
+            }
+        }
+        channels.clear();
+    }
+}
@@ -0,0 +1,35 @@
+package util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Așteptare cu backoff pentru producătorii unei cozi pline: câteva încercări
+ * active, apoi yield, apoi park cu pauză crescătoare (până la
+ * MAX_PARK_NANOS). Un producător blocat nu ține un core ocupat și lasă
+ * thread-ul consumator (pe care îl așteaptă) să ruleze.
+ */
+public final class Backoff {
+    private static final int SPIN_ATTEMPTS = 100;
+    private static final int YIELD_ATTEMPTS = 200;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private Backoff() {
+    }
+
+    /**
+     * Așteaptă înaintea încercării următoare.
+     *
+     * @param attempt Numărul încercărilor eșuate până acum (de la 0)
+     */
+    public static void pause(int attempt) {
+        if (attempt < SPIN_ATTEMPTS) {
+            Thread.onSpinWait();
+        } else if (attempt < SPIN_ATTEMPTS + YIELD_ATTEMPTS) {
+            Thread.yield();
+        } else {
+            int shift = Math.min(attempt - SPIN_ATTEMPTS - YIELD_ATTEMPTS, 10);
+            LockSupport.parkNanos(Math.min(1_000L << shift, MAX_PARK_NANOS));
+        }
+    }
+}
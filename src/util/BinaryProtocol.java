@@ -0,0 +1,299 @@
+package util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Protocol binar de plasare a ordinelor, cu mesaje de lungime fixă.
+ *
+ * Clientul alege protocolul la conectare: dacă primul octet trimis este MAGIC,
+ * conexiunea folosește mesajele binare de mai jos; altfel protocolul text
+ * (SUBMIT|...). Primul mesaj binar trebuie să fie LOGON.
+ *
+ * Fiecare mesaj începe cu octetul de tip, iar lungimea rezultă din tip.
+ * Prețurile și volumele circulă în virgulă fixă (tick-uri / unități în scalele
+ * instrumentului), simbolul în 8 octeți ASCII completați cu zero.
+ *
+ * Mesajele sunt citite și scrise prin flyweight-uri: obiecte refolosibile care
+ * se poziționează peste un ByteBuffer și accesează câmpurile direct, fără
+ * copiere și fără alocări per mesaj.
+ *
+ * Layout (big-endian, offset: câmp):
+ *   LOGON (32):            0 tip, 1 versiune, 8 clientId (24 octeți ASCII)
+ *   NEW_ORDER (48):        0 tip, 1 tip ordin, 8 clientOrderId, 16 simbol,
+ *                          24 preț limită, 32 volum, 40 ttlMillis
+ *   ACK (24):              0 tip, 8 clientOrderId, 16 orderNumber
+ *   REJECT (16):           0 tip, 1 motiv, 8 clientOrderId
+ *   EXECUTION_REPORT (40): 0 tip, 1 tip execuție, 8 clientOrderId,
+ *                          16 orderNumber, 24 preț, 32 volum
+ */
+public final class BinaryProtocol {
+    /** Primul octet al unei conexiuni binare (nu poate începe o linie text) */
+    public static final byte MAGIC = (byte) 0xB1;
+    public static final byte VERSION = 1;
+
+    public static final byte LOGON = 1;
+    public static final byte NEW_ORDER = 2;
+    public static final byte ACK = 3;
+    public static final byte REJECT = 4;
+    public static final byte EXECUTION_REPORT = 5;
+
+    public static final int LOGON_LENGTH = 32;
+    public static final int NEW_ORDER_LENGTH = 48;
+    public static final int ACK_LENGTH = 24;
+    public static final int REJECT_LENGTH = 16;
+    public static final int EXECUTION_REPORT_LENGTH = 40;
+
+    public static final int SYMBOL_LENGTH = 8;
+    public static final int CLIENT_ID_LENGTH = 24;
+
+    // Motive de respingere
+    public static final byte REJECT_UNKNOWN_INSTRUMENT = 1;
+    public static final byte REJECT_INVALID_ORDER_TYPE = 2;
+    public static final byte REJECT_INVALID_VALUES = 3;
+    public static final byte REJECT_INSUFFICIENT_LIQUIDITY = 4;
+    public static final byte REJECT_NOT_LOGGED_ON = 5;
+    public static final byte REJECT_RISK_LIMIT = 6;
+
+    // Tipuri de execuție
+    public static final byte EXEC_FILLED = 1;
+    public static final byte EXEC_CANCELLED = 2;
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * Lungimea unui mesaj după tipul lui (-1 pentru tip necunoscut).
+     */
+    public static int lengthOf(byte type) {
+        switch (type) {
+            case LOGON: return LOGON_LENGTH;
+            case NEW_ORDER: return NEW_ORDER_LENGTH;
+            case ACK: return ACK_LENGTH;
+            case REJECT: return REJECT_LENGTH;
+            case EXECUTION_REPORT: return EXECUTION_REPORT_LENGTH;
+            default: return -1;
+        }
+    }
+
+    /**
+     * Codifică un simbol (max. 8 caractere ASCII) într-un long, exact cum apare
+     * pe fir; permite căutarea instrumentului fără a construi un String.
+     */
+    public static long symbolKey(String symbol) {
+        byte[] bytes = symbol.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length > SYMBOL_LENGTH) {
+            throw new IllegalArgumentException("Simbol prea lung pentru protocolul binar: " + symbol);
+        }
+        long key = 0;
+        for (int i = 0; i < SYMBOL_LENGTH; i++) {
+            key = (key << 8) | (i < bytes.length ? bytes[i] & 0xFF : 0);
+        }
+        return key;
+    }
+
+    /**
+     * Bază comună: poziția flyweight-ului în buffer.
+     */
+    private abstract static class Flyweight {
+        protected ByteBuffer buffer;
+        protected int offset;
+
+        protected void attach(ByteBuffer buffer, int offset) {
+            this.buffer = buffer;
+            this.offset = offset;
+        }
+
+        public byte type() {
+            return buffer.get(offset);
+        }
+    }
+
+    /**
+     * LOGON: identifică clientul o singură dată per conexiune.
+     */
+    public static final class Logon extends Flyweight {
+        public Logon wrap(ByteBuffer buffer, int offset) {
+            attach(buffer, offset);
+            return this;
+        }
+
+        public byte version() {
+            return buffer.get(offset + 1);
+        }
+
+        /**
+         * Construiește ID-ul clientului (o singură alocare per conexiune).
+         */
+        public String clientId() {
+            byte[] bytes = new byte[CLIENT_ID_LENGTH];
+            buffer.get(offset + 8, bytes, 0, CLIENT_ID_LENGTH);
+            int length = 0;
+            while (length < CLIENT_ID_LENGTH && bytes[length] != 0) {
+                length++;
+            }
+            return new String(bytes, 0, length, StandardCharsets.US_ASCII);
+        }
+
+        public Logon encode(String clientId) {
+            byte[] bytes = clientId.getBytes(StandardCharsets.US_ASCII);
+            if (bytes.length > CLIENT_ID_LENGTH) {
+                throw new IllegalArgumentException("clientId prea lung: " + clientId);
+            }
+            buffer.put(offset, LOGON);
+            buffer.put(offset + 1, VERSION);
+            clearRange(offset + 2, 6);
+            buffer.put(offset + 8, bytes, 0, bytes.length);
+            clearRange(offset + 8 + bytes.length, CLIENT_ID_LENGTH - bytes.length);
+            return this;
+        }
+
+        private void clearRange(int from, int length) {
+            for (int i = 0; i < length; i++) {
+                buffer.put(from + i, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * NEW_ORDER: cerere de plasare a unui ordin.
+     */
+    public static final class NewOrder extends Flyweight {
+        public NewOrder wrap(ByteBuffer buffer, int offset) {
+            attach(buffer, offset);
+            return this;
+        }
+
+        /** Indexul tipului de ordin (OrderType.ordinal()) */
+        public byte orderType() {
+            return buffer.get(offset + 1);
+        }
+
+        public long clientOrderId() {
+            return buffer.getLong(offset + 8);
+        }
+
+        public long symbolKey() {
+            return buffer.getLong(offset + 16);
+        }
+
+        public long limitPriceTicks() {
+            return buffer.getLong(offset + 24);
+        }
+
+        public long volumeUnits() {
+            return buffer.getLong(offset + 32);
+        }
+
+        public long ttlMillis() {
+            return buffer.getLong(offset + 40);
+        }
+
+        public NewOrder encode(int orderType, long clientOrderId, long symbolKey,
+                               long limitPriceTicks, long volumeUnits, long ttlMillis) {
+            buffer.putLong(offset, 0);
+            buffer.put(offset, NEW_ORDER);
+            buffer.put(offset + 1, (byte) orderType);
+            buffer.putLong(offset + 8, clientOrderId);
+            buffer.putLong(offset + 16, symbolKey);
+            buffer.putLong(offset + 24, limitPriceTicks);
+            buffer.putLong(offset + 32, volumeUnits);
+            buffer.putLong(offset + 40, ttlMillis);
+            return this;
+        }
+    }
+
+    /**
+     * ACK: ordinul a fost admis.
+     */
+    public static final class Ack extends Flyweight {
+        public Ack wrap(ByteBuffer buffer, int offset) {
+            attach(buffer, offset);
+            return this;
+        }
+
+        public long clientOrderId() {
+            return buffer.getLong(offset + 8);
+        }
+
+        public long orderNumber() {
+            return buffer.getLong(offset + 16);
+        }
+
+        public Ack encode(long clientOrderId, long orderNumber) {
+            buffer.putLong(offset, 0);
+            buffer.put(offset, ACK);
+            buffer.putLong(offset + 8, clientOrderId);
+            buffer.putLong(offset + 16, orderNumber);
+            return this;
+        }
+    }
+
+    /**
+     * REJECT: ordinul a fost respins.
+     */
+    public static final class Reject extends Flyweight {
+        public Reject wrap(ByteBuffer buffer, int offset) {
+            attach(buffer, offset);
+            return this;
+        }
+
+        public byte reason() {
+            return buffer.get(offset + 1);
+        }
+
+        public long clientOrderId() {
+            return buffer.getLong(offset + 8);
+        }
+
+        public Reject encode(byte reason, long clientOrderId) {
+            buffer.putLong(offset, 0);
+            buffer.put(offset, REJECT);
+            buffer.put(offset + 1, reason);
+            buffer.putLong(offset + 8, clientOrderId);
+            return this;
+        }
+    }
+
+    /**
+     * EXECUTION_REPORT: starea finală a unui ordin admis (executat sau anulat).
+     */
+    public static final class ExecutionReport extends Flyweight {
+        public ExecutionReport wrap(ByteBuffer buffer, int offset) {
+            attach(buffer, offset);
+            return this;
+        }
+
+        public byte execType() {
+            return buffer.get(offset + 1);
+        }
+
+        public long clientOrderId() {
+            return buffer.getLong(offset + 8);
+        }
+
+        public long orderNumber() {
+            return buffer.getLong(offset + 16);
+        }
+
+        public long priceTicks() {
+            return buffer.getLong(offset + 24);
+        }
+
+        public long volumeUnits() {
+            return buffer.getLong(offset + 32);
+        }
+
+        public ExecutionReport encode(byte execType, long clientOrderId, long orderNumber,
+                                      long priceTicks, long volumeUnits) {
+            buffer.putLong(offset, 0);
+            buffer.put(offset, EXECUTION_REPORT);
+            buffer.put(offset + 1, execType);
+            buffer.putLong(offset + 8, clientOrderId);
+            buffer.putLong(offset + 16, orderNumber);
+            buffer.putLong(offset + 24, priceTicks);
+            buffer.putLong(offset + 32, volumeUnits);
+            return this;
+        }
+    }
+}
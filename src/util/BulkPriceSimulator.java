@@ -0,0 +1,158 @@
+package util;
+
+import model.Instrument;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Simulator de prețuri pentru universuri mari de instrumente (zeci de mii).
+ * Același model ca PriceSimulator: newPrice = prevPrice + mu * dt + sigma * sqrt(dt) * epsilon
+ *
+ * Starea este ținută pe coloane (structure of arrays): prețurile, termenii de
+ * drift (mu * dt) și de difuzie (sigma * sqrt(dt)) stau în tablouri primitive
+ * contigue, deci pasul de simulare nu atinge obiectele Instrument. Tablourile
+ * sunt împărțite în partiții de lungime fixă, actualizate în paralel pe un
+ * ForkJoinPool; fiecare partiție are propriul flux SplittableRandom, derivat
+ * din sămânță, așa că rezultatul nu depinde de thread-ul care o procesează.
+ * La sfârșitul partiției prețurile noi sunt publicate în instrumente, o
+ * singură scriere per instrument.
+ *
+ * Prețurile din tablouri sunt sursa de adevăr: o modificare externă a
+ * prețului unui instrument este preluată doar după reload().
+ * updateAllPrices() nu trebuie apelat concurent cu el însuși.
+ */
+public final class BulkPriceSimulator {
+    /** Instrumente per partiție (sarcina minimă din fork-join). */
+    public static final int DEFAULT_PARTITION_SIZE = 4_096;
+    private static final double MIN_PRICE = 1.0;
+
+    private final Instrument[] instruments;
+    private final double[] prices;
+    private final double[] drift;
+    private final double[] diffusion;
+    private final double[] priceScale;
+    private final SplittableRandom[] randoms;
+    private final int partitionSize;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor cu sămânță aleatoare, pe pool-ul comun.
+     *
+     * @param dt Intervalul de timp pentru actualizare (ex: 2.0 pentru 2 secunde)
+     */
+    public BulkPriceSimulator(List<Instrument> instruments, double dt) {
+        this(instruments, dt, System.nanoTime(), DEFAULT_PARTITION_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor cu sămânță fixă: aceeași secvență de prețuri la fiecare rulare,
+     * indiferent de numărul de thread-uri.
+     */
+    public BulkPriceSimulator(List<Instrument> instruments, double dt, long seed) {
+        this(instruments, dt, seed, DEFAULT_PARTITION_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param partitionSize Instrumente per partiție
+     * @param pool Pool-ul pe care se actualizează partițiile
+     */
+    public BulkPriceSimulator(List<Instrument> instruments, double dt, long seed,
+                              int partitionSize, ForkJoinPool pool) {
+        if (partitionSize < 1) {
+            throw new IllegalArgumentException("Partiție invalidă: " + partitionSize);
+        }
+        int size = instruments.size();
+        this.instruments = instruments.toArray(new Instrument[0]);
+        this.prices = new double[size];
+        this.drift = new double[size];
+        this.diffusion = new double[size];
+        this.priceScale = new double[size];
+        double sqrtDt = Math.sqrt(dt);
+        for (int i = 0; i < size; i++) {
+            Instrument instrument = this.instruments[i];
+            drift[i] = instrument.getTrend() * dt;
+            diffusion[i] = instrument.getVolatility() * sqrtDt;
+            priceScale[i] = instrument.getPriceScale();
+        }
+        reload();
+
+        this.partitionSize = partitionSize;
+        this.randoms = new SplittableRandom[(size + partitionSize - 1) / partitionSize];
+        SplittableRandom root = new SplittableRandom(seed);
+        for (int p = 0; p < randoms.length; p++) {
+            randoms[p] = root.split();
+        }
+        this.pool = pool;
+    }
+
+    /**
+     * Recitește prețurile curente din instrumente (după o modificare externă,
+     * de exemplu recuperarea din jurnal).
+     */
+    public void reload() {
+        for (int i = 0; i < instruments.length; i++) {
+            prices[i] = instruments[i].getCurrentPrice();
+        }
+    }
+
+    /**
+     * Actualizează prețurile tuturor instrumentelor: partițiile în paralel,
+     * o singură partiție direct pe thread-ul apelant.
+     */
+    public void updateAllPrices() {
+        if (randoms.length <= 1) {
+            if (randoms.length == 1) {
+                updatePartition(0);
+            }
+            return;
+        }
+        pool.invoke(new PartitionTask(0, randoms.length));
+    }
+
+    public int size() {
+        return instruments.length;
+    }
+
+    /**
+     * Simulează o partiție pe tablouri, apoi publică prețurile ei.
+     */
+    private void updatePartition(int partition) {
+        int from = partition * partitionSize;
+        int to = Math.min(from + partitionSize, prices.length);
+        SplittableRandom random = randoms[partition];
+        for (int i = from; i < to; i++) {
+            double price = prices[i] + drift[i] + diffusion[i] * random.nextGaussian();
+            prices[i] = Math.max(price, MIN_PRICE);
+        }
+        for (int i = from; i < to; i++) {
+            instruments[i].setCurrentPriceTicks(Math.round(prices[i] * priceScale[i]));
+        }
+    }
+
+    /**
+     * Interval de partiții, împărțit în două până la o singură partiție.
+     */
+    private final class PartitionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        PartitionTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                updatePartition(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new PartitionTask(from, middle), new PartitionTask(middle, to));
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package util;
+
+/**
+ * Nivelurile mesajelor de diagnostic, în ordinea importanței.
+ */
+public enum DiagnosticLevel {
+    /**
+     * Detalii pentru depanare
+     */
+    DEBUG,
+
+    /**
+     * Evenimentele obișnuite (ordine acceptate, executate, anulate)
+     */
+    INFO,
+
+    /**
+     * Situații neobișnuite care nu opresc funcționarea
+     */
+    WARN,
+
+    /**
+     * Erori
+     */
+    ERROR
+}
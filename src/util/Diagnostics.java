@@ -0,0 +1,393 @@
+package util;
+
+import java.io.PrintStream;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Magistrala de diagnostic: mesajele de consolă de pe calea critică.
+ *
+ * Codul emițător nu formatează nimic și nu atinge System.out (un PrintStream
+ * sincronizat, deci un lock global sub încărcare): pune argumentele brute ale
+ * unui eveniment tipizat (Type) în ring buffer-ul propriului thread, fără
+ * lock-uri și fără alocări. Un singur thread de fundal golește ring-urile și
+ * randează evenimentele pe loturi, cu un singur apel de scriere per lot.
+ *
+ * Pe calea critică rămân doar filtrul de nivel (o citire volatilă) și copierea
+ * argumentelor. Dacă ring-ul thread-ului este plin, evenimentul este aruncat
+ * și numărat (diag.dropped), emițătorul nu așteaptă niciodată. Randarea este
+ * limitată per tip de eveniment (eșantionare: cel mult setSampleLimit()
+ * evenimente pe secundă, restul sunt numărate în diag.sampled și raportate
+ * la sfârșitul secundei). În modul silențios (producție) se păstrează doar
+ * WARN și ERROR.
+ *
+ * Ordinea evenimentelor este păstrată pentru fiecare thread, nu și între thread-uri.
+ */
+public final class Diagnostics {
+    private static final int RING_CAPACITY = 1 << 10;
+    private static final int MAX_BATCH = 1_024;
+    private static final long IDLE_PARK_NANOS = 1_000_000; // 1 ms
+    private static final long FLUSH_TIMEOUT_NANOS = 2_000_000_000L;
+    private static final long SAMPLE_WINDOW_NANOS = 1_000_000_000L;
+    private static final LongAdder SAMPLED = Metrics.counter("diag.sampled");
+
+    private static final CopyOnWriteArrayList<Ring> rings = new CopyOnWriteArrayList<>();
+    private static final CopyOnWriteArrayList<Type> types = new CopyOnWriteArrayList<>();
+    private static final ThreadLocal<Ring> localRing = ThreadLocal.withInitial(Diagnostics::register);
+    // Aruncate de ring-urile thread-urilor terminate (deja scoase din listă)
+    private static final AtomicLong retiredDrops = new AtomicLong();
+
+    private static volatile DiagnosticLevel level = DiagnosticLevel.INFO;
+    private static volatile boolean quiet;
+    private static volatile int sampleLimit = 100;
+    private static Thread consumer;
+
+    static {
+        Metrics.gauge("diag.dropped", Diagnostics::getDroppedCount);
+    }
+
+    private Diagnostics() {
+    }
+
+    /**
+     * Randează argumentele unui eveniment (pe thread-ul de fundal).
+     */
+    public interface Renderer {
+        void render(StringBuilder out, Event event);
+    }
+
+    /**
+     * Un tip de eveniment: nume, nivel și randare. Se creează o singură dată
+     * (câmp static final în clasa emițătoare).
+     */
+    public static final class Type {
+        private final String name;
+        private final DiagnosticLevel level;
+        private final Renderer renderer;
+        // Eșantionare - folosite doar de thread-ul de fundal
+        private long windowStart;
+        private int renderedInWindow;
+        private long suppressedInWindow;
+
+        private Type(String name, DiagnosticLevel level, Renderer renderer) {
+            this.name = name;
+            this.level = level;
+            this.renderer = renderer;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public DiagnosticLevel getLevel() {
+            return level;
+        }
+    }
+
+    /**
+     * Vedere asupra argumentelor evenimentului randat (validă doar în Renderer.render).
+     */
+    public static final class Event {
+        private Ring ring;
+        private int slot;
+
+        public Object object(int i) {
+            return ring.objects[slot * OBJECTS + i];
+        }
+
+        public long longValue(int i) {
+            return ring.longs[slot * LONGS + i];
+        }
+
+        public double doubleValue(int i) {
+            return ring.doubles[slot * DOUBLES + i];
+        }
+    }
+
+    /**
+     * Definește un tip de eveniment.
+     */
+    public static Type type(String name, DiagnosticLevel level, Renderer renderer) {
+        Type type = new Type(name, level, renderer);
+        types.add(type);
+        return type;
+    }
+
+    /**
+     * Nivelul minim randat (implicit INFO).
+     */
+    public static void setLevel(DiagnosticLevel minimum) {
+        level = minimum;
+    }
+
+    /**
+     * Modul silențios de producție: doar WARN și ERROR, restul sunt ignorate
+     * chiar la emitere.
+     */
+    public static void setQuiet(boolean enabled) {
+        quiet = enabled;
+    }
+
+    /**
+     * Numărul maxim de evenimente randate pe secundă pentru fiecare tip (0 = nelimitat).
+     */
+    public static void setSampleLimit(int eventsPerSecond) {
+        if (eventsPerSecond < 0) {
+            throw new IllegalArgumentException("Limită de eșantionare invalidă: " + eventsPerSecond);
+        }
+        sampleLimit = eventsPerSecond;
+    }
+
+    /**
+     * true dacă evenimentele de acest tip ar fi randate (pentru emițătorii care
+     * ar avea de calculat argumentele).
+     */
+    public static boolean isEnabled(Type type) {
+        DiagnosticLevel minimum = level;
+        if (quiet && minimum.compareTo(DiagnosticLevel.WARN) < 0) {
+            minimum = DiagnosticLevel.WARN;
+        }
+        return type.level.compareTo(minimum) >= 0;
+    }
+
+    public static void emit(Type type, Object a) {
+        if (isEnabled(type)) {
+            localRing.get().offer(type, a, null, null, 0, 0, 0, 0, 0);
+        }
+    }
+
+    public static void emit(Type type, Object a, Object b) {
+        if (isEnabled(type)) {
+            localRing.get().offer(type, a, b, null, 0, 0, 0, 0, 0);
+        }
+    }
+
+    public static void emit(Type type, Object a, Object b, Object c) {
+        if (isEnabled(type)) {
+            localRing.get().offer(type, a, b, c, 0, 0, 0, 0, 0);
+        }
+    }
+
+    public static void emit(Type type, Object a, long x) {
+        if (isEnabled(type)) {
+            localRing.get().offer(type, a, null, null, x, 0, 0, 0, 0);
+        }
+    }
+
+    public static void emit(Type type, Object a, long x, long y) {
+        if (isEnabled(type)) {
+            localRing.get().offer(type, a, null, null, x, y, 0, 0, 0);
+        }
+    }
+
+    public static void emit(Type type, Object a, double p, double q) {
+        if (isEnabled(type)) {
+            localRing.get().offer(type, a, null, null, 0, 0, p, q, 0);
+        }
+    }
+
+    public static void emit(Type type, Object a, Object b, Object c, double p, double q, double r) {
+        if (isEnabled(type)) {
+            localRing.get().offer(type, a, b, c, 0, 0, p, q, r);
+        }
+    }
+
+    /**
+     * Așteaptă (cel mult 2 secunde) randarea evenimentelor emise până acum de
+     * toate thread-urile, de ex. înainte de mesajele de oprire.
+     */
+    public static void flush() {
+        Thread t;
+        synchronized (Diagnostics.class) {
+            t = consumer;
+        }
+        if (t == null) {
+            return;
+        }
+        Ring[] pending = rings.toArray(new Ring[0]);
+        long[] targets = new long[pending.length];
+        for (int i = 0; i < pending.length; i++) {
+            targets[i] = pending[i].tail.get();
+        }
+        long deadline = System.nanoTime() + FLUSH_TIMEOUT_NANOS;
+        for (int i = 0; i < pending.length; i++) {
+            while (pending[i].written.get() < targets[i] && System.nanoTime() < deadline) {
+                LockSupport.unpark(t);
+                LockSupport.parkNanos(100_000);
+            }
+        }
+    }
+
+    /**
+     * Evenimente aruncate pentru că ring-ul thread-ului era plin.
+     */
+    public static long getDroppedCount() {
+        long total = retiredDrops.get();
+        for (Ring ring : rings) {
+            total += ring.dropped;
+        }
+        return total;
+    }
+
+    private static Ring register() {
+        Ring ring = new Ring(Thread.currentThread());
+        rings.add(ring);
+        synchronized (Diagnostics.class) {
+            if (consumer == null) {
+                consumer = new Thread(Diagnostics::runConsumer, "Diagnostics");
+                consumer.setDaemon(true);
+                consumer.start();
+            }
+        }
+        return ring;
+    }
+
+    // Argumente per slot
+    private static final int OBJECTS = 3;
+    private static final int LONGS = 2;
+    private static final int DOUBLES = 3;
+
+    /**
+     * Ring-ul unui thread: un producător (thread-ul proprietar), un consumator
+     * (thread-ul de fundal). Argumentele stau în tablouri preallocate.
+     */
+    private static final class Ring {
+        final Thread owner;
+        final Type[] types = new Type[RING_CAPACITY];
+        final Object[] objects = new Object[RING_CAPACITY * OBJECTS];
+        final long[] longs = new long[RING_CAPACITY * LONGS];
+        final double[] doubles = new double[RING_CAPACITY * DOUBLES];
+        final AtomicLong tail = new AtomicLong(); // scris doar de proprietar
+        final AtomicLong head = new AtomicLong(); // scris doar de consumator
+        final AtomicLong written = new AtomicLong(); // randate și scrise în consolă
+        long renderedUpTo;                        // copia consumatorului, până la scriere
+        long cachedHead;                          // copia proprietarului
+        volatile long dropped;
+
+        Ring(Thread owner) {
+            this.owner = owner;
+        }
+
+        void offer(Type type, Object a, Object b, Object c, long x, long y, double p, double q, double r) {
+            long t = tail.get();
+            if (t - cachedHead >= RING_CAPACITY) {
+                cachedHead = head.get();
+                if (t - cachedHead >= RING_CAPACITY) {
+                    dropped = dropped + 1;
+                    return;
+                }
+            }
+            int slot = (int) t & (RING_CAPACITY - 1);
+            types[slot] = type;
+            objects[slot * OBJECTS] = a;
+            objects[slot * OBJECTS + 1] = b;
+            objects[slot * OBJECTS + 2] = c;
+            longs[slot * LONGS] = x;
+            longs[slot * LONGS + 1] = y;
+            doubles[slot * DOUBLES] = p;
+            doubles[slot * DOUBLES + 1] = q;
+            doubles[slot * DOUBLES + 2] = r;
+            tail.lazySet(t + 1);
+        }
+
+        boolean isEmpty() {
+            return head.get() == tail.get();
+        }
+    }
+
+    private static void runConsumer() {
+        Event event = new Event();
+        StringBuilder out = new StringBuilder(1 << 14);
+        StringBuilder err = new StringBuilder();
+        while (true) {
+            long now = System.nanoTime();
+            boolean rendered = false;
+            for (Ring ring : rings) {
+                rendered |= drain(ring, event, now, out, err);
+                if (!ring.owner.isAlive() && ring.isEmpty()) {
+                    rings.remove(ring);
+                    retiredDrops.addAndGet(ring.dropped);
+                }
+            }
+            // Omisiunile tipurilor care nu au mai emis după fereastra lor
+            for (Type type : types) {
+                if (type.suppressedInWindow > 0 && now - type.windowStart >= SAMPLE_WINDOW_NANOS) {
+                    reportSuppressed(type, type.level.compareTo(DiagnosticLevel.WARN) >= 0 ? err : out);
+                }
+            }
+            write(System.out, out);
+            write(System.err, err);
+            for (Ring ring : rings) {
+                ring.written.lazySet(ring.renderedUpTo);
+            }
+            if (!rendered) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Randează cel mult MAX_BATCH evenimente din ring.
+     */
+    private static boolean drain(Ring ring, Event event, long now, StringBuilder out, StringBuilder err) {
+        long h = ring.head.get();
+        long available = Math.min(ring.tail.get() - h, MAX_BATCH);
+        if (available == 0) {
+            return false;
+        }
+        int limit = sampleLimit;
+        event.ring = ring;
+        for (long seq = h; seq < h + available; seq++) {
+            int slot = (int) seq & (RING_CAPACITY - 1);
+            Type type = ring.types[slot];
+            StringBuilder target = type.level.compareTo(DiagnosticLevel.WARN) >= 0 ? err : out;
+            if (now - type.windowStart >= SAMPLE_WINDOW_NANOS) {
+                reportSuppressed(type, target);
+                type.windowStart = now;
+                type.renderedInWindow = 0;
+            }
+            if (limit > 0 && type.renderedInWindow >= limit) {
+                type.suppressedInWindow++;
+                SAMPLED.increment();
+            } else {
+                type.renderedInWindow++;
+                event.slot = slot;
+                int mark = target.length();
+                try {
+                    type.renderer.render(target, event);
+                    target.append(System.lineSeparator());
+                } catch (RuntimeException e) {
+                    target.setLength(mark);
+                    err.append("Eroare de randare ").append(type.name).append(": ")
+                       .append(e).append(System.lineSeparator());
+                }
+            }
+            // Fără referințe reținute după randare
+            ring.types[slot] = null;
+            ring.objects[slot * OBJECTS] = null;
+            ring.objects[slot * OBJECTS + 1] = null;
+            ring.objects[slot * OBJECTS + 2] = null;
+        }
+        ring.renderedUpTo = h + available;
+        ring.head.lazySet(h + available);
+        return true;
+    }
+
+    private static void reportSuppressed(Type type, StringBuilder target) {
+        if (type.suppressedInWindow > 0) {
+            target.append("[diag] ").append(type.name).append(": ").append(type.suppressedInWindow)
+                  .append(" evenimente omise (eșantionare)").append(System.lineSeparator());
+            type.suppressedInWindow = 0;
+        }
+    }
+
+    private static void write(PrintStream stream, StringBuilder text) {
+        if (text.length() > 0) {
+            stream.print(text);
+            stream.flush();
+            text.setLength(0);
+        }
+    }
+}
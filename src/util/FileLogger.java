@@ -1,54 +1,150 @@
 package util;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
-import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
 /**
  * Logger simplu pentru scriere în fișiere text.
- * Thread-safe prin sincronizare.
+ *
+ * Scrierea este asincronă: apelantul doar formatează linia și o pune în
+ * coada unui AsyncLogWriter; fișierele rămân deschise și sunt scrise pe
+ * loturi de un singur thread, deci nu există lock sau I/O pe calea critică.
  */
 public class FileLogger {
-    private static final DateTimeFormatter TIME_FORMAT = 
+    private static final DateTimeFormatter TIME_FORMAT =
         DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-    
+
+    // Configurație implicită
+    private static final int DEFAULT_QUEUE_CAPACITY = 1 << 16;
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 50;
+    private static final int DEFAULT_FLUSH_EVERY_RECORDS = 1024;
+
+    private static volatile AsyncLogWriter writer;
+
+    static {
+        Metrics.gauge("log.queue", FileLogger::getQueueDepth);
+        Metrics.gauge("log.dropped", FileLogger::getDroppedCount);
+    }
+
+    // Timestamp-ul formatat se reutilizează în aceeași secundă
+    private static volatile CachedTimestamp cachedTimestamp = new CachedTimestamp(-1, "");
+
+    private static final class CachedTimestamp {
+        final long epochSecond;
+        final String text;
+
+        CachedTimestamp(long epochSecond, String text) {
+            this.epochSecond = epochSecond;
+            this.text = text;
+        }
+    }
+
     /**
-     * Scrie un mesaj într-un fișier (sincronizat).
-     * 
+     * Configurează pipeline-ul de scriere. Trebuie apelat înainte de primul log;
+     * un writer existent este închis (după ce își golește coada).
+     *
+     * @param flushIntervalMillis Intervalul maxim între flush-uri
+     * @param flushEveryRecords Flush după acest număr de înregistrări
+     * @param fsyncPolicy Politica de fsync
+     * @param backpressureMode Comportamentul când coada e plină
+     */
+    public static synchronized void configure(long flushIntervalMillis, int flushEveryRecords,
+                                              AsyncLogWriter.FsyncPolicy fsyncPolicy,
+                                              AsyncLogWriter.BackpressureMode backpressureMode) {
+        AsyncLogWriter previous = writer;
+        writer = new AsyncLogWriter(DEFAULT_QUEUE_CAPACITY, flushIntervalMillis, flushEveryRecords,
+                                    fsyncPolicy, backpressureMode);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    private static AsyncLogWriter writer() {
+        AsyncLogWriter current = writer;
+        if (current == null) {
+            synchronized (FileLogger.class) {
+                current = writer;
+                if (current == null) {
+                    current = new AsyncLogWriter(DEFAULT_QUEUE_CAPACITY, DEFAULT_FLUSH_INTERVAL_MILLIS,
+                                                 DEFAULT_FLUSH_EVERY_RECORDS,
+                                                 AsyncLogWriter.FsyncPolicy.NEVER,
+                                                 AsyncLogWriter.BackpressureMode.BLOCK);
+                    writer = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Scrie un mesaj într-un fișier (asincron).
+     *
      * @param filename Numele fișierului
      * @param message Mesajul de scris
      */
-    public synchronized static void log(String filename, String message) {
-        try (BufferedWriter writer = new BufferedWriter(
-                new FileWriter(filename, true))) {
-            writer.write(message);
-            writer.newLine();
-        } catch (IOException e) {
-            System.err.println("Eroare la scrierea în fișier " + filename + ": " + e.getMessage());
-        }
+    public static void log(String filename, String message) {
+        writer().append(filename, message);
     }
-    
+
     /**
      * Scrie un mesaj cu timestamp într-un fișier.
      */
-    public synchronized static void logWithTimestamp(String filename, String message) {
-        String timestampedMessage = LocalDateTime.now().format(TIME_FORMAT) + " | " + message;
-        log(filename, timestampedMessage);
+    public static void logWithTimestamp(String filename, String message) {
+        log(filename, timestamp() + " | " + message);
     }
-    
+
     /**
      * Creează sau suprascrie un fișier cu un header.
      */
-    public synchronized static void initializeFile(String filename, String header) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename, false))) {
-            writer.write(header);
-            writer.newLine();
-            writer.write("=".repeat(80));
-            writer.newLine();
-        } catch (IOException e) {
-            System.err.println("Eroare la inițializarea fișierului " + filename + ": " + e.getMessage());
+    public static void initializeFile(String filename, String header) {
+        String newline = System.lineSeparator();
+        writer().truncate(filename, header + newline + "=".repeat(80) + newline);
+    }
+
+    /**
+     * Așteaptă până când tot ce s-a logat până acum este scris în fișiere.
+     */
+    public static void flush() {
+        AsyncLogWriter current = writer;
+        if (current != null) {
+            current.flush();
+        }
+    }
+
+    /**
+     * Golește coada și închide fișierele.
+     */
+    public static synchronized void shutdown() {
+        AsyncLogWriter current = writer;
+        writer = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * Numărul de mesaje aruncate (doar în modul BackpressureMode.DROP).
+     */
+    public static long getDroppedCount() {
+        AsyncLogWriter current = writer;
+        return current != null ? current.getDroppedCount() : 0;
+    }
+
+    /**
+     * Înregistrări care așteaptă thread-ul de scriere.
+     */
+    public static int getQueueDepth() {
+        AsyncLogWriter current = writer;
+        return current != null ? current.getQueueDepth() : 0;
+    }
+
+    private static String timestamp() {
+        long second = System.currentTimeMillis() / 1000;
+        CachedTimestamp cached = cachedTimestamp;
+        if (cached.epochSecond != second) {
+            cached = new CachedTimestamp(second, LocalDateTime.now().format(TIME_FORMAT));
+            cachedTimestamp = cached;
         }
+        return cached.text;
     }
 }
@@ -12,6 +12,28 @@ public class IdGenerator {
      * Generează un ID unic pentru un nou ordin.
      */
     public static String generateOrderId() {
-        return "ORD-" + orderCounter.getAndIncrement();
+        return orderIdOf(nextOrderNumber());
+    }
+    
+    /**
+     * Rezervă următorul număr de ordin (pentru protocolul binar, care îl trimite ca long).
+     */
+    public static long nextOrderNumber() {
+        return orderCounter.getAndIncrement();
+    }
+    
+    /**
+     * ID-ul text corespunzător unui număr de ordin.
+     */
+    public static String orderIdOf(long orderNumber) {
+        return "ORD-" + orderNumber;
+    }
+    
+    /**
+     * Asigură că următoarele ID-uri încep cel puțin de la valoarea dată
+     * (de exemplu, după recuperarea ordinelor din jurnal).
+     */
+    public static void advanceTo(long nextValue) {
+        orderCounter.accumulateAndGet(nextValue, Math::max);
     }
 }
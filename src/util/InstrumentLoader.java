@@ -0,0 +1,419 @@
+package util;
+
+import model.Instrument;
+import model.InstrumentRegistry;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Încarcă universul de instrumente dintr-un fișier CSV.
+ *
+ * Format CSV (o linie per instrument; liniile goale și cele care încep cu '#'
+ * sunt ignorate, un antet care începe cu "id" este opțional):
+ *   id,preț,lichiditateMaximă,volatilitate,trend[,scalaPrețului,scalaVolumului]
+ *
+ * Fișierul este mapat în memorie și împărțit în bucăți aliniate la sfârșit de
+ * linie, parsate în paralel pe pool-ul comun. După parsare se scrie lângă el
+ * un snapshot binar (fișier + SNAPSHOT_SUFFIX), cu instrumentele deja în
+ * ordinea indexului din registru; la pornirile următoare snapshot-ul este
+ * mapat și citit direct, fără parsare de text și fără sortare. Snapshot-ul
+ * reține dimensiunea și data modificării CSV-ului: dacă fișierul se schimbă,
+ * este recompilat automat.
+ *
+ * Format snapshot (big-endian):
+ *   antet: MAGIC, VERSION, dimensiunea CSV, data modificării CSV, număr instrumente
+ *   per instrument: lungime id (short), id (ASCII), preț (tick-uri),
+ *                   lichiditate maximă, volatilitate, trend, scala prețului, scala volumului
+ */
+public final class InstrumentLoader {
+    public static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final int SNAPSHOT_MAGIC = 0x494E5354; // "INST"
+    private static final int SNAPSHOT_VERSION = 1;
+    // MAGIC, VERSION, dimensiune CSV, data modificării CSV, număr instrumente
+    private static final int SNAPSHOT_HEADER_LENGTH = 4 + 4 + 8 + 8 + 4;
+    // Sub această dimensiune o bucată nu merită un task separat
+    private static final int MIN_CHUNK_BYTES = 1 << 16;
+
+    private InstrumentLoader() {
+    }
+
+    /**
+     * Încarcă instrumentele din snapshot-ul CSV-ului, dacă este la zi, altfel
+     * parsează CSV-ul și (re)scrie snapshot-ul.
+     *
+     * @throws IOException dacă CSV-ul lipsește sau are o linie invalidă
+     * @throws IllegalArgumentException pentru ID-uri duplicate sau non-ASCII
+     */
+    public static InstrumentRegistry load(Path csv) throws IOException {
+        long csvSize = Files.size(csv);
+        long csvModified = Files.getLastModifiedTime(csv).toMillis();
+        Path snapshot = snapshotPath(csv);
+        Path pending = pendingSnapshotPath(snapshot);
+        if (Files.exists(pending)) {
+            // Înlocuirea de la pornirea anterioară a eșuat (snapshot-ul vechi era mapat)
+            try {
+                Files.move(pending, snapshot, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                System.err.println("Snapshot de instrumente neînlocuit: " + e.getMessage());
+            }
+        }
+        if (Files.exists(snapshot)) {
+            try {
+                List<Instrument> instruments = readSnapshot(snapshot, csvSize, csvModified);
+                if (instruments != null) {
+                    return new InstrumentRegistry(instruments);
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Snapshot de instrumente invalid, se recitește CSV-ul: " + e.getMessage());
+            }
+        }
+
+        InstrumentRegistry registry = new InstrumentRegistry(parseCsv(csv));
+        try {
+            writeSnapshot(registry, snapshot, csvSize, csvModified);
+            System.out.println("✓ Snapshot de instrumente scris: " + snapshot);
+        } catch (IOException e) {
+            System.err.println("Snapshot de instrumente nescris: " + e.getMessage());
+        }
+        return registry;
+    }
+
+    /**
+     * Fișierul snapshot asociat unui CSV.
+     */
+    public static Path snapshotPath(Path csv) {
+        return csv.resolveSibling(csv.getFileName() + SNAPSHOT_SUFFIX);
+    }
+
+    /**
+     * Parsează CSV-ul în paralel. Instrumentele rămân în ordinea din fișier.
+     *
+     * @throws IOException cu numărul liniei, pentru prima linie invalidă
+     */
+    public static List<Instrument> parseCsv(Path csv) throws IOException {
+        try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Fișier de instrumente prea mare: " + csv);
+            }
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int length = (int) size;
+
+            int count = (int) Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism() * 4L,
+                                                   length / MIN_CHUNK_BYTES));
+            Chunk[] chunks = new Chunk[count];
+            int start = 0;
+            for (int i = 0; i < count; i++) {
+                int end = i == count - 1
+                    ? length
+                    : Math.max(start, lineEnd(data, (int) ((long) length * (i + 1) / count), length));
+                chunks[i] = new Chunk(data, start, end, i == 0);
+                start = end;
+            }
+            Arrays.stream(chunks).parallel().forEach(Chunk::parse);
+
+            int total = 0;
+            int lineOffset = 0;
+            for (Chunk chunk : chunks) {
+                if (chunk.error != null) {
+                    throw new IOException(csv + ", linia " + (lineOffset + chunk.errorLine) + ": " + chunk.error);
+                }
+                lineOffset += chunk.lines;
+                total += chunk.instruments.size();
+            }
+            List<Instrument> instruments = new ArrayList<>(total);
+            for (Chunk chunk : chunks) {
+                instruments.addAll(chunk.instruments);
+            }
+            return instruments;
+        }
+    }
+
+    /**
+     * Poziția de după sfârșitul liniei care conține poziția dată.
+     */
+    private static int lineEnd(ByteBuffer data, int position, int length) {
+        int p = position;
+        while (p < length && data.get(p) != '\n') {
+            p++;
+        }
+        return Math.min(p + 1, length);
+    }
+
+    /**
+     * O bucată de linii întregi din CSV, parsată de un singur thread.
+     */
+    private static final class Chunk {
+        private final ByteBuffer data;
+        private final int start;
+        private final int end;
+        private final boolean first;
+        private final List<Instrument> instruments = new ArrayList<>();
+        private final int[] fieldStart = new int[7];
+        private final int[] fieldEnd = new int[7];
+        private int lines;
+        private int errorLine;
+        private String error;
+
+        Chunk(ByteBuffer data, int start, int end, boolean first) {
+            this.data = data;
+            this.start = start;
+            this.end = end;
+            this.first = first;
+        }
+
+        void parse() {
+            boolean headerAllowed = first;
+            int p = start;
+            while (p < end) {
+                int lineStart = p;
+                while (p < end && data.get(p) != '\n') {
+                    p++;
+                }
+                int lineStop = p;
+                p++;
+                lines++;
+                if (lineStop > lineStart && data.get(lineStop - 1) == '\r') {
+                    lineStop--;
+                }
+                lineStart = skipSpaces(lineStart, lineStop);
+                if (lineStart == lineStop || data.get(lineStart) == '#') {
+                    continue;
+                }
+                try {
+                    int fields = split(lineStart, lineStop);
+                    if (headerAllowed) {
+                        headerAllowed = false;
+                        if (text(0).equalsIgnoreCase("id")) {
+                            continue;
+                        }
+                    }
+                    instruments.add(parseLine(fields));
+                } catch (IllegalArgumentException e) {
+                    errorLine = lines;
+                    error = e.getMessage();
+                    return;
+                }
+            }
+        }
+
+        private Instrument parseLine(int fields) {
+            if (fields != 5 && fields != 7) {
+                throw new IllegalArgumentException("sunt așteptate 5 sau 7 câmpuri, nu " + fields);
+            }
+            String id = text(0);
+            if (id.isEmpty()) {
+                throw new IllegalArgumentException("ID lipsă");
+            }
+            double price = number(1);
+            double maxLiquidity = number(2);
+            double volatility = number(3);
+            double trend = number(4);
+            if (!(price > 0) || !(maxLiquidity >= 0) || !(volatility >= 0)) {
+                throw new IllegalArgumentException("parametri invalizi pentru " + id);
+            }
+            if (fields == 5) {
+                return new Instrument(id, price, maxLiquidity, volatility, trend);
+            }
+            return new Instrument(id, price, maxLiquidity, volatility, trend,
+                                  (long) number(5), (long) number(6));
+        }
+
+        private int split(int from, int to) {
+            int fields = 0;
+            int p = from;
+            while (true) {
+                int stop = p;
+                while (stop < to && data.get(stop) != ',') {
+                    stop++;
+                }
+                if (fields == fieldStart.length) {
+                    throw new IllegalArgumentException("prea multe câmpuri");
+                }
+                int s = skipSpaces(p, stop);
+                int e = stop;
+                while (e > s && data.get(e - 1) == ' ') {
+                    e--;
+                }
+                fieldStart[fields] = s;
+                fieldEnd[fields] = e;
+                fields++;
+                if (stop == to) {
+                    return fields;
+                }
+                p = stop + 1;
+            }
+        }
+
+        private int skipSpaces(int from, int to) {
+            int p = from;
+            while (p < to && data.get(p) == ' ') {
+                p++;
+            }
+            return p;
+        }
+
+        private String text(int field) {
+            byte[] bytes = new byte[fieldEnd[field] - fieldStart[field]];
+            data.get(fieldStart[field], bytes);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+
+        private double number(int field) {
+            String value = text(field);
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("număr invalid: '" + value + "'");
+            }
+        }
+    }
+
+    private static Path pendingSnapshotPath(Path snapshot) {
+        return snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+    }
+
+    /**
+     * Scrie snapshot-ul în ordinea indexului (fișier temporar, apoi mutare atomică).
+     * Dacă snapshot-ul vechi nu poate fi înlocuit (pe Windows, cât timp e încă
+     * mapat), fișierul temporar rămâne și load() îl mută la următoarea pornire.
+     */
+    private static void writeSnapshot(InstrumentRegistry registry, Path snapshot,
+                                      long csvSize, long csvModified) throws IOException {
+        Path tmp = pendingSnapshotPath(snapshot);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(csvSize);
+            out.writeLong(csvModified);
+            out.writeInt(registry.size());
+            for (Instrument instrument : registry.instruments()) {
+                out.writeShort(instrument.getId().length());
+                out.writeBytes(instrument.getId());
+                out.writeLong(instrument.getCurrentPriceTicks());
+                out.writeDouble(instrument.getMaxLiquidity());
+                out.writeDouble(instrument.getVolatility());
+                out.writeDouble(instrument.getTrend());
+                out.writeLong(instrument.getPriceScale());
+                out.writeLong(instrument.getVolumeScale());
+            }
+        }
+        try {
+            Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IOException("snapshot-ul vechi nu poate fi înlocuit acum, se înlocuiește la "
+                                  + "următoarea pornire: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Citește snapshot-ul: antetul cu o citire obișnuită, restul mapat în
+     * memorie doar dacă antetul corespunde CSV-ului. Un snapshot vechi nu se
+     * mapează, ca writeSnapshot să-l poată înlocui (pe Windows un fișier
+     * mapat nu se poate înlocui).
+     *
+     * @return Instrumentele în ordinea indexului sau null dacă snapshot-ul
+     *         nu corespunde CSV-ului curent (sau altei versiuni a formatului)
+     */
+    private static List<Instrument> readSnapshot(Path snapshot, long csvSize, long csvModified)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_LENGTH);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // citește până la sfârșitul antetului
+            }
+            header.flip();
+            if (header.remaining() < SNAPSHOT_HEADER_LENGTH || header.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Fișierul nu este un snapshot de instrumente: " + snapshot);
+            }
+            if (header.getInt() != SNAPSHOT_VERSION || header.getLong() != csvSize
+                    || header.getLong() != csvModified) {
+                return null;
+            }
+            int count = header.getInt();
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, SNAPSHOT_HEADER_LENGTH,
+                                                channel.size() - SNAPSHOT_HEADER_LENGTH);
+            List<Instrument> instruments = new ArrayList<>(count);
+            byte[] idBytes = new byte[64];
+            for (int i = 0; i < count; i++) {
+                int idLength = data.getShort() & 0xFFFF;
+                if (idLength > idBytes.length) {
+                    idBytes = new byte[idLength];
+                }
+                data.get(idBytes, 0, idLength);
+                String id = new String(idBytes, 0, idLength, StandardCharsets.ISO_8859_1);
+                long priceTicks = data.getLong();
+                double maxLiquidity = data.getDouble();
+                double volatility = data.getDouble();
+                double trend = data.getDouble();
+                long priceScale = data.getLong();
+                long volumeScale = data.getLong();
+                Instrument instrument = new Instrument(id, (double) priceTicks / priceScale, maxLiquidity,
+                                                       volatility, trend, priceScale, volumeScale);
+                instrument.setCurrentPriceTicks(priceTicks);
+                instruments.add(instrument);
+            }
+            return instruments;
+        }
+    }
+
+    /**
+     * Scrie un univers sintetic de instrumente (pentru teste de pornire și de încărcare).
+     */
+    public static void generate(Path csv, int count, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        try (BufferedWriter out = Files.newBufferedWriter(csv, StandardCharsets.US_ASCII)) {
+            out.write("id,price,maxLiquidity,volatility,trend\n");
+            for (int i = 0; i < count; i++) {
+                double price = 5 + random.nextDouble() * 995;
+                out.write(String.format(Locale.ROOT, "I%06d,%.2f,%.0f,%.3f,%.3f\n", i, price,
+                                        100 + random.nextDouble() * 9_900,
+                                        price * (0.001 + random.nextDouble() * 0.02),
+                                        (random.nextDouble() - 0.5) * 0.2));
+            }
+        }
+    }
+
+    /**
+     * Utilizare:
+     *   java util.InstrumentLoader fișier.csv
+     *   java util.InstrumentLoader --generate fișier.csv număr [sămânță]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 3 && args[0].equals("--generate")) {
+            int count = Integer.parseInt(args[2]);
+            generate(Paths.get(args[1]), count, args.length > 3 ? Long.parseLong(args[3]) : 1);
+            System.out.println("✓ " + count + " instrumente scrise în " + args[1]);
+            return;
+        }
+        if (args.length != 1) {
+            System.err.println("Utilizare: java util.InstrumentLoader fișier.csv");
+            System.err.println("           java util.InstrumentLoader --generate fișier.csv număr [sămânță]");
+            System.exit(1);
+        }
+        Path csv = Paths.get(args[0]);
+        boolean fromSnapshot = Files.exists(snapshotPath(csv));
+        long start = System.nanoTime();
+        InstrumentRegistry registry = load(csv);
+        System.out.printf(Locale.ROOT, "%d instrumente încărcate în %.1f ms (%s)%n", registry.size(),
+                          (System.nanoTime() - start) / 1e6, fromSnapshot ? "snapshot" : "CSV");
+    }
+}
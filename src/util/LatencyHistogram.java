@@ -0,0 +1,145 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramă de latențe (nanosecunde) cu bucket-uri log-liniare: fiecare
+ * putere a lui 2 este împărțită în SUB_BUCKETS intervale egale, deci eroarea
+ * relativă a unei percentile este sub 1/SUB_BUCKETS (~3%) pe tot domeniul,
+ * de la nanosecunde la ore.
+ *
+ * Înregistrarea este un calcul de index (numberOfLeadingZeros, shift) și un
+ * increment atomic, fără alocări și fără lock-uri. Citirea ia un Snapshot
+ * (copie a contoarelor); diferența a două snapshot-uri dă distribuția pe
+ * interval.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+    private final LongAdder sum;
+    private final LongAccumulator max;
+
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKET_COUNT);
+        this.sum = new LongAdder();
+        this.max = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * Înregistrează o durată (valorile negative sunt tratate ca 0).
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.getAndIncrement(indexOf(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Înregistrează timpul scurs de la momentul dat (System.nanoTime()).
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Copie a stării curente (valori cumulate de la creare).
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, sum.sum(), max.get());
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Cea mai mare valoare care cade în bucket-ul dat.
+     */
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Distribuția la un moment dat (sau pe un interval, vezi minus()).
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * Distribuția valorilor înregistrate între previous și acest snapshot.
+         * Maximul rămâne cel cumulat (nu se poate scădea).
+         */
+        public Snapshot minus(Snapshot previous) {
+            long[] delta = new long[counts.length];
+            for (int i = 0; i < delta.length; i++) {
+                delta[i] = counts[i] - previous.counts[i];
+            }
+            return new Snapshot(delta, count - previous.count, sum - previous.sum, max);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0.0 : (double) sum / count;
+        }
+
+        /**
+         * Valoarea sub care se află procentul dat din înregistrări (limita
+         * superioară a bucket-ului, deci niciodată subestimată).
+         *
+         * @param percentile Între 0 și 100
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueOf(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package util;
+
+/**
+ * Map long -> long cu adresare deschisă (sondare liniară), fără boxing și
+ * fără alocări per operație (doar la redimensionare).
+ *
+ * Cheia 0 marchează un slot liber și nu poate fi folosită. Ștergerea mută
+ * înapoi elementele următoare din aceeași secvență de sondare, deci nu lasă
+ * "pietre funerare" și căutările rămân scurte. Nu este thread-safe.
+ */
+public class LongLongHashMap {
+    private static final int MIN_CAPACITY = 16;
+
+    private final long missingValue;
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    /**
+     * @param initialCapacity Numărul estimat de elemente
+     * @param missingValue Valoarea întoarsă pentru chei absente
+     */
+    public LongLongHashMap(int initialCapacity, long missingValue) {
+        this.missingValue = missingValue;
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, initialCapacity * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    public long get(long key) {
+        if (key == 0) {
+            return missingValue;
+        }
+        for (int slot = slotOf(key); ; slot = (slot + 1) & mask) {
+            long current = keys[slot];
+            if (current == key) {
+                return values[slot];
+            }
+            if (current == 0) {
+                return missingValue;
+            }
+        }
+    }
+
+    /**
+     * Adaugă sau înlocuiește valoarea unei chei.
+     *
+     * @return Valoarea anterioară sau missingValue
+     */
+    public long put(long key, long value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Cheia 0 este rezervată");
+        }
+        for (int slot = slotOf(key); ; slot = (slot + 1) & mask) {
+            long current = keys[slot];
+            if (current == key) {
+                long previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            if (current == 0) {
+                keys[slot] = key;
+                values[slot] = value;
+                if (++size > resizeThreshold) {
+                    resize(keys.length * 2);
+                }
+                return missingValue;
+            }
+        }
+    }
+
+    /**
+     * Șterge o cheie.
+     *
+     * @return Valoarea ștearsă sau missingValue
+     */
+    public long remove(long key) {
+        for (int slot = slotOf(key); ; slot = (slot + 1) & mask) {
+            long current = keys[slot];
+            if (current == 0) {
+                return missingValue;
+            }
+            if (current == key) {
+                long previous = values[slot];
+                keys[slot] = 0;
+                size--;
+                shiftBack(slot);
+                return previous;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Completează golul lăsat de o ștergere cu elementele care l-ar fi ocupat.
+     */
+    private void shiftBack(int gap) {
+        for (int slot = (gap + 1) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+            int home = slotOf(keys[slot]);
+            // Elementul poate umple golul doar dacă golul e între slotul lui natural și poziția curentă
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                keys[slot] = 0;
+                gap = slot;
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int slot = slotOf(key);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new long[capacity];
+        this.mask = capacity - 1;
+        this.resizeThreshold = capacity / 2;
+    }
+
+    private int slotOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,149 @@
+package util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Registrul global de metrici: histograme de latență, contoare și gauge-uri
+ * (valori citite la cerere, de ex. adâncimea unei cozi).
+ *
+ * Componentele își obțin metricile o singură dată (câmpuri static final),
+ * deci pe calea critică rămâne doar înregistrarea. Valorile sunt expuse prin
+ * comanda STATS (format()) și printr-un raport periodic compact (startReporter()),
+ * care arată percentilele pe ultimul interval.
+ */
+public final class Metrics {
+    private static final ConcurrentSkipListMap<String, LatencyHistogram> histograms =
+        new ConcurrentSkipListMap<>();
+    private static final ConcurrentSkipListMap<String, LongAdder> counters =
+        new ConcurrentSkipListMap<>();
+    private static final ConcurrentSkipListMap<String, LongSupplier> gauges =
+        new ConcurrentSkipListMap<>();
+
+    private static ScheduledExecutorService reporter;
+
+    private Metrics() {
+    }
+
+    /**
+     * Histograma cu numele dat (creată la primul apel).
+     */
+    public static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    /**
+     * Contorul cu numele dat (creat la primul apel).
+     */
+    public static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    /**
+     * Înregistrează (sau înlocuiește) un gauge.
+     */
+    public static void gauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    /**
+     * Toate metricile pe o singură linie, valori cumulate, latențe în ns:
+     * nume=n:count,p50:..,p99:..,p999:..,max:..;contor=valoare;gauge=valoare
+     */
+    public static String format() {
+        StringBuilder line = new StringBuilder();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            LatencyHistogram.Snapshot s = entry.getValue().snapshot();
+            separate(line).append(entry.getKey())
+                .append("=n:").append(s.getCount())
+                .append(",p50:").append(s.getValueAtPercentile(50))
+                .append(",p99:").append(s.getValueAtPercentile(99))
+                .append(",p999:").append(s.getValueAtPercentile(99.9))
+                .append(",max:").append(s.getMax());
+        }
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            separate(line).append(entry.getKey()).append('=').append(entry.getValue().sum());
+        }
+        for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+            separate(line).append(entry.getKey()).append('=').append(entry.getValue().getAsLong());
+        }
+        return line.toString();
+    }
+
+    /**
+     * Pornește raportul periodic: la fiecare interval scrie în consolă și în
+     * metrics.txt percentilele pe intervalul încheiat, contoarele și gauge-urile
+     * (maximul unei histograme este cel de la pornire).
+     */
+    public static synchronized void startReporter(long periodSeconds) {
+        if (reporter != null) {
+            return;
+        }
+        FileLogger.initializeFile("metrics.txt", "LOG METRICI - Financial Engine");
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "MetricsReporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Map<String, LatencyHistogram.Snapshot> previous = new HashMap<>();
+        reporter.scheduleAtFixedRate(() -> report(previous), periodSeconds, periodSeconds,
+                                     TimeUnit.SECONDS);
+    }
+
+    /**
+     * Oprește raportul periodic.
+     */
+    public static synchronized void stopReporter() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+
+    private static void report(Map<String, LatencyHistogram.Snapshot> previous) {
+        StringBuilder text = new StringBuilder("--- METRICI ---");
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            LatencyHistogram.Snapshot current = entry.getValue().snapshot();
+            LatencyHistogram.Snapshot last = previous.put(entry.getKey(), current);
+            LatencyHistogram.Snapshot interval = last != null ? current.minus(last) : current;
+            if (interval.getCount() == 0) {
+                continue;
+            }
+            text.append(String.format("%n  %-22s n=%-8d p50=%-9s p99=%-9s p99.9=%-9s max=%s",
+                entry.getKey(), interval.getCount(),
+                micros(interval.getValueAtPercentile(50)),
+                micros(interval.getValueAtPercentile(99)),
+                micros(interval.getValueAtPercentile(99.9)),
+                micros(interval.getMax())));
+        }
+        StringBuilder values = new StringBuilder();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            separate(values).append(entry.getKey()).append('=').append(entry.getValue().sum());
+        }
+        for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+            separate(values).append(entry.getKey()).append('=').append(entry.getValue().getAsLong());
+        }
+        if (values.length() > 0) {
+            text.append(System.lineSeparator()).append("  ").append(values.toString().replace(";", " "));
+        }
+        System.out.println(text);
+        FileLogger.logWithTimestamp("metrics.txt", text.toString());
+    }
+
+    private static StringBuilder separate(StringBuilder line) {
+        if (line.length() > 0) {
+            line.append(';');
+        }
+        return line;
+    }
+
+    private static String micros(long nanos) {
+        return String.format("%.1fus", nanos / 1000.0);
+    }
+}
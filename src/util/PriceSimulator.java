@@ -21,6 +21,16 @@ public class PriceSimulator {
         this.dt = dt;
     }
     
+    /**
+     * Constructor cu sămânță fixă: aceeași secvență de prețuri la fiecare rulare.
+     * 
+     * @param seed Sămânța generatorului aleator
+     */
+    public PriceSimulator(double dt, long seed) {
+        this.random = new Random(seed);
+        this.dt = dt;
+    }
+    
     /**
      * Actualizează prețul unui instrument conform formulei.
      * newPrice = prevPrice + mu * dt + sigma * sqrt(dt) * epsilon
@@ -0,0 +1,101 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Coadă circulară mărginită, fără lock-uri, cu mai mulți producători și un
+ * singur consumator (MPSC).
+ *
+ * Fiecare slot are un număr de secvență: producătorii își rezervă poziția
+ * printr-un CAS pe coadă, scriu elementul și publică secvența; consumatorul
+ * citește doar sloturile publicate. Nu alocă nimic după construcție.
+ */
+public class RingBuffer<E> {
+    private final Object[] buffer;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final int capacity;
+    private final AtomicLong tail;
+    private volatile long head; // scris doar de consumator
+
+    /**
+     * @param capacity Capacitatea (putere a lui 2)
+     */
+    public RingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacitatea trebuie să fie putere a lui 2: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.buffer = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.tail = new AtomicLong();
+    }
+
+    /**
+     * Adaugă un element (thread-safe pentru orice număr de producători).
+     *
+     * @return false dacă coada este plină
+     */
+    public boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    buffer[index] = element;
+                    sequences.set(index, position + 1); // publică elementul
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false; // slotul nu a fost încă eliberat de consumator
+            } else {
+                position = tail.get(); // alt producător a luat poziția
+            }
+        }
+    }
+
+    /**
+     * Scoate următorul element publicat. Doar thread-ul consumator.
+     *
+     * @return Elementul sau null dacă coada e goală
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        E element = (E) buffer[index];
+        buffer[index] = null;
+        sequences.set(index, head + capacity); // eliberează slotul pentru runda următoare
+        head++;
+        return element;
+    }
+
+    /**
+     * Verifică dacă nu există elemente publicate. Doar thread-ul consumator.
+     */
+    public boolean isEmpty() {
+        return sequences.get((int) (head & mask)) != head + 1;
+    }
+
+    /**
+     * Numărul aproximativ de elemente din coadă.
+     */
+    public int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}